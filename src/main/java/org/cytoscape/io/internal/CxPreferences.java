@@ -54,6 +54,91 @@ public class CxPreferences {
 		return getIntegerProperty(LARGE_LAYOUT_THRESHOLD_PROPERTY, DEF_LARGE_LAYOUT_THRESHOLD);
 	}
 	
+	public static final String ASYNC_VIEW_THRESHOLD_PROPERTY = "cx.asyncViewThreshold";
+	
+	public static final int DEF_ASYNC_VIEW_THRESHOLD = 10000;
+	
+	/**
+	 * Views of networks with at least this many nodes and edges are laid out and styled by follow-up
+	 * tasks, after the import returns. 0 or less always does it during the import
+	 */
+	public static Integer getAsyncViewThreshold() {
+		return getIntegerProperty(ASYNC_VIEW_THRESHOLD_PROPERTY, DEF_ASYNC_VIEW_THRESHOLD);
+	}
+	
+	public static final String BYPASS_TO_MAPPING_PROPERTY = "cx.bypassToMapping";
+	
+	public enum BypassToMappingEnum
+	{
+	    AUTO,
+	    NEVER
+	}
+	
+	/**
+	 * Convert bypasses shared by most nodes or edges of a view to mappings on import.
+	 * Off unless set to auto
+	 */
+	public static BypassToMappingEnum getBypassToMapping() {
+		final String property = getProperty(BYPASS_TO_MAPPING_PROPERTY);
+		return BypassToMappingEnum.AUTO.toString().toLowerCase().equals(property) 
+				  ? BypassToMappingEnum.AUTO 
+				  : BypassToMappingEnum.NEVER;
+	}
+	
+	public static final String CACHE_ENABLED_PROPERTY = "cx.cache.enabled";
+	
+	/**
+	 * Keep binary snapshots of imported networks on disk, to skip parsing unchanged files.
+	 * Off unless set to true
+	 */
+	public static boolean getCacheEnabled() {
+		return Boolean.TRUE.toString().equals(getProperty(CACHE_ENABLED_PROPERTY));
+	}
+	
+	public static final String CACHE_MAX_SIZE_PROPERTY = "cx.cache.maxSizeMB";
+	
+	public static final int DEF_CACHE_MAX_SIZE = 4096;
+	
+	public static Integer getCacheMaxSizeMB() {
+		return getIntegerProperty(CACHE_MAX_SIZE_PROPERTY, DEF_CACHE_MAX_SIZE);
+	}
+	
+	public static final String WRITE_ASPECT_INDEX_PROPERTY = "cx.writeAspectIndex";
+	
+	/**
+	 * Embed the byte offsets of the aspect fragments in exported CX JSON, for readers that seek to
+	 * single aspects. Off unless set to true
+	 */
+	public static boolean getWriteAspectIndex() {
+		return Boolean.TRUE.toString().equals(getProperty(WRITE_ASPECT_INDEX_PROPERTY));
+	}
+	
+	public static final String PARSE_THREADS_PROPERTY = "cx.parseThreads";
+	
+	public static final int DEF_PARSE_THREADS = 1;
+	
+	/**
+	 * Threads used to decode the aspect fragments of a CX file. 1 parses on the import thread,
+	 * 0 or less uses one thread per processor
+	 */
+	public static int getParseThreads() {
+		final int threads = getIntegerProperty(PARSE_THREADS_PROPERTY, DEF_PARSE_THREADS);
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+	
+	public static final String VIEW_THREADS_PROPERTY = "cx.viewThreads";
+	
+	public static final int DEF_VIEW_THREADS = 0;
+	
+	/**
+	 * Threads used to prepare the views of an import (parse bypasses, build style keys). 1 prepares
+	 * on the import thread, 0 or less uses one thread per processor
+	 */
+	public static int getViewThreads() {
+		final int threads = getIntegerProperty(VIEW_THREADS_PROPERTY, DEF_VIEW_THREADS);
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+	
 	private static String getProperty(String key) {
 		final Properties props = (Properties) CyServiceModule.getService(CyProperty.class, "(cyPropertyName=cytoscape3.props)").getProperties();
 		return props.getProperty(key);
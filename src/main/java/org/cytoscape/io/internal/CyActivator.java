@@ -1,17 +1,26 @@
 package org.cytoscape.io.internal;
 
 import static org.cytoscape.work.ServiceProperties.ID;
+import static org.cytoscape.work.ServiceProperties.MENU_GRAVITY;
+import static org.cytoscape.work.ServiceProperties.TITLE;
 
 import java.util.Properties;
 
+import org.cytoscape.io.internal.cx_reader.Cx2FileFilter;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxBinaryFileFilter;
 import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
 import org.cytoscape.io.internal.cx_reader.CytoscapeCxNetworkReaderFactory;
+import org.cytoscape.io.internal.cx_writer.Cx2NetworkWriterFactory;
 import org.cytoscape.io.internal.cx_writer.CxNetworkWriterFactory;
+import org.cytoscape.io.internal.layout.ParallelForceLayout;
+import org.cytoscape.io.internal.nicecy.DeferredViews;
 import org.cytoscape.io.read.InputStreamTaskFactory;
 import org.cytoscape.io.util.StreamUtil;
 import org.cytoscape.service.util.AbstractCyActivator;
 import org.cytoscape.service.util.CyServiceRegistrar;
+import org.cytoscape.view.layout.CyLayoutAlgorithm;
 import org.cytoscape.view.vizmap.VisualMappingFunctionFactory;
+import org.cytoscape.work.undo.UndoSupport;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -40,6 +49,20 @@ public class CyActivator extends AbstractCyActivator {
 
         registerAllServices(bc, network_writer_factory, cx_writer_factory_properties);
 
+        // Binary CX (Smile), same aspect model
+        final CytoscapeCxBinaryFileFilter cxb_filter = new CytoscapeCxBinaryFileFilter(streamUtil);
+        final CxNetworkWriterFactory binary_writer_factory = new CxNetworkWriterFactory(cxb_filter, true);
+        final Properties cxb_writer_factory_properties = new Properties();
+        cxb_writer_factory_properties.put(ID, "cxBinaryNetworkWriterFactory");
+        registerAllServices(bc, binary_writer_factory, cxb_writer_factory_properties);
+
+        // CX2, single networks with declared attribute columns
+        final Cx2FileFilter cx2_filter = new Cx2FileFilter(streamUtil);
+        final Cx2NetworkWriterFactory cx2_writer_factory = new Cx2NetworkWriterFactory(cx2_filter);
+        final Properties cx2_writer_factory_properties = new Properties();
+        cx2_writer_factory_properties.put(ID, "cx2NetworkWriterFactory");
+        registerAllServices(bc, cx2_writer_factory, cx2_writer_factory_properties);
+
 
         final VisualMappingFunctionFactory vmfFactoryC = getService(bc,
                                                                     VisualMappingFunctionFactory.class,
@@ -64,5 +87,26 @@ public class CyActivator extends AbstractCyActivator {
         reader_factory_properties.put(ID, "cytoscapeCxNetworkReaderFactory");
         registerService(bc, cx_reader_factory, InputStreamTaskFactory.class, reader_factory_properties);
 
+        final CytoscapeCxNetworkReaderFactory cxb_reader_factory = new CytoscapeCxNetworkReaderFactory(cxb_filter);
+        final Properties cxb_reader_factory_properties = new Properties();
+        cxb_reader_factory_properties.put(ID, "cytoscapeCxBinaryNetworkReaderFactory");
+        registerService(bc, cxb_reader_factory, InputStreamTaskFactory.class, cxb_reader_factory_properties);
+
+        final CytoscapeCxNetworkReaderFactory cx2_reader_factory = new CytoscapeCxNetworkReaderFactory(cx2_filter, true);
+        final Properties cx2_reader_factory_properties = new Properties();
+        cx2_reader_factory_properties.put(ID, "cytoscapeCx2NetworkReaderFactory");
+        registerService(bc, cx2_reader_factory, InputStreamTaskFactory.class, cx2_reader_factory_properties);
+
+        // CX views that were not created at import are applied when a view of their network is created
+        registerAllServices(bc, DeferredViews.INSTANCE, new Properties());
+
+        // Layout for large CX networks without positions
+        final ParallelForceLayout parallel_layout = new ParallelForceLayout(getService(bc, UndoSupport.class));
+        final Properties layout_properties = new Properties();
+        layout_properties.setProperty("preferredTaskManager", "menu");
+        layout_properties.setProperty(TITLE, parallel_layout.toString());
+        layout_properties.setProperty(MENU_GRAVITY, "10.6");
+        registerService(bc, parallel_layout, CyLayoutAlgorithm.class, layout_properties);
+
     }
 }
\ No newline at end of file
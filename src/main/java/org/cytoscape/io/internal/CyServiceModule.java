@@ -1,38 +1,58 @@
 package org.cytoscape.io.internal;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cytoscape.property.CyProperty;
 import org.cytoscape.service.util.CyServiceRegistrar;
 import org.cytoscape.view.vizmap.VisualMappingFunctionFactory;
 
+/**
+ * Services of the bundle, read by imports and exports that may run concurrently, so all state is
+ * safely published.
+ *
+ */
 public class CyServiceModule {
 	
-	private static HashMap<Class<?>, Object> services = new HashMap<Class<?>, Object>();
-	private static CyServiceRegistrar serviceRegistrar;
+	private static final Map<Class<?>, Object> services = new ConcurrentHashMap<Class<?>, Object>();
+	private static volatile CyServiceRegistrar serviceRegistrar;
 	
-	private static VisualMappingFunctionFactory continuous, passthrough, discrete;
+	private static volatile VisualMappingFunctionFactory continuous, passthrough, discrete;
 	
 	@SuppressWarnings("unchecked")
 	public static final <S> S getService(Class<S> serviceClass) {
-		if (!services.containsKey(serviceClass)) {
-			if (serviceRegistrar != null)
-				return serviceRegistrar.getService(serviceClass);
+		// Single lookup, the entry may be removed between a check and a get
+		final Object service = services.get(serviceClass);
+		if (service == null) {
+			final CyServiceRegistrar registrar = serviceRegistrar;
+			if (registrar != null)
+				return registrar.getService(serviceClass);
 			throw new IllegalArgumentException("Failed to initialize service: " + serviceClass.getName());
 		}
-		return (S) services.get(serviceClass);
+		return (S) service;
 	}
 	
+	@SuppressWarnings("unchecked")
 	public static final <S> S getService(Class<S> serviceClass, String filter) {
-		if (!services.containsKey(serviceClass)) {
-			return serviceRegistrar != null ? serviceRegistrar.getService(serviceClass, filter) : null;
+		final Object service = services.get(serviceClass);
+		if (service == null) {
+			final CyServiceRegistrar registrar = serviceRegistrar;
+			return registrar != null ? registrar.getService(serviceClass, filter) : null;
 		}
-		return (S) services.get(serviceClass);
+		return (S) service;
 	}
 	
+	/**
+	 * @param serviceClass
+	 * @param service the service, or null to look it up in the registrar again
+	 */
 	public static void setService(Class<?> serviceClass, Object service) {
-		services.put(serviceClass, service);
+		if (service == null) {
+			services.remove(serviceClass);
+		} else {
+			services.put(serviceClass, service);
+		}
 	}
 	
 	public static VisualMappingFunctionFactory getPassthroughMapping() {
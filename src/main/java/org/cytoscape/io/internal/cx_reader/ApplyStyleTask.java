@@ -0,0 +1,37 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.vizmap.VisualStyle;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Applies the style of an imported view, after its layout, in a task of its own so the import
+ * does not wait for it. It is not part of the layout's task iterator, so cancelling the layout
+ * does not skip it. See {@link ViewMaker}.
+ *
+ */
+public class ApplyStyleTask extends AbstractTask {
+
+	private final VisualStyle style;
+	private final CyNetworkView view;
+	private final boolean fitContent;
+
+	public ApplyStyleTask(final VisualStyle style, final CyNetworkView view, final boolean fitContent) {
+		this.style = style;
+		this.view = view;
+		this.fitContent = fitContent;
+	}
+
+	@Override
+	public void run(final TaskMonitor taskMonitor) {
+		taskMonitor.setTitle("Applying style " + style.getTitle());
+		if (cancelled) {
+			return;
+		}
+		style.apply(view);
+		view.updateView();
+		ViewMaker.placeView(style, view, fitContent);
+		view.updateView();
+	}
+}
@@ -0,0 +1,266 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.VisualLexicon;
+import org.cytoscape.view.model.VisualProperty;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+import org.ndexbio.cxio.aspects.datamodels.Mapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts visual properties that are bypassed on most nodes or edges of a view, with values
+ * drawn from a small set, into a discrete mapping on a generated column. Setting one column value
+ * per element and a single mapping is much cheaper to build and render than locking a value on
+ * every view, and looks the same.
+ *
+ * Converted properties are removed from the bypasses applied by {@link ViewMaker}, and their
+ * mappings are added to copies of the nodes:default and edges:default elements, so the CX model
+ * itself is left untouched. Generated columns are immutable and local to the view's network, and
+ * are written back as bypasses on export instead of as attributes.
+ *
+ */
+public final class BypassOptimizer {
+	private static final Logger logger = LoggerFactory.getLogger("CX BypassOptimizer");
+
+	/**
+	 * Fraction of the elements of a view that must share a bypassed property
+	 */
+	static final double MIN_COVERAGE = 0.5;
+
+	/**
+	 * Maximum number of distinct values of a converted property
+	 */
+	static final int MAX_DISTINCT_VALUES = 64;
+
+	private final Map<String, CyVisualPropertiesElement> visualProperties;
+	private final Set<String> nodeConverted;
+	private final Set<String> edgeConverted;
+
+	private BypassOptimizer(Map<String, CyVisualPropertiesElement> visualProperties, Set<String> nodeConverted,
+			Set<String> edgeConverted) {
+		this.visualProperties = visualProperties;
+		this.nodeConverted = nodeConverted;
+		this.edgeConverted = edgeConverted;
+	}
+
+	/**
+	 * @return the view's visual properties, with the mappings of converted bypasses added
+	 */
+	public Map<String, CyVisualPropertiesElement> getVisualProperties() {
+		return visualProperties;
+	}
+
+	/**
+	 * @return IDs of node visual properties that should no longer be set as bypass
+	 */
+	public Set<String> getNodeConverted() {
+		return nodeConverted;
+	}
+
+	/**
+	 * @return IDs of edge visual properties that should no longer be set as bypass
+	 */
+	public Set<String> getEdgeConverted() {
+		return edgeConverted;
+	}
+
+	/**
+	 * Find mass bypasses in a view and convert them to columns and discrete mappings
+	 *
+	 * @param view the view the bypasses belong to, columns are created in its network's local tables
+	 * @param lexicon
+	 * @param visualProperties the view's style elements, not modified
+	 * @param nodeBypass
+	 * @param edgeBypass
+	 * @param getNode resolves a CX node ID to a node
+	 * @param getEdge resolves a CX edge ID to an edge
+	 * @return
+	 */
+	public static BypassOptimizer convert(final CyNetworkView view,
+			final VisualLexicon lexicon,
+			final Map<String, CyVisualPropertiesElement> visualProperties,
+			final Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			final Map<Long, List<CyVisualPropertiesElement>> edgeBypass,
+			final Function<Long, CyNode> getNode,
+			final Function<Long, CyEdge> getEdge) {
+
+		final Map<String, CyVisualPropertiesElement> converted = new HashMap<>(visualProperties);
+		final CyNetwork network = view.getModel();
+
+		final Set<String> nodeConverted = convert(lexicon, converted, "nodes:default", CyNode.class,
+				nodeBypass, view.getNodeViews().size(), network.getTable(CyNode.class, CyNetwork.LOCAL_ATTRS), getNode);
+		final Set<String> edgeConverted = convert(lexicon, converted, "edges:default", CyEdge.class,
+				edgeBypass, view.getEdgeViews().size(), network.getTable(CyEdge.class, CyNetwork.LOCAL_ATTRS), getEdge);
+
+		return new BypassOptimizer(converted, nodeConverted, edgeConverted);
+	}
+
+	private static <T extends CyIdentifiable> Set<String> convert(final VisualLexicon lexicon,
+			final Map<String, CyVisualPropertiesElement> visualProperties,
+			final String properties_of,
+			final Class<T> my_class,
+			final Map<Long, List<CyVisualPropertiesElement>> bypass,
+			final int element_count,
+			final CyTable table,
+			final Function<Long, T> getElement) {
+
+		if (bypass == null || bypass.isEmpty() || element_count == 0) {
+			return Collections.emptySet();
+		}
+
+		final CyVisualPropertiesElement defaults = visualProperties.get(properties_of);
+		final Map<String, Map<String, Integer>> counts = countValues(bypass);
+
+		final Set<String> candidates = new HashSet<>();
+		counts.forEach((vp_id, values) -> {
+			int total = 0;
+			for (Integer count : values.values()) {
+				total += count;
+			}
+			if (total < MIN_COVERAGE * element_count || values.size() > MAX_DISTINCT_VALUES) {
+				return;
+			}
+			if (defaults != null && defaults.getMappings().containsKey(vp_id)) {
+				// Keep the existing mapping for elements without bypass
+				return;
+			}
+			final VisualProperty<?> vp = lexicon.lookup(my_class, vp_id);
+			if (vp == null || !ViewMaker.shouldSetAsLocked(vp)) {
+				return;
+			}
+			if (table.getColumn(getColumnName(vp_id)) != null) {
+				return;
+			}
+			candidates.add(vp_id);
+		});
+
+		if (candidates.isEmpty()) {
+			return candidates;
+		}
+
+		final CyVisualPropertiesElement new_defaults = copy(defaults, properties_of);
+		for (final String vp_id : candidates) {
+			final String col = getColumnName(vp_id);
+			// Immutable, so the column cannot be deleted from under the mapping
+			table.createColumn(col, String.class, true);
+			bypass.forEach((id, cvpes) -> {
+				final String value = getValue(cvpes, vp_id);
+				if (value != null) {
+					final T element = getElement.apply(id);
+					if (element != null) {
+						table.getRow(element.getSUID()).set(col, value);
+					}
+				}
+			});
+			new_defaults.putMapping(vp_id, CxUtil.DISCRETE, createDefinition(col, counts.get(vp_id).keySet()));
+		}
+		visualProperties.put(properties_of, new_defaults);
+		logger.info("Converted " + properties_of + " bypasses to mappings: " + candidates);
+		return candidates;
+	}
+
+	private static Map<String, Map<String, Integer>> countValues(final Map<Long, List<CyVisualPropertiesElement>> bypass) {
+		final Map<String, Map<String, Integer>> counts = new HashMap<>();
+		// Stop counting properties with too many values, e.g. labels
+		final Set<String> rejected = new HashSet<>();
+		for (final List<CyVisualPropertiesElement> cvpes : bypass.values()) {
+			// One count per element, the last bypass for a property wins
+			final Map<String, String> props = new HashMap<>();
+			for (final CyVisualPropertiesElement cvpe : cvpes) {
+				if (cvpe != null && cvpe.getProperties() != null) {
+					props.putAll(cvpe.getProperties());
+				}
+			}
+			props.forEach((vp_id, value) -> {
+				if (rejected.contains(vp_id)) {
+					return;
+				}
+				Map<String, Integer> values = counts.get(vp_id);
+				if (values == null) {
+					values = new LinkedHashMap<>();
+					counts.put(vp_id, values);
+				}
+				values.merge(value, 1, Integer::sum);
+				if (values.size() > MAX_DISTINCT_VALUES) {
+					rejected.add(vp_id);
+					counts.remove(vp_id);
+				}
+			});
+		}
+		return counts;
+	}
+
+	private static String getValue(final List<CyVisualPropertiesElement> cvpes, final String vp_id) {
+		String value = null;
+		for (final CyVisualPropertiesElement cvpe : cvpes) {
+			if (cvpe != null && cvpe.getProperties() != null && cvpe.getProperties().containsKey(vp_id)) {
+				value = cvpe.getProperties().get(vp_id);
+			}
+		}
+		return value;
+	}
+
+	private static CyVisualPropertiesElement copy(final CyVisualPropertiesElement cvpe, final String properties_of) {
+		if (cvpe == null) {
+			return new CyVisualPropertiesElement(properties_of, null, null);
+		}
+		final CyVisualPropertiesElement copy = new CyVisualPropertiesElement(properties_of, cvpe.getApplies_to(), cvpe.getView());
+		for (final Map.Entry<String, String> e : cvpe.getProperties().entrySet()) {
+			copy.putProperty(e.getKey(), e.getValue());
+		}
+		for (final Map.Entry<String, Mapping> e : cvpe.getMappings().entrySet()) {
+			copy.putMapping(e.getKey(), e.getValue());
+		}
+		for (final Map.Entry<String, String> e : cvpe.getDependencies().entrySet()) {
+			copy.putDependency(e.getKey(), e.getValue());
+		}
+		return copy;
+	}
+
+	static String getColumnName(final String vp_id) {
+		return CxUtil.BYPASS_COLUMN_PREFIX + vp_id;
+	}
+
+	private static String createDefinition(final String col, final Set<String> values) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(CxUtil.VM_COL).append('=');
+		appendEscaped(sb, col);
+		sb.append(',').append(CxUtil.VM_TYPE).append("=string");
+		int counter = 0;
+		for (final String value : values) {
+			sb.append(",K=").append(counter).append('=');
+			appendEscaped(sb, value);
+			sb.append(",V=").append(counter).append('=');
+			appendEscaped(sb, value);
+			counter++;
+		}
+		return sb.toString();
+	}
+
+	// escape ',' with double ','
+	private static void appendEscaped(final StringBuilder sb, final String str) {
+		for (int i = 0; i < str.length(); i++) {
+			final char c = str.charAt(i);
+			if (c == ',') {
+				sb.append(',');
+			}
+			sb.append(c);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.cytoscape.io.DataCategory;
+import org.cytoscape.io.util.StreamUtil;
+
+/**
+ * File filter for CX2, which starts with the CXVersion pre-aspect
+ */
+public class Cx2FileFilter extends CytoscapeCxFileFilter {
+
+	private static final String[] extensions = new String[] { "cx2" };
+	private static final String[] types = new String[] { "application/json" };
+	private static final String description = "CX2 JSON";
+	private static final DataCategory category = DataCategory.NETWORK;
+
+	public static final Pattern CX2_HEADER_PATTERN = Pattern
+			.compile("\\s*\\[\\s*\\{\\s*\"\\s*CXVersion\"\\s*:\\s*\"2");
+
+	public Cx2FileFilter(final StreamUtil streamUtil) {
+		super(extensions, types, description, category, streamUtil);
+	}
+
+	@Override
+	protected String getCXstartElement(final InputStream stream) {
+		final String header = getHeaderCharacters(stream, 400);
+		final Matcher matcher = CX2_HEADER_PATTERN.matcher(header);
+		return matcher.lookingAt() ? matcher.group(0) : null;
+	}
+}
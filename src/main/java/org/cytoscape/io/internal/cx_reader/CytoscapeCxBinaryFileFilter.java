@@ -0,0 +1,40 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.cytoscape.io.DataCategory;
+import org.cytoscape.io.internal.cxio.CxBinaryFormat;
+import org.cytoscape.io.util.StreamUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File filter for binary CX (Smile encoded CX), accepted by extension and by the Smile header.
+ */
+public class CytoscapeCxBinaryFileFilter extends CytoscapeCxFileFilter {
+
+	private static final String[] extensions = new String[] { CxBinaryFormat.EXTENSION };
+	private static final String[] types = new String[] { CxBinaryFormat.CONTENT_TYPE };
+	private static final String description = "CX Binary";
+	private static final DataCategory category = DataCategory.NETWORK;
+
+	public CytoscapeCxBinaryFileFilter(final StreamUtil streamUtil) {
+		super(extensions, types, description, category, streamUtil);
+	}
+
+	@Override
+	public boolean accepts(final InputStream stream, final DataCategory dataCategory) {
+		if (!dataCategory.equals(DataCategory.NETWORK)) {
+			return false;
+		}
+		try {
+			// Only the 3 header bytes are read, and reset if the stream supports mark
+			return CxBinaryFormat.hasSmileHeader(stream);
+		} catch (IOException e) {
+			final Logger logger = LoggerFactory.getLogger(getClass());
+			logger.error("Error while checking header", e);
+			return false;
+		}
+	}
+}
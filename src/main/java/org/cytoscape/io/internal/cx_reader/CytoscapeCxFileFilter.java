@@ -76,6 +76,10 @@ public class CytoscapeCxFileFilter extends BasicCyFileFilter {
      */
     protected String getCXstartElement(final InputStream stream) {
         final String header = getHeaderCharacters(stream, 400);
+        // CX2 also has a metaData aspect near the start
+        if (Cx2FileFilter.CX2_HEADER_PATTERN.matcher(header).lookingAt()) {
+            return null;
+        }
         final Matcher matcher = CX_HEADER_PATTERN.matcher(header);
         String root = null;
 
@@ -2,12 +2,21 @@ package org.cytoscape.io.internal.cx_reader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cxio.Cx2Importer;
 import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.internal.cxio.CxSubsetImporter;
+import org.cytoscape.io.internal.cxio.ImportMemoryEstimate;
+import org.cytoscape.io.internal.cxio.NeighborhoodImporter;
+import org.cytoscape.io.internal.cxio.ParsedNetworkCache;
+import org.cytoscape.io.internal.cxio.SampleImporter;
 import org.cytoscape.io.internal.cxio.Settings;
+import org.cytoscape.io.internal.cxio.SubnetworkImporter;
 import org.cytoscape.io.internal.cxio.TimingUtil;
 import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
 import org.cytoscape.io.read.AbstractCyNetworkReader;
@@ -19,19 +28,65 @@ import org.cytoscape.property.CyProperty;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+import org.cytoscape.work.TunableValidator;
 import org.cytoscape.work.util.ListSingleSelection;
 import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
+public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader implements TunableValidator {
+
+	private static final Logger logger = LoggerFactory.getLogger(CytoscapeCxNetworkReader.class);
+
+	private static final String WHOLE_NETWORK = "Whole network";
+	private static final String SUBNETWORKS = "Subnetworks";
+	private static final String NEIGHBORHOOD = "Neighborhood of nodes";
+	private static final String SAMPLE = "Random sample";
 
 	private CyNetwork[] _networks;
 	private String _network_collection_name;
 	private NiceCyRootNetwork niceCy;
-	protected final NiceCXNetwork niceCX;
+	private NiceCXNetwork niceCX;
+
+	private final InputStream input_stream;
+	private final boolean cx2;
+	private final CxSubsetImporter subset;
 
 	final CxImporter cx_importer = new CxImporter();
 
+	@Tunable(description = "Import", groups = { "Partial import" }, params = "displayState=collapsed", gravity = 100.0)
+	public ListSingleSelection<String> importMode = new ListSingleSelection<>(WHOLE_NETWORK, SUBNETWORKS,
+			NEIGHBORHOOD, SAMPLE);
+
+	@Tunable(description = "Subnetwork names or IDs (comma separated)", groups = { "Partial import" },
+			dependsOn = "importMode=" + SUBNETWORKS, gravity = 101.0)
+	public String subnetworks = "";
+
+	@Tunable(description = "Node names (comma separated)", groups = { "Partial import" },
+			dependsOn = "importMode=" + NEIGHBORHOOD, gravity = 102.0)
+	public String seedNodes = "";
+
+	@Tunable(description = "Hops from the nodes", groups = { "Partial import" },
+			dependsOn = "importMode=" + NEIGHBORHOOD, gravity = 103.0)
+	public int hops = 1;
+
+	@Tunable(description = "Sample of", groups = { "Partial import" }, dependsOn = "importMode=" + SAMPLE,
+			gravity = 104.0)
+	public ListSingleSelection<SampleImporter.Method> sampleMethod = new ListSingleSelection<>(
+			SampleImporter.Method.values());
+
+	@Tunable(description = "Sample size (nodes for a node sample, edges otherwise)", groups = { "Partial import" },
+			dependsOn = "importMode=" + SAMPLE, gravity = 105.0)
+	public int sampleSize = SampleImporter.getPreviewSize();
+
+	@Tunable(description = "Random seed (the same seed gives the same sample)", groups = { "Partial import" },
+			dependsOn = "importMode=" + SAMPLE, gravity = 106.0)
+	public long sampleSeed = SampleImporter.DEFAULT_SEED;
+
 	private Boolean createView = null;
+	// False when views are skipped for lack of memory, so they are not kept for later either
+	private boolean deferViews = true;
 	
 	// Warning: HACK. Cytoscape doesn't allow access to reader parameters programmatically. This method allows Java reflections 
 	// access to it. This method should not be renamed or made private.
@@ -42,26 +97,157 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 	public CytoscapeCxNetworkReader(final InputStream input_stream, final String network_collection_name,
 			final CyNetworkViewFactory networkview_factory, final CyNetworkFactory network_factory,
 			final CyNetworkManager network_manager, final CyRootNetworkManager root_network_manager) {
+		this(input_stream, network_collection_name, networkview_factory, network_factory, network_manager,
+				root_network_manager, false);
+	}
+
+	/**
+	 * @param cx2 read the stream as CX2 instead of CX
+	 */
+	public CytoscapeCxNetworkReader(final InputStream input_stream, final String network_collection_name,
+			final CyNetworkViewFactory networkview_factory, final CyNetworkFactory network_factory,
+			final CyNetworkManager network_manager, final CyRootNetworkManager root_network_manager,
+			final boolean cx2) {
+		this(input_stream, network_collection_name, networkview_factory, network_factory, network_manager,
+				root_network_manager, cx2, null);
+	}
+
+	/**
+	 * @param cx2 read the stream as CX2 instead of CX
+	 * @param subset import only part of the CX network, may be null. Not supported for CX2
+	 */
+	public CytoscapeCxNetworkReader(final InputStream input_stream, final String network_collection_name,
+			final CyNetworkViewFactory networkview_factory, final CyNetworkFactory network_factory,
+			final CyNetworkManager network_manager, final CyRootNetworkManager root_network_manager,
+			final boolean cx2, final CxSubsetImporter subset) {
 
 		super(input_stream, networkview_factory, network_factory, network_manager, root_network_manager);
 
 		if (input_stream == null) {
 			throw new IllegalArgumentException("input stream must not be null");
 		}
+		this.input_stream = input_stream;
+		this.cx2 = cx2;
+		this.subset = subset;
+		_network_collection_name = network_collection_name;
+	}
+
+	/**
+	 * Parse the stream on first use, after the tunables are set
+	 * @return the parsed network
+	 * @throws IOException if the stream can not be parsed, or the import mode tunables are invalid
+	 */
+	protected NiceCXNetwork getNiceCX() throws IOException {
+		if (niceCX == null) {
+			final String invalid = validateImportMode();
+			if (invalid != null) {
+				throw new IOException(invalid);
+			}
+			final CxSubsetImporter part = subset != null ? subset : getSelectedSubset();
+			try {
+				if (cx2) {
+					if (part != null) {
+						throw new IOException("Partial import is not supported for CX2");
+					}
+					niceCX = new Cx2Importer().getCXNetworkFromStream(input_stream);
+				} else if (part != null) {
+					cx_importer.setParseThreads(CxPreferences.getParseThreads());
+					niceCX = part.getCXNetworkFromStream(input_stream, cx_importer);
+				} else {
+					cx_importer.setParseThreads(CxPreferences.getParseThreads());
+					cx_importer.setCache(ParsedNetworkCache.fromPreferences());
+					niceCX = cx_importer.getCXNetworkFromStream(input_stream);
+				}
+			} catch (IOException e) {
+				throw new IOException((cx2 ? "Failed to import file as CX2: " : "Failed to import file as CX: ")
+						+ e.getMessage(), e);
+			}
+		}
+		return niceCX;
+	}
+
+	@Override
+	public ValidationState getValidationState(final Appendable errMsg) {
+		final String invalid = validateImportMode();
+		if (invalid == null) {
+			return ValidationState.OK;
+		}
 		try {
-			niceCX = cx_importer.getCXNetworkFromStream(input_stream);
+			errMsg.append(invalid);
 		} catch (IOException e) {
-			throw new IllegalArgumentException("Failed to import file as CX");
+			logger.warn("Failed to report invalid import mode: " + invalid, e);
 		}
+		return ValidationState.INVALID;
+	}
 
-		_network_collection_name = network_collection_name;
+	/**
+	 * @return why the import mode tunables can not be used, or null if they can
+	 */
+	private String validateImportMode() {
+		if (subset != null || WHOLE_NETWORK.equals(importMode.getSelectedValue())) {
+			return null;
+		}
+		if (cx2) {
+			return "Partial import is not supported for CX2, import the whole network.";
+		}
+		switch (importMode.getSelectedValue()) {
+		case SUBNETWORKS:
+			if (split(subnetworks).isEmpty()) {
+				return "Enter the names or IDs of the subnetworks to import.";
+			}
+			break;
+		case NEIGHBORHOOD:
+			if (split(seedNodes).isEmpty()) {
+				return "Enter the names of the nodes to import the neighborhood of.";
+			}
+			if (hops <= 0) {
+				return "Hops from the nodes must be at least 1, was " + hops + ".";
+			}
+			break;
+		case SAMPLE:
+			if (sampleSize <= 0) {
+				return "Sample size must be at least 1, was " + sampleSize + ".";
+			}
+			break;
+		default:
+			break;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the part of the network selected by the import mode tunable, or null for the whole network
+	 */
+	private CxSubsetImporter getSelectedSubset() {
+		switch (importMode.getSelectedValue()) {
+		case SUBNETWORKS:
+			return new SubnetworkImporter(split(subnetworks));
+		case NEIGHBORHOOD:
+			return new NeighborhoodImporter(split(seedNodes), hops);
+		case SAMPLE:
+			return new SampleImporter(sampleMethod.getSelectedValue(), sampleSize, sampleSeed);
+		default:
+			return null;
+		}
+	}
+
+	private static List<String> split(final String list) {
+		final List<String> items = new ArrayList<>();
+		if (list != null) {
+			for (final String item : list.split(",")) {
+				if (!item.trim().isEmpty()) {
+					items.add(item.trim());
+				}
+			}
+		}
+		return items;
 	}
 
 	@Override
 	public CyNetworkView buildCyNetworkView(final CyNetwork network) {
 	
 			System.out.println("Creating view for " + network);
-			List<CyNetworkView> views = niceCy.createViews(network, createView);
+			List<CyNetworkView> views = niceCy.createViews(network, createView, deferViews);
 			if (views.isEmpty()) {
 				CyNetworkViewFactory view_factory = CyServiceModule.getService(CyNetworkViewFactory.class);
 				final CyNetworkView createdView = view_factory.createNetworkView(network);
@@ -96,6 +282,16 @@ public class CytoscapeCxNetworkReader extends AbstractCyNetworkReader {
 			setRootNetworkList(new ListSingleSelection<String>());
 		}
 
+		// Fail before building the networks if they can not fit, and skip views if only they do not fit
+		final ImportMemoryEstimate estimate = ImportMemoryEstimate.fromNiceCX(getNiceCX());
+		estimate.check(estimate.getNetworkBytes(), "create networks for");
+		if (createView == null && CxPreferences.getCreateView() != CxPreferences.CreateViewEnum.ALWAYS
+				&& !ImportMemoryEstimate.isAvailable(estimate.getNetworkBytes() + estimate.getViewBytes())) {
+			logger.warn("Not enough memory to create views, importing networks only: " + estimate);
+			createView = Boolean.FALSE;
+			deferViews = false;
+		}
+
 		Long t1 = System.currentTimeMillis();
 		niceCy = new NiceCyRootNetwork(niceCX);
 		if (Settings.INSTANCE.isTiming()) {
@@ -13,9 +13,19 @@ import org.cytoscape.work.TaskIterator;
 
 public class CytoscapeCxNetworkReaderFactory extends AbstractInputStreamTaskFactory {
 
+    private final boolean cx2;
+
     public CytoscapeCxNetworkReaderFactory(final CyFileFilter filter) {
-        super(filter);
+        this(filter, false);
+    }
 
+    /**
+     * @param filter
+     * @param cx2 read CX2 instead of CX
+     */
+    public CytoscapeCxNetworkReaderFactory(final CyFileFilter filter, final boolean cx2) {
+        super(filter);
+        this.cx2 = cx2;
     }
     
     @Override
@@ -26,6 +36,7 @@ public class CytoscapeCxNetworkReaderFactory extends AbstractInputStreamTaskFact
     		   CyServiceModule.getService(CyNetworkViewFactory.class),
     		   CyServiceModule.getService(CyNetworkFactory.class),
     		   CyServiceModule.getService(CyNetworkManager.class),
-    		   CyServiceModule.getService(CyRootNetworkManager.class)));       
+    		   CyServiceModule.getService(CyRootNetworkManager.class),
+    		   cx2));       
     }
 }
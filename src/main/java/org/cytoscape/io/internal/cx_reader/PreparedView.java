@@ -0,0 +1,155 @@
+package org.cytoscape.io.internal.cx_reader;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.VisualLexicon;
+import org.cytoscape.view.model.VisualProperty;
+import org.cytoscape.view.vizmap.VisualStyle;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+
+/**
+ * The part of making a view that does not touch the view model: bypass values parsed from their
+ * CX strings, and the key of the view's style.
+ *
+ * Views are independent once their network is built, so they can be prepared concurrently on
+ * worker threads. Only {@link #applyNodeBypasses} and {@link #applyEdgeBypasses}, called by
+ * {@link ViewMaker#makeView} on the import thread, change the view.
+ *
+ */
+public final class PreparedView {
+
+	/**
+	 * A parsed bypass value, with the property it is for
+	 */
+	private static final class Bypass {
+		final VisualProperty<?> vp;
+		final Object value;
+
+		Bypass(final VisualProperty<?> vp, final Object value) {
+			this.vp = vp;
+			this.value = value;
+		}
+	}
+
+	private final Map<Long, Map<String, Bypass>> nodeValues;
+	private final Map<Long, Map<String, Bypass>> edgeValues;
+	private final String styleKey;
+
+	private PreparedView(final Map<Long, Map<String, Bypass>> nodeValues,
+			final Map<Long, Map<String, Bypass>> edgeValues, final String styleKey) {
+		this.nodeValues = nodeValues;
+		this.edgeValues = edgeValues;
+		this.styleKey = styleKey;
+	}
+
+	/**
+	 * Thread safe, as long as the arguments are not changed while preparing
+	 * @param lexicon
+	 * @param baseStyle style new styles are created from, for the style key
+	 * @param visualProperties
+	 * @param nodeBypass
+	 * @param edgeBypass
+	 * @param convertBypasses the style will be changed by {@link BypassOptimizer}, so its key is computed when applied
+	 * @return
+	 */
+	public static PreparedView prepare(final VisualLexicon lexicon, final VisualStyle baseStyle,
+			final Map<String, CyVisualPropertiesElement> visualProperties,
+			final Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			final Map<Long, List<CyVisualPropertiesElement>> edgeBypass, final boolean convertBypasses) {
+		return new PreparedView(parse(lexicon, nodeBypass, CyNode.class), parse(lexicon, edgeBypass, CyEdge.class),
+				convertBypasses ? null : ViewMaker.getStyleKey(baseStyle, visualProperties));
+	}
+
+	/**
+	 * @return the style key, or null if it depends on converted bypasses
+	 */
+	String getStyleKey() {
+		return styleKey;
+	}
+
+	void applyNodeBypasses(final CyNetworkView view, final Function<Long, CyNode> getNode, final Set<String> skip) {
+		nodeValues.forEach((id, values) -> {
+			final CyNode node = getNode.apply(id);
+			final View<CyNode> v = node == null ? null : view.getNodeView(node);
+			if (v != null) {
+				apply(v, values, skip);
+			}
+		});
+	}
+
+	void applyEdgeBypasses(final CyNetworkView view, final Function<Long, CyEdge> getEdge, final Set<String> skip) {
+		edgeValues.forEach((id, values) -> {
+			final CyEdge edge = getEdge.apply(id);
+			final View<CyEdge> v = edge == null ? null : view.getEdgeView(edge);
+			if (v != null) {
+				apply(v, values, skip);
+			}
+		});
+	}
+
+	/**
+	 * @param skip CX property keys not to set, as in {@link ViewMaker#setVisualProperties}
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void apply(final View view, final Map<String, Bypass> values, final Set<String> skip) {
+		values.forEach((key, bypass) -> {
+			if (skip.contains(key)) {
+				return;
+			}
+			if (ViewMaker.shouldSetAsLocked(bypass.vp)) {
+				view.setLockedValue(bypass.vp, bypass.value);
+			} else {
+				view.setVisualProperty(bypass.vp, bypass.value);
+			}
+		});
+	}
+
+	/**
+	 * Parse the bypasses of one element type, by CX property key. A later value of a key replaces
+	 * the earlier one and moves to the end, so that applying them in order gives the same view as
+	 * setting them one by one
+	 */
+	private static Map<Long, Map<String, Bypass>> parse(final VisualLexicon lexicon,
+			final Map<Long, List<CyVisualPropertiesElement>> bypass, final Class<? extends CyIdentifiable> type) {
+		final Map<Long, Map<String, Bypass>> parsed = new HashMap<Long, Map<String, Bypass>>(
+				bypass.size() * 4 / 3 + 1);
+		bypass.forEach((id, elements) -> {
+			if (elements == null) {
+				return;
+			}
+			final Map<String, Bypass> values = new LinkedHashMap<String, Bypass>();
+			for (final CyVisualPropertiesElement vpe : elements) {
+				final SortedMap<String, String> props = vpe == null ? null : vpe.getProperties();
+				if (props == null) {
+					continue;
+				}
+				props.forEach((key, value) -> {
+					final VisualProperty<?> vp = lexicon.lookup(type, key);
+					if (vp == null) {
+						return;
+					}
+					final Object parsed_value = vp.parseSerializableString(value);
+					if (parsed_value != null) {
+						values.remove(key);
+						values.put(key, new Bypass(vp, parsed_value));
+					}
+				});
+			}
+			if (!values.isEmpty()) {
+				parsed.put(id, values);
+			}
+		});
+		return parsed;
+	}
+}
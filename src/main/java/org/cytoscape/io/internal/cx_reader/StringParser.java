@@ -1,58 +1,229 @@
 package org.cytoscape.io.internal.cx_reader;
 
-import java.io.IOException; 
-import java.util.ArrayList; 
-import java.util.HashMap; 
-import java.util.List; 
-import java.util.Map; 
-import java.util.regex.Matcher; 
-import java.util.regex.Pattern;
-
-import org.cytoscape.io.internal.cxio.CxUtil; 
- 
- 
-public final class StringParser { 
-    private final Map<String, String> _data = new HashMap<>(); 
-     
-    private static final Pattern p0 = Pattern.compile("(?<=(^|,))([^,]|,,)*(?=(,|$))"); 
- 
-    private static final Pattern p = Pattern.compile("^((K|V|L|E|G|OV)=([0-9]+))=(.*)$"); 
- 
-    public static List<String> commaDelimitedListStringToStringList2(String list) { 
- 
-        Matcher matcher = p0.matcher(list); 
-        ArrayList<String> result = new ArrayList<>(); 
-        while (matcher.find()) { 
-            String v = matcher.group(); 
-            if ( v.length() > 0 ) 
-              result.add(v); 
-        } 
-        return result; 
-    } 
- 
-    public StringParser(final String str) throws IOException { 
-       
-        List<String> array = commaDelimitedListStringToStringList2(str); 
-        for( String n : array) { 
-            if(n.startsWith("COL=")) { 
-              String v = n.substring(4); 
-              _data.put(CxUtil.VM_COL, v.replace(",,", ",")); 
-            } else if ( n.startsWith("T=")) { 
-              String v = n.substring(2); 
-              _data.put(CxUtil.VM_TYPE, v.replace(",,", ","));              
-            } else { 
-              Matcher m = p.matcher(n); 
-              if ( !m.matches()) 
-                throw new IOException ("Failed to parse mapping string: "+ n); 
- 
-              _data.put(m.group(1), m.group(4).replace(",,", ",")); 
-            }  
- 
-        } 
-    } 
- 
-    public final String get(final String key) { 
-        return _data.get(key); 
-    } 
- 
-} 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cytoscape.io.internal.cxio.CxUtil;
+
+/**
+ * Parser for mapping definitions of the form
+ * <pre>COL=name,T=type,K=0=key,V=0=value,...</pre>
+ * where ',' inside names and values is escaped as ',,'.
+ *
+ * The definition is tokenized in a single pass, and the indexed K/V/L/E/G/OV entries
+ * are decoded straight into arrays, see {@link #get(MappingEntry, int)} and {@link #size(MappingEntry)}.
+ */
+public final class StringParser {
+
+	/**
+	 * Indexed entries of a mapping definition. K/V for discrete mappings, L/E/G/OV
+	 * for continuous mappings
+	 */
+	public enum MappingEntry {
+		K, V, L, E, G, OV
+	}
+
+	private static final MappingEntry[] ENTRIES = MappingEntry.values();
+
+	private String col;
+	private String type;
+	@SuppressWarnings("unchecked")
+	private final List<String>[] entries = new List[ENTRIES.length];
+	private final int[] sizes = new int[ENTRIES.length];
+
+	/**
+	 * Split a comma delimited list, where ',,' is an escaped ','. Empty items are skipped,
+	 * and items are returned with the escapes in place
+	 * @param list
+	 * @return
+	 */
+    public static List<String> commaDelimitedListStringToStringList2(String list) {
+        ArrayList<String> result = new ArrayList<>();
+        final int n = list.length();
+        int start = 0;
+        int i = 0;
+        while (i <= n) {
+        	if (i == n || (list.charAt(i) == ',' && !(i + 1 < n && list.charAt(i + 1) == ','))) {
+        		if (i > start) {
+        			result.add(list.substring(start, i));
+        		}
+        		start = i + 1;
+        		i++;
+        	} else if (list.charAt(i) == ',') {
+        		i += 2;
+        	} else {
+        		i++;
+        	}
+        }
+        return result;
+    }
+
+    public StringParser(final String str) throws IOException {
+    	for (int i = 0; i < ENTRIES.length; i++) {
+    		entries[i] = new ArrayList<>();
+    	}
+
+    	final int n = str.length();
+    	final StringBuilder token = new StringBuilder();
+    	int start = 0;
+    	int i = 0;
+    	while (i <= n) {
+    		if (i == n || (str.charAt(i) == ',' && !(i + 1 < n && str.charAt(i + 1) == ','))) {
+    			// End of token
+    			if (token.length() > 0) {
+    				parseToken(token, str, start, i);
+    				token.setLength(0);
+    			}
+    			start = i + 1;
+    			i++;
+    		} else if (str.charAt(i) == ',') {
+    			// Escaped ','
+    			token.append(',');
+    			i += 2;
+    		} else {
+    			token.append(str.charAt(i));
+    			i++;
+    		}
+    	}
+
+    	// Entries are read up to the first missing index
+    	for (int e = 0; e < ENTRIES.length; e++) {
+    		final List<String> values = entries[e];
+    		int size = 0;
+    		while (size < values.size() && values.get(size) != null) {
+    			size++;
+    		}
+    		sizes[e] = size;
+    	}
+    }
+
+    /**
+     * Parse a decoded token
+     * @param token the token with ',,' unescaped
+     * @param str the definition, for error messages
+     * @param start start of the raw token in str
+     * @param end end of the raw token in str
+     * @throws IOException
+     */
+    private void parseToken(final StringBuilder token, final String str, final int start, final int end) throws IOException {
+    	if (startsWith(token, "COL=")) {
+    		col = token.substring(4);
+    		return;
+    	}
+    	if (startsWith(token, "T=")) {
+    		type = token.substring(2);
+    		return;
+    	}
+
+    	// <entry>=<index>=<value>
+    	final int eq = indexOf(token, '=', 0);
+    	final MappingEntry entry = eq < 0 ? null : toEntry(token, eq);
+    	int pos = eq + 1;
+    	long index = 0;
+    	while (entry != null && pos < token.length() && token.charAt(pos) >= '0' && token.charAt(pos) <= '9') {
+    		if (index <= str.length()) {
+    			index = index * 10 + (token.charAt(pos) - '0');
+    		}
+    		pos++;
+    	}
+    	if (entry == null || pos == eq + 1 || pos >= token.length() || token.charAt(pos) != '=') {
+    		throw new IOException ("Failed to parse mapping string: " + str.substring(start, end));
+    	}
+
+    	final List<String> values = entries[entry.ordinal()];
+    	// Indexes past the number of tokens can not be part of the consecutive entries
+    	if (index > str.length()) {
+    		return;
+    	}
+    	while (values.size() <= index) {
+    		values.add(null);
+    	}
+    	values.set((int) index, token.substring(pos + 1));
+    }
+
+    private static MappingEntry toEntry(final CharSequence token, final int length) {
+    	if (length == 1) {
+    		switch (token.charAt(0)) {
+    		case 'K': return MappingEntry.K;
+    		case 'V': return MappingEntry.V;
+    		case 'L': return MappingEntry.L;
+    		case 'E': return MappingEntry.E;
+    		case 'G': return MappingEntry.G;
+    		default: return null;
+    		}
+    	}
+    	if (length == 2 && token.charAt(0) == 'O' && token.charAt(1) == 'V') {
+    		return MappingEntry.OV;
+    	}
+    	return null;
+    }
+
+    private static boolean startsWith(final CharSequence s, final String prefix) {
+    	if (s.length() < prefix.length()) {
+    		return false;
+    	}
+    	for (int i = 0; i < prefix.length(); i++) {
+    		if (s.charAt(i) != prefix.charAt(i)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
+    private static int indexOf(final CharSequence s, final char c, final int from) {
+    	for (int i = from; i < s.length(); i++) {
+    		if (s.charAt(i) == c) {
+    			return i;
+    		}
+    	}
+    	return -1;
+    }
+
+    /**
+     * Get the value of an indexed entry
+     * @param entry
+     * @param index
+     * @return the value, or null if missing
+     */
+    public final String get(final MappingEntry entry, final int index) {
+    	final List<String> values = entries[entry.ordinal()];
+    	return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * @param entry
+     * @return the number of consecutive entries of this kind, starting at index 0
+     */
+    public final int size(final MappingEntry entry) {
+    	return sizes[entry.ordinal()];
+    }
+
+    /**
+     * Get a value by its key in the definition, e.g. COL, T or K=0
+     * @param key
+     * @return the value, or null if missing
+     */
+    public final String get(final String key) {
+    	if (CxUtil.VM_COL.equals(key)) {
+    		return col;
+    	}
+    	if (CxUtil.VM_TYPE.equals(key)) {
+    		return type;
+    	}
+    	final int eq = key.indexOf('=');
+    	if (eq < 0) {
+    		return null;
+    	}
+    	final MappingEntry entry = toEntry(key, eq);
+    	if (entry == null) {
+    		return null;
+    	}
+    	try {
+    		return get(entry, Integer.parseInt(key.substring(eq + 1)));
+    	} catch (NumberFormatException e) {
+    		return null;
+    	}
+    }
+
+}
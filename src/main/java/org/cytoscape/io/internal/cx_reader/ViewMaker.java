@@ -1,24 +1,34 @@
 package org.cytoscape.io.internal.cx_reader;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
-import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
 import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
 import org.ndexbio.cxio.aspects.datamodels.Mapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.StringParser.MappingEntry;
 import org.cytoscape.io.internal.cxio.CxUtil;
 import org.cytoscape.io.internal.cxio.Settings;
 import org.cytoscape.io.internal.cxio.TimingUtil;
+import org.cytoscape.io.internal.layout.ParallelForceLayout;
 import org.cytoscape.io.internal.nicecy.NiceCyRootNetwork;
+import org.cytoscape.io.internal.nicecy.NodePositions;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
@@ -43,7 +53,10 @@ import org.cytoscape.view.vizmap.mappings.BoundaryRangeValues;
 import org.cytoscape.view.vizmap.mappings.ContinuousMapping;
 import org.cytoscape.view.vizmap.mappings.DiscreteMapping;
 import org.cytoscape.view.vizmap.mappings.PassthroughMapping;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
 import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskObserver;
 import org.cytoscape.work.swing.DialogTaskManager;
 
 public final class ViewMaker {
@@ -58,23 +71,38 @@ public final class ViewMaker {
     
     // TODO: Cannot handle passthrough (or other?) mappings to list columns
     
-    private static boolean applyCartesianLayout(CyNetworkView view, 
-    		final CyNode node,
-    		final CartesianLayoutElement position) {
+    // Styles created from CX, keyed by collection and by a hash of the CX definition they were
+    // created from. Styles are mutable, so they are only shared by the views of one collection
+    private static final Map<String, VisualStyle> styles_by_content = new HashMap<String, VisualStyle>();
+    
+    private static final String[] STYLE_ELEMENTS = { "network", "nodes:default", "edges:default" };
+    
+    /**
+     * Apply all node positions of a view in a single pass
+     * @param view
+     * @param getNode
+     * @param positions
+     * @return true if any position was applied
+     */
+    private static boolean applyCartesianLayout(final CyNetworkView view, 
+    		final Function<Long, CyNode> getNode,
+    		final NodePositions positions) {
         
-        if (position == null || view == null) {
+        if (positions == null || positions.isEmpty() || view == null) {
         	return false;
         }
-    	if (position != null) {
-            final View<CyNode> node_view = view.getNodeView(node);
-            if (node_view != null) {
-                node_view.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, position.getX());
-                node_view.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, position.getY());
-                if (position.isZset()) {
-                    node_view.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION,
-                                                position.getZ());
-                }
-            }
+        
+        for (int i = 0; i < positions.size(); i++) {
+        	final CyNode node = getNode.apply(positions.getId(i));
+        	final View<CyNode> node_view = node == null ? null : view.getNodeView(node);
+        	if (node_view == null) {
+        		continue;
+        	}
+        	node_view.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, positions.getX(i));
+        	node_view.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, positions.getY(i));
+        	if (positions.isZset(i)) {
+        		node_view.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, positions.getZ(i));
+        	}
         }
         
         return true;
@@ -85,26 +113,74 @@ public final class ViewMaker {
     		CyNetworkView network_view,
     		String layout, boolean fitContent) {
         
-        if( layout != null && CxPreferences.getApplyLayout() != CxPreferences.ApplyLayoutEnum.NEVER)
+        final boolean apply_layout = layout != null && CxPreferences.getApplyLayout() != CxPreferences.ApplyLayoutEnum.NEVER;
+        final DialogTaskManager task_manager = CyServiceModule.getService(DialogTaskManager.class);
+        
+        final CyNetwork network = network_view.getModel();
+        final int async_threshold = CxPreferences.getAsyncViewThreshold();
+        if (async_threshold > 0 && network.getNodeCount() + network.getEdgeCount() >= async_threshold) {
+        	// Return as soon as the view exists, it is laid out and styled by follow-up tasks
+        	registerView(network_view);
+        	final TaskIterator style_task = new TaskIterator(new ApplyStyleTask(style, network_view, fitContent));
+        	if (apply_layout) {
+        		// The style runs after the layout in an iterator of its own, so it is applied even if the
+        		// layout is cancelled or fails
+        		task_manager.execute(createLayoutTasks(network_view, layout), new TaskObserver() {
+        			@Override
+        			public void taskFinished(final ObservableTask task) {
+        			}
+
+        			@Override
+        			public void allFinished(final FinishStatus finishStatus) {
+        				task_manager.execute(style_task);
+        			}
+        		});
+        	} else {
+        		task_manager.execute(style_task);
+        	}
+        	return network_view;
+        }
+        
+        if (apply_layout)
         {
-        	
-        	CyLayoutAlgorithmManager layout_manager = CyServiceModule.getService(CyLayoutAlgorithmManager.class);
-            CyLayoutAlgorithm algorithm = layout_manager.getLayout(layout);
-            
-            TaskIterator ti = algorithm.createTaskIterator(network_view, algorithm.getDefaultLayoutContext(), CyLayoutAlgorithm.ALL_NODE_VIEWS, null);
-            
-            DialogTaskManager task_manager = CyServiceModule.getService(DialogTaskManager.class);
-            task_manager.execute(ti);
+            task_manager.execute(createLayoutTasks(network_view, layout));
             network_view.updateView();
         }
         
         style.apply(network_view);
         network_view.updateView();
         
-        CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
+        registerView(network_view);
+        placeView(style, network_view, fitContent);
+        
+        return network_view;
         
-        view_manager.addNetworkView(network_view);
+    }
+    
+    private static TaskIterator createLayoutTasks(final CyNetworkView network_view, final String layout) {
+    	CyLayoutAlgorithmManager layout_manager = CyServiceModule.getService(CyLayoutAlgorithmManager.class);
+        CyLayoutAlgorithm algorithm = layout_manager.getLayout(layout);
+        if (algorithm == null && ParallelForceLayout.NAME.equals(layout)) {
+        	// Not registered, e.g. outside of Cytoscape
+        	algorithm = layout_manager.getLayout("grid");
+        }
         
+        return algorithm.createTaskIterator(network_view, algorithm.getDefaultLayoutContext(), CyLayoutAlgorithm.ALL_NODE_VIEWS, null);
+    }
+    
+    private static void registerView(final CyNetworkView network_view) {
+        CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
+        
+        // Deferred views are made after they were registered
+        if (!view_manager.getNetworkViews(network_view.getModel()).contains(network_view)) {
+        	view_manager.addNetworkView(network_view);
+        }
+    }
+    
+    /**
+     * Fit the view to its content, or center it as the style defines
+     */
+    static void placeView(final VisualStyle style, final CyNetworkView network_view, final boolean fitContent) {
         if (fitContent) {
         	network_view.fitContent();
         } else {
@@ -114,9 +190,6 @@ public final class ViewMaker {
 
           network_view.setVisualProperty(BasicVisualLexicon.NETWORK_SCALE_FACTOR, style.getDefaultValue(BasicVisualLexicon.NETWORK_SCALE_FACTOR));
         }
-        
-        return network_view;
-        
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -131,15 +204,12 @@ public final class ViewMaker {
                 .createVisualMappingFunction(col, type_class, vp);
 
         if (cmf != null) {
-            int counter = 0;
-            while (true) {
-                final String ov = sp.get("OV=" + counter);
-                if (ov == null) {
-                    break;
-                }
-                final String l = sp.get("L=" + counter);
-                final String e = sp.get("E=" + counter);
-                final String g = sp.get("G=" + counter);
+            final int size = sp.size(MappingEntry.OV);
+            for (int counter = 0; counter < size; counter++) {
+                final String ov = sp.get(MappingEntry.OV, counter);
+                final String l = sp.get(MappingEntry.L, counter);
+                final String e = sp.get(MappingEntry.E, counter);
+                final String g = sp.get(MappingEntry.G, counter);
                 if ((l != null) && (e != null) && (g != null)) {
                     final Object lp = vp.parseSerializableString(l);
                     final Object ep = vp.parseSerializableString(e);
@@ -165,7 +235,6 @@ public final class ViewMaker {
                 else {
                     logger.warn("could not get expected values in continuous mapping for col '" + col + "'");
                 }
-                counter++;
             }
             style.addVisualMappingFunction(cmf);
         }
@@ -187,13 +256,10 @@ public final class ViewMaker {
         	if (dmf == null) {
         		throw new RuntimeException("createVisualMappingFunction returned null");
         	}
-	        int counter = 0;
-	        while (true) {
-	            final String k = sp.get("K=" + counter);
-	            if (k == null) {
-	                break;
-	            }
-	            final String v = sp.get("V=" + counter);
+	        final int size = sp.size(MappingEntry.K);
+	        for (int counter = 0; counter < size; counter++) {
+	            final String k = sp.get(MappingEntry.K, counter);
+	            final String v = sp.get(MappingEntry.V, counter);
             
                 if (v == null) {
                 	logger.info("error: discrete mapping function string is corrupt for ");
@@ -212,8 +278,6 @@ public final class ViewMaker {
                 }catch(NullPointerException e) {
                 	throw new RuntimeException("Unable to parse serializable string " + key + " " + type + " from " + v);
                 }
-            	
-	            counter++;
 	        }
 	        style.addVisualMappingFunction(dmf);
         }catch(RuntimeException e) {
@@ -265,6 +329,129 @@ public final class ViewMaker {
         }
     }
 
+    /**
+     * Find a title based on the given one that is not used by any registered style, 
+     * checking titles case insensitively against a single snapshot of the registered styles.
+     * @param viz_style_title_base
+     * @param visual_mapping_manager
+     * @return
+     */
+    public final static String createUniqueVisualStyleTitle(final String viz_style_title_base,
+    		final VisualMappingManager visual_mapping_manager) {
+    	final Set<String> titles = new HashSet<String>();
+    	for (final VisualStyle vs : visual_mapping_manager.getAllVisualStyles()) {
+    		if (vs.getTitle() != null) {
+    			titles.add(vs.getTitle().toLowerCase());
+    		}
+    	}
+    	String viz_style_title = viz_style_title_base;
+    	int counter = 1;
+    	while (titles.contains(viz_style_title.toLowerCase()) && counter < 101) {
+    		viz_style_title = viz_style_title_base + "-" + counter;
+    		counter++;
+    	}
+    	return viz_style_title;
+    }
+    
+    /**
+     * Compute a canonical key for the style defined by the network, nodes:default and edges:default
+     * elements of a view, on top of the given base style. Properties, mappings and dependencies are 
+     * held in sorted maps, so identical definitions produce identical keys.
+     * @param base_style
+     * @param visualProperties
+     * @return
+     */
+    static String getStyleKey(final VisualStyle base_style, final Map<String, CyVisualPropertiesElement> visualProperties) {
+    	final StringBuilder sb = new StringBuilder();
+    	// Title and identity, another style may have the same title later
+    	appendKeyPart(sb, base_style == null ? null : base_style.getTitle() + "@" + System.identityHashCode(base_style));
+    	for (final String properties_of : STYLE_ELEMENTS) {
+    		final CyVisualPropertiesElement cvpe = visualProperties.get(properties_of);
+    		appendKeyPart(sb, properties_of);
+    		if (cvpe == null) {
+    			sb.append('-');
+    			continue;
+    		}
+    		for (final Entry<String, String> e : cvpe.getProperties().entrySet()) {
+    			appendKeyPart(sb, e.getKey());
+    			appendKeyPart(sb, e.getValue());
+    		}
+    		sb.append('|');
+    		for (final Entry<String, Mapping> e : cvpe.getMappings().entrySet()) {
+    			appendKeyPart(sb, e.getKey());
+    			appendKeyPart(sb, e.getValue().getType());
+    			appendKeyPart(sb, e.getValue().getDefinition());
+    		}
+    		sb.append('|');
+    		for (final Entry<String, String> e : cvpe.getDependencies().entrySet()) {
+    			appendKeyPart(sb, e.getKey());
+    			appendKeyPart(sb, e.getValue());
+    		}
+    	}
+    	try {
+    		final MessageDigest md = MessageDigest.getInstance("SHA-256");
+    		final byte[] digest = md.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    		final StringBuilder hex = new StringBuilder(digest.length * 2);
+    		for (final byte b : digest) {
+    			hex.append(String.format("%02x", b));
+    		}
+    		return hex.toString();
+    	} catch (NoSuchAlgorithmException e) {
+    		// Every JVM provides SHA-256, fall back to the definition itself
+    		return sb.toString();
+    	}
+    }
+    
+    // Length prefixed, so that values containing separators can not collide
+    private static void appendKeyPart(final StringBuilder sb, final String part) {
+    	if (part == null) {
+    		sb.append("-1:");
+    		return;
+    	}
+    	sb.append(part.length()).append(':').append(part);
+    }
+    
+    /**
+     * Return a style previously created from the same CX definition for the same collection, if it is
+     * still registered
+     * @param key
+     * @param visual_mapping_manager
+     * @return
+     */
+    private static VisualStyle getCachedStyle(final String key, final VisualMappingManager visual_mapping_manager) {
+    	synchronized (styles_by_content) {
+    		final Set<VisualStyle> registered = visual_mapping_manager.getAllVisualStyles();
+    		styles_by_content.values().removeIf(style -> !registered.contains(style));
+    		return styles_by_content.get(key);
+    	}
+    }
+    
+    /**
+     * Register a new style and cache it, unless a concurrent import registered a style with the
+     * same key first. Registering fires events, so it is done outside of the cache lock, and the
+     * cache is checked again once the style is registered
+     * @param key
+     * @param style
+     * @param visual_mapping_manager
+     * @return the style to use, the given style or the one registered first
+     */
+    private static VisualStyle registerStyle(final String key, final VisualStyle style,
+    		final VisualMappingManager visual_mapping_manager) {
+    	visual_mapping_manager.addVisualStyle(style);
+    	final VisualStyle first;
+    	synchronized (styles_by_content) {
+    		final VisualStyle cached = styles_by_content.get(key);
+    		if (cached == null || !visual_mapping_manager.getAllVisualStyles().contains(cached)) {
+    			styles_by_content.put(key, style);
+    			return style;
+    		}
+    		first = cached;
+    	}
+    	// Lost the race, drop the duplicate
+    	visual_mapping_manager.removeVisualStyle(style);
+    	return first;
+    }
+
     public final static boolean containsVisualStyle(final String viz_style_title,
                                                     final VisualMappingManager visual_mapping_manager) {
         final Iterator<VisualStyle> it = visual_mapping_manager.getAllVisualStyles().iterator();
@@ -405,6 +592,17 @@ public final class ViewMaker {
                                                      final VisualLexicon lexicon,
                                                      final CyEdge edge,
                                                      final List<CyVisualPropertiesElement> edgeProps) {
+		setEdgeVisualProperties(view, lexicon, edge, edgeProps, Collections.emptySet());
+	}
+	
+	/**
+	 * Set edge bypasses, except for the given visual properties
+	 */
+	public final static void setEdgeVisualProperties(final CyNetworkView view,
+                                                     final VisualLexicon lexicon,
+                                                     final CyEdge edge,
+                                                     final List<CyVisualPropertiesElement> edgeProps,
+                                                     final Set<String> skip) {
 
     	
     	if (edgeProps == null) {
@@ -416,7 +614,7 @@ public final class ViewMaker {
                 final SortedMap<String, String> props = vpe.getProperties();
                 if (props != null) {
                     final View<CyEdge> v = view.getEdgeView(edge);
-                    ViewMaker.setVisualProperties(lexicon, props, v, CyEdge.class);
+                    ViewMaker.setVisualProperties(lexicon, props, v, CyEdge.class, skip);
                 }
             }
         });
@@ -427,6 +625,17 @@ public final class ViewMaker {
                                                      final VisualLexicon lexicon,
                                                      final CyNode node,
                                                      final List<CyVisualPropertiesElement> nodeProps) {
+    	setNodeVisualProperties(view, lexicon, node, nodeProps, Collections.emptySet());
+    }
+    
+    /**
+     * Set node bypasses, except for the given visual properties
+     */
+    public final static void setNodeVisualProperties(final CyNetworkView view,
+                                                     final VisualLexicon lexicon,
+                                                     final CyNode node,
+                                                     final List<CyVisualPropertiesElement> nodeProps,
+                                                     final Set<String> skip) {
     	
     	
     	if (nodeProps == null) {
@@ -437,7 +646,7 @@ public final class ViewMaker {
             final SortedMap<String, String> props = vpe.getProperties();
             if (props != null) {
                 final View<CyNode> v = view.getNodeView(node);
-                ViewMaker.setVisualProperties(lexicon, props, v, CyNode.class);
+                ViewMaker.setVisualProperties(lexicon, props, v, CyNode.class, skip);
             }
         });
         
@@ -448,10 +657,22 @@ public final class ViewMaker {
                                                  final SortedMap<String, String> props,
                                                  final View view,
                                                  final Class my_class) {
+    	setVisualProperties(lexicon, props, view, my_class, Collections.emptySet());
+    }
+    
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public final static void setVisualProperties(final VisualLexicon lexicon,
+                                                 final SortedMap<String, String> props,
+                                                 final View view,
+                                                 final Class my_class,
+                                                 final Set<String> skip) {
         if (props == null) {
         	return;
         }
         for (final Map.Entry<String, String> entry : props.entrySet()) {
+        	if (skip.contains(entry.getKey())) {
+        		continue;
+        	}
             final VisualProperty vp = lexicon.lookup(my_class, entry.getKey());
 
             if (vp == null) {
@@ -553,52 +774,122 @@ public final class ViewMaker {
 
 	public static void makeView(CyNetworkView view,
 			NiceCyRootNetwork niceCy,
-			Map<Long, CartesianLayoutElement> cartesianLayout,
+			NodePositions cartesianLayout,
 			Map<String, CyVisualPropertiesElement> visualProperties, 
 			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
 			Map<Long, List<CyVisualPropertiesElement>> edgeBypass) {
+		makeView(view, niceCy, cartesianLayout, visualProperties, nodeBypass, edgeBypass, false);
+	}
+	
+	/**
+	 * Create the style of a view and apply bypasses and layout.
+	 * 
+	 * @param convertBypasses convert bypasses shared by most nodes or edges to mappings, see {@link BypassOptimizer}.
+	 * Creates columns in the view's network, so should only be used if the network has a single view
+	 */
+	public static void makeView(CyNetworkView view,
+			NiceCyRootNetwork niceCy,
+			NodePositions cartesianLayout,
+			Map<String, CyVisualPropertiesElement> visualProperties, 
+			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			Map<Long, List<CyVisualPropertiesElement>> edgeBypass,
+			boolean convertBypasses) {
+		makeView(view, niceCy::getNode, niceCy::getEdge, cartesianLayout, visualProperties, nodeBypass, edgeBypass,
+				convertBypasses);
+	}
+	
+	/**
+	 * Create the style of a view and apply bypasses and layout.
+	 * 
+	 * @param getNode resolves the node IDs of the layout and node bypasses
+	 * @param getEdge resolves the edge IDs of the edge bypasses
+	 */
+	public static void makeView(CyNetworkView view,
+			Function<Long, CyNode> getNode,
+			Function<Long, CyEdge> getEdge,
+			NodePositions cartesianLayout,
+			Map<String, CyVisualPropertiesElement> visualProperties, 
+			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			Map<Long, List<CyVisualPropertiesElement>> edgeBypass,
+			boolean convertBypasses) {
+		makeView(view, getNode, getEdge, cartesianLayout, visualProperties, nodeBypass, edgeBypass, convertBypasses,
+				null);
+	}
+	
+	/**
+	 * Create the style of a view and apply bypasses and layout.
+	 * 
+	 * @param prepared bypass values and style key prepared ahead, possibly on another thread. If null,
+	 * the bypasses are set as they are read
+	 */
+	public static void makeView(CyNetworkView view,
+			Function<Long, CyNode> getNode,
+			Function<Long, CyEdge> getEdge,
+			NodePositions cartesianLayout,
+			Map<String, CyVisualPropertiesElement> visualProperties, 
+			Map<Long, List<CyVisualPropertiesElement>> nodeBypass,
+			Map<Long, List<CyVisualPropertiesElement>> edgeBypass,
+			boolean convertBypasses,
+			PreparedView prepared) {
 		
 		final VisualMappingManager visual_mapping_manager = CyServiceModule.getService(VisualMappingManager.class);
     	final VisualStyleFactory visual_style_factory = CyServiceModule.getService(VisualStyleFactory.class);
     	final RenderingEngineManager rendering_engine_manager = CyServiceModule.getService(RenderingEngineManager.class);
     	
     	final long t0 = System.currentTimeMillis();
-    	String doLayout = view.getEdgeViews().size() < CxPreferences.getLargeLayoutThreshold() ? "force-directed" : "grid";
+    	String doLayout = view.getEdgeViews().size() < CxPreferences.getLargeLayoutThreshold() ? "force-directed"
+    			: ParallelForceLayout.NAME;
     	
         final boolean have_default_visual_properties = 
         		(visualProperties != null) ||
                 (nodeBypass != null) || 
                 (edgeBypass != null);
                 
+        final VisualLexicon lexicon = rendering_engine_manager.getDefaultVisualLexicon();
+        final VisualStyle default_visual_style = visual_mapping_manager.getDefaultVisualStyle();
+        
+        Set<String> node_skip = Collections.emptySet();
+        Set<String> edge_skip = Collections.emptySet();
+        if (convertBypasses) {
+        	final BypassOptimizer optimizer = BypassOptimizer.convert(view, lexicon, visualProperties, 
+        			nodeBypass, edgeBypass, getNode, getEdge);
+        	visualProperties = optimizer.getVisualProperties();
+        	node_skip = optimizer.getNodeConverted();
+        	edge_skip = optimizer.getEdgeConverted();
+        }
+        
         VisualStyle new_visual_style = visual_mapping_manager.getDefaultVisualStyle();
+        String style_key = null;
+        boolean reuse_style = false;
         if (have_default_visual_properties) {
-            int counter = 1;
-            final VisualStyle default_visual_style = visual_mapping_manager.getDefaultVisualStyle();
-            new_visual_style = visual_style_factory.createVisualStyle(default_visual_style);
-            
-            CyRootNetwork root = ((CySubNetwork) view.getModel()).getRootNetwork();
-            String name = root.getRow(root).get(CyNetwork.NAME, String.class);
-            final String viz_style_title_base = createTitleForNewVisualStyle(name);
-            
-            String viz_style_title = viz_style_title_base;
-            while (counter < 101) {
-                if (ViewMaker.containsVisualStyle(viz_style_title, visual_mapping_manager)) {
-                    viz_style_title = viz_style_title_base + "-" + counter;
-                }
-                counter++;
+            // Views with identical style definitions (same collection or repeated imports) share a style
+            final CyRootNetwork style_root = ((CySubNetwork) view.getModel()).getRootNetwork();
+            style_key = style_root.getSUID() + ":" + (prepared != null && prepared.getStyleKey() != null
+            		? prepared.getStyleKey() : getStyleKey(default_visual_style, visualProperties));
+            final VisualStyle cached_style = getCachedStyle(style_key, visual_mapping_manager);
+            if (cached_style != null) {
+            	new_visual_style = cached_style;
+            	reuse_style = true;
+            } else {
+	            new_visual_style = visual_style_factory.createVisualStyle(default_visual_style);
+	            
+	            CyRootNetwork root = ((CySubNetwork) view.getModel()).getRootNetwork();
+	            String name = root.getRow(root).get(CyNetwork.NAME, String.class);
+	            final String viz_style_title_base = createTitleForNewVisualStyle(name);
+	            
+	            //ViewMaker.removeVisualStyle(viz_style_title, visual_mapping_manager);
+	            new_visual_style.setTitle(createUniqueVisualStyleTitle(viz_style_title_base, visual_mapping_manager));
             }
-            //ViewMaker.removeVisualStyle(viz_style_title, visual_mapping_manager);
-            new_visual_style.setTitle(viz_style_title);
         }
-        	
-        final VisualLexicon lexicon = rendering_engine_manager.getDefaultVisualLexicon();
-
+        
         final CyVisualPropertiesElement networkVisualProperties = visualProperties.get("network");
         
-        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
-        																							networkVisualProperties,
-			                                                new_visual_style,
-			                                                CyNetwork.class);
+        if (!reuse_style) {
+	        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
+	        																							networkVisualProperties,
+				                                                new_visual_style,
+				                                                CyNetwork.class);
+        }
 
         final boolean fitContent = networkVisualProperties != null
         		&& !networkVisualProperties.getProperties().containsKey(BasicVisualLexicon.NETWORK_CENTER_X_LOCATION.getIdString())
@@ -607,40 +898,49 @@ public final class ViewMaker {
  	
         System.out.println("FitContent = " + fitContent);
         
-        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
-                                                        visualProperties.get("nodes:default"),
-                                                        new_visual_style,
-                                                        CyNode.class);
-    
-    
-        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
-                                                        visualProperties.get("edges:default"),
-                                                        new_visual_style,
-                                                        CyEdge.class);
-        
+        if (!reuse_style) {
+	        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
+	                                                        visualProperties.get("nodes:default"),
+	                                                        new_visual_style,
+	                                                        CyNode.class);
+	    
+	    
+	        ViewMaker.setDefaultVisualPropertiesAndMappings(lexicon,
+	                                                        visualProperties.get("edges:default"),
+	                                                        new_visual_style,
+	                                                        CyEdge.class);
+        }
         
-        nodeBypass.forEach((suid, props) -> {
-        	CyNode node = niceCy.getNode(suid);
-        	ViewMaker.setNodeVisualProperties(view, lexicon, node, props);	
-        });
         
-        edgeBypass.forEach((suid, props) -> {
-        	CyEdge edge = niceCy.getEdge(suid);
-        	ViewMaker.setEdgeVisualProperties(view, lexicon, edge, props);	
-        });
+        if (prepared != null) {
+        	prepared.applyNodeBypasses(view, getNode, node_skip);
+        	prepared.applyEdgeBypasses(view, getEdge, edge_skip);
+        } else {
+        	// Not prepared ahead: set the bypasses while reading them, without a parsed copy
+        	final Set<String> node_bypass_skip = node_skip;
+        	nodeBypass.forEach((suid, props) -> {
+        		CyNode node = getNode.apply(suid);
+        		ViewMaker.setNodeVisualProperties(view, lexicon, node, props, node_bypass_skip);
+        	});
+        	
+        	final Set<String> edge_bypass_skip = edge_skip;
+        	edgeBypass.forEach((suid, props) -> {
+        		CyEdge edge = getEdge.apply(suid);
+        		ViewMaker.setEdgeVisualProperties(view, lexicon, edge, props, edge_bypass_skip);
+        	});
+        }
         
         
         // If there is a Cartesian layout for the view, do not apply a layout
-        for (Long suid : cartesianLayout.keySet()) {
-        	CyNode node = niceCy.getNode(suid);
-        	if (applyCartesianLayout(view, node, cartesianLayout.get(suid))) {
-        		doLayout = null;
-        	}
+        if (applyCartesianLayout(view, getNode, cartesianLayout)) {
+        	doLayout = null;
         }
         
         if (have_default_visual_properties) {
         	// Simply add & assign style.  VMM automatically apply this later.
-            visual_mapping_manager.addVisualStyle(new_visual_style);
+        	if (!reuse_style) {
+        		new_visual_style = registerStyle(style_key, new_visual_style, visual_mapping_manager);
+        	}
             visual_mapping_manager.setVisualStyle(new_visual_style, view);
         }
         
@@ -0,0 +1,99 @@
+package org.cytoscape.io.internal.cx_writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.cytoscape.io.internal.cxio.Cx2Exporter;
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.io.write.CyWriter;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.Tunable;
+import org.cytoscape.work.util.ListMultipleSelection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a single network as CX2, see {@link Cx2Exporter}
+ */
+public class Cx2NetworkWriter implements CyWriter {
+
+	private final static Logger logger = LoggerFactory.getLogger(Cx2NetworkWriter.class);
+	private final OutputStream _os;
+	private final CyNetwork _network;
+	private final CyNetworkView _view;
+
+	public ListMultipleSelection<String> nodeColFilter = new ListMultipleSelection<>();
+	public ListMultipleSelection<String> edgeColFilter = new ListMultipleSelection<>();
+	public ListMultipleSelection<String> networkColFilter = new ListMultipleSelection<>();
+
+	@Tunable(description = "Node Columns")
+	public ListMultipleSelection<String> getNodeColFilter() {
+		return nodeColFilter;
+	}
+
+	@Tunable(description = "Edge Columns")
+	public ListMultipleSelection<String> getEdgeColFilter() {
+		return edgeColFilter;
+	}
+
+	@Tunable(description = "Network Columns")
+	public ListMultipleSelection<String> getNetworkColFilter() {
+		return networkColFilter;
+	}
+
+	/**
+	 * @param os
+	 * @param network
+	 * @param view view to take node coordinates from, may be null
+	 */
+	public Cx2NetworkWriter(final OutputStream os, final CyNetwork network, final CyNetworkView view) {
+		_os = os;
+		_network = network;
+		_view = view;
+
+		populateFilter(nodeColFilter, network.getDefaultNodeTable());
+		populateFilter(edgeColFilter, network.getDefaultEdgeTable());
+		populateFilter(networkColFilter, network.getDefaultNetworkTable());
+	}
+
+	// CX2 only holds the default (shared and local) columns of a single network
+	private static void populateFilter(final ListMultipleSelection<String> filter, final CyTable table) {
+		final List<String> names = table.getColumns().stream().map(col -> col.getName()).sorted()
+				.collect(Collectors.toCollection(ArrayList::new));
+		filter.setPossibleValues(names);
+		filter.setSelectedValues(names);
+	}
+
+	@Override
+	public void run(final TaskMonitor taskMonitor) throws IOException {
+		if (taskMonitor != null) {
+			taskMonitor.setProgress(0.0);
+			taskMonitor.setTitle("Exporting to CX2");
+			taskMonitor.setStatusMessage("Exporting current network as CX2...");
+		}
+		final Cx2Exporter exporter = new Cx2Exporter(_network, _view, CxUtil.hasCxIds(_network));
+		exporter.setNodeColumnFilter(nodeColFilter.getSelectedValues());
+		exporter.setEdgeColumnFilter(edgeColFilter.getSelectedValues());
+		exporter.setNetworkColumnFilter(networkColFilter.getSelectedValues());
+		exporter.writeNetwork(_os);
+		_os.close();
+	}
+
+	@Override
+	public void cancel() {
+		if (_os == null) {
+			return;
+		}
+		try {
+			_os.close();
+		} catch (final IOException e) {
+			logger.error("Could not close Outputstream for Cx2NetworkWriter.", e);
+		}
+	}
+}
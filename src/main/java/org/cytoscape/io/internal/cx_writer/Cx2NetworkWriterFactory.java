@@ -0,0 +1,39 @@
+package org.cytoscape.io.internal.cx_writer;
+
+import java.io.OutputStream;
+
+import org.cytoscape.io.CyFileFilter;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.write.CyNetworkViewWriterFactory;
+import org.cytoscape.io.write.CyWriter;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewManager;
+
+public class Cx2NetworkWriterFactory implements CyNetworkViewWriterFactory {
+    private final CyFileFilter          _filter;
+
+    public Cx2NetworkWriterFactory(final CyFileFilter filter) {
+        _filter = filter;
+    }
+
+    @Override
+    public CyWriter createWriter(final OutputStream os, final CyNetwork network) {
+        // Take coordinates from the first view of the network, if any
+        final CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
+        final CyNetworkView view = view_manager == null ? null
+                : view_manager.getNetworkViews(network).stream().findFirst().orElse(null);
+        return new Cx2NetworkWriter(os, network, view);
+    }
+
+    @Override
+    public CyFileFilter getFileFilter() {
+        return _filter;
+    }
+
+    @Override
+    public CyWriter createWriter(final OutputStream os, final CyNetworkView view) {
+        return new Cx2NetworkWriter(os, view.getModel(), view);
+    }
+
+}
@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 
 import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.io.internal.AspectSet;
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cxio.CxExporter;
 import org.cytoscape.io.internal.cxio.CxUtil;
@@ -47,6 +48,7 @@ public class CxNetworkWriter implements CyWriter {
 	private static final boolean USE_CXID_DEFAULT = true;
 	private final OutputStream _os;
 	private final CyNetwork _network;
+	private final boolean _binary;
 
 	public ListMultipleSelection<String> aspectFilter = new ListMultipleSelection<>();
 	public ListMultipleSelection<String> nodeColFilter = new ListMultipleSelection<>();
@@ -110,9 +112,15 @@ public class CxNetworkWriter implements CyWriter {
 
 	public CxNetworkWriter(final OutputStream os, final CyNetwork network, final boolean writeSiblings,
 			final boolean useCxId) {
+		this(os, network, writeSiblings, useCxId, false);
+	}
+
+	public CxNetworkWriter(final OutputStream os, final CyNetwork network, final boolean writeSiblings,
+			final boolean useCxId, final boolean binary) {
 
 		_os = os;
 		_network = network;
+		_binary = binary;
 		this.writeSiblings = writeSiblings;
 		this.useCxId = useCxId;
 
@@ -182,7 +190,7 @@ public class CxNetworkWriter implements CyWriter {
 	public void run(final TaskMonitor taskMonitor) throws FileNotFoundException, IOException {
 		if (taskMonitor != null) {
 			taskMonitor.setProgress(0.0);
-			taskMonitor.setTitle("Exporting to CX");
+			taskMonitor.setTitle(_binary ? "Exporting to binary CX" : "Exporting to CX");
 			taskMonitor.setStatusMessage("Exporting current network as CX...");
 		}
 		
@@ -205,19 +213,20 @@ public class CxNetworkWriter implements CyWriter {
 				-> writeSiblings 
 				|| !Settings.IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES.contains(columnName)
 				).collect(Collectors.toList()));
+		exporter.setWriteAspectIndex(CxPreferences.getWriteAspectIndex());
 
 		final long t0 = System.currentTimeMillis();
 		if (TimingUtil.WRITE_TO_DEV_NULL) {
-			exporter.writeNetwork(aspects, new FileOutputStream(new File("/dev/null")));
+			exporter.writeNetwork(aspects, new FileOutputStream(new File("/dev/null")), _binary);
 		} else if (TimingUtil.WRITE_TO_BYTE_ARRAY_OUTPUTSTREAM) {
-			exporter.writeNetwork(aspects, new ByteArrayOutputStream());
+			exporter.writeNetwork(aspects, new ByteArrayOutputStream(), _binary);
 		} else {
-			exporter.writeNetwork(aspects, _os);
+			exporter.writeNetwork(aspects, _os, _binary);
 			_os.close();
 
 		}
 
-		if (Settings.INSTANCE.isTiming()) {
+		if (exporter.getSettings().isTiming()) {
 			TimingUtil.reportTimeDifference(t0, "total time", -1);
 		}
 	}
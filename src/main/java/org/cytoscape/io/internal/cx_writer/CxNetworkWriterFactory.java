@@ -9,9 +9,19 @@ import org.cytoscape.view.model.CyNetworkView;
 
 public class CxNetworkWriterFactory implements CyNetworkViewWriterFactory {
     private final CyFileFilter          _filter;
+    private final boolean               _binary;
 
     public CxNetworkWriterFactory(final CyFileFilter filter) {
+        this(filter, false);
+    }
+
+    /**
+     * @param filter
+     * @param binary write binary CX instead of CX JSON
+     */
+    public CxNetworkWriterFactory(final CyFileFilter filter, final boolean binary) {
         _filter = filter;
+        _binary = binary;
     }
 
     @Override
@@ -19,7 +29,8 @@ public class CxNetworkWriterFactory implements CyNetworkViewWriterFactory {
         return new CxNetworkWriter(os,
                                    network,
                                    false,
-                                   false);
+                                   false,
+                                   _binary);
     }
 
     @Override
@@ -32,7 +43,8 @@ public class CxNetworkWriterFactory implements CyNetworkViewWriterFactory {
         return new CxNetworkWriter(os,
                                    view.getModel(),
                                    false,
-                                   false);
+                                   false,
+                                   _binary);
 
     }
 
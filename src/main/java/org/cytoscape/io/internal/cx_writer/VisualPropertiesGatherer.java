@@ -2,9 +2,12 @@ package org.cytoscape.io.internal.cx_writer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
 import org.ndexbio.cxio.core.interfaces.AspectElement;
@@ -21,6 +24,7 @@ import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
 import org.cytoscape.model.CyTable;
 import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.CyNetworkView;
@@ -46,6 +50,58 @@ public final class VisualPropertiesGatherer {
 
 	private static final Logger logger = Logger.getLogger("VisualPropertiesGatherer");
     private static final boolean ALLOW_NODE_CUSTOM_PROPERTIES = true;
+    
+    /**
+     * Visual properties of a lexicon, split by target and filtered once. Lexicons do not change
+     * after the renderer registers them, so plans are cached for as long as the lexicon is alive.
+     */
+    private static final Map<VisualLexicon, LexiconPlan> plans = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private static final class LexiconPlan {
+    	private final List<VisualProperty<?>> network = new ArrayList<>();
+    	private final List<VisualProperty<?>> nodes = new ArrayList<>();
+    	private final List<VisualProperty<?>> edges = new ArrayList<>();
+    	private final List<VisualProperty<?>> nodeDefaults = new ArrayList<>();
+    	private final List<VisualProperty<?>> edgeDefaults = new ArrayList<>();
+    	
+    	private LexiconPlan(final Set<VisualProperty<?>> all_visual_properties) {
+    		for (final VisualProperty<?> vp : all_visual_properties) {
+    			final Class<?> target = vp.getTargetDataType();
+    			final String id_string = vp.getIdString();
+    			if (target == CyNetwork.class) {
+    				network.add(vp);
+    				continue;
+    			}
+    			if (isRoot(id_string)) {
+    				continue;
+    			}
+    			if (target == CyNode.class) {
+    				nodes.add(vp);
+    				if (ALLOW_NODE_CUSTOM_PROPERTIES || !id_string.startsWith("NODE_CUSTOM")) {
+    					nodeDefaults.add(vp);
+    				}
+    			}else if (target == CyEdge.class) {
+    				edges.add(vp);
+    				edgeDefaults.add(vp);
+    			}
+    		}
+    	}
+    }
+    
+    private static boolean isRoot(final String id_string) {
+    	return id_string.equals("NODE") || id_string.equals("EDGE") || id_string.equals("NETWORK");
+    }
+    
+    private static LexiconPlan getPlan(final VisualLexicon lexicon) {
+    	synchronized (plans) {
+    		LexiconPlan plan = plans.get(lexicon);
+    		if (plan == null) {
+    			plan = new LexiconPlan(lexicon.getAllVisualProperties());
+    			plans.put(lexicon, plan);
+    		}
+    		return plan;
+    	}
+    }
 
     /**
      * This method is for gathering visual properties from a view and network
@@ -71,6 +127,21 @@ public final class VisualPropertiesGatherer {
                                                                                    final Set<VisualPropertyType> types,
                                                                                    final Long viewId,
                                                                                    boolean use_cxId) throws JsonProcessingException {
+    	return gatherVisualPropertiesAsAspectElements(view, lexicon, types, viewId, use_cxId, new VisualPropertyValueCache());
+    }
+    
+    /**
+     * Gather visual properties, reusing serialized values from the given cache. Share one
+     * cache between all views of an export.
+     * 
+     * @see #gatherVisualPropertiesAsAspectElements(CyNetworkView, VisualLexicon, Set, Long, boolean)
+     */
+    public static final List<AspectElement> gatherVisualPropertiesAsAspectElements(final CyNetworkView view,
+                                                                                   final VisualLexicon lexicon,
+                                                                                   final Set<VisualPropertyType> types,
+                                                                                   final Long viewId,
+                                                                                   boolean use_cxId,
+                                                                                   final VisualPropertyValueCache cache) throws JsonProcessingException {
 
         final List<AspectElement> elements = new ArrayList<>();
         final VisualMappingManager vmm = CyServiceModule.getService(VisualMappingManager.class);
@@ -79,29 +150,29 @@ public final class VisualPropertiesGatherer {
         if (lexicon == null) {
         	throw new IllegalArgumentException("VisualLexicon is not initialized. This should not happen");
         }
-        final Set<VisualProperty<?>> all_visual_properties = lexicon.getAllVisualProperties();
+        final LexiconPlan plan = getPlan(lexicon);
         if (current_visual_style == null) {
         	throw new IllegalArgumentException("Failed to get Visual Style from view " + view);
         }
         
         if (types.contains(VisualPropertyType.NETWORK)) {
-            gatherNetworkVisualProperties(view, elements, current_visual_style, all_visual_properties, viewId);
+            gatherNetworkVisualProperties(view, elements, current_visual_style, plan.network, viewId, cache);
         }
 
         if (types.contains(VisualPropertyType.NODES_DEFAULT)) {
-            gatherNodesDefaultVisualProperties(view, elements, current_visual_style, all_visual_properties, viewId);
+            gatherNodesDefaultVisualProperties(view, elements, current_visual_style, plan.nodeDefaults, viewId, cache);
         }
 
         if (types.contains(VisualPropertyType.EDGES_DEFAULT)) {
-            gatherEdgesDefaultVisualProperties(view, elements, current_visual_style, all_visual_properties, viewId);
+            gatherEdgesDefaultVisualProperties(view, elements, current_visual_style, plan.edgeDefaults, viewId, cache);
         }
 
         if (types.contains(VisualPropertyType.NODES)) {
-            gatherNodeVisualProperties(view, elements, all_visual_properties, viewId, use_cxId);
+            gatherNodeVisualProperties(view, elements, current_visual_style, plan.nodes, viewId, use_cxId, cache);
         }
 
         if (types.contains(VisualPropertyType.EDGES)) {
-            gatherEdgeVisualProperties(view, elements, all_visual_properties, viewId, use_cxId);
+            gatherEdgeVisualProperties(view, elements, current_visual_style, plan.edges, viewId, use_cxId, cache);
         }
 
         return elements;
@@ -110,13 +181,14 @@ public final class VisualPropertiesGatherer {
 
     private  final static <T> void addProperties(final View<? extends CyIdentifiable> view,
                                             final VisualProperty<T> vp,
-                                            final CyVisualPropertiesElement cvp) {
+                                            final CyVisualPropertiesElement cvp,
+                                            final VisualPropertyValueCache cache) {
         if (!view.isSet(vp) || !view.isValueLocked(vp)) {
         	return;
         }
         
         try {
-        	final String value_str = getSerializableVisualProperty(view, vp);
+        	final String value_str = getSerializableVisualProperty(view, vp, cache);
         	if (CxioUtil.isEmpty(value_str)) {
             	return;
             }
@@ -135,29 +207,25 @@ public final class VisualPropertiesGatherer {
         
     }
 
-    private static <T> String getSerializableVisualProperty(View<? extends CyIdentifiable> view, VisualProperty<T> vp) {
-    	T prop = view.getVisualProperty(vp);
-		if (prop == null) {
-			return null;
-		}
-		String val = null;
-		try {
-			val = vp.toSerializableString(prop);
-		}catch (ClassCastException e) {
-			val = String.valueOf(prop);
-			String message = String.format("Class cast exception for %s: %s(%s) = %s. Error: %s\n", vp.getClass(), vp.getDisplayName(), vp.getTargetDataType(), view.getVisualProperty(vp), e.getMessage());
-			logger.info(message);
-//        	throw new ClassCastException(message);
-		}
-		
-		return val;
+    private static <T> String getSerializableVisualProperty(View<? extends CyIdentifiable> view, VisualProperty<T> vp, 
+    		final VisualPropertyValueCache cache) {
+    	final T prop = view.getVisualProperty(vp);
+    	try {
+    		return cache.serialize(vp, prop);
+    	} catch (ClassCastException e) {
+    		// Values set on a view are not checked against the property type
+    		String message = String.format("Class cast exception for %s: %s(%s) = %s. Error: %s", vp.getClass(), vp.getDisplayName(), vp.getTargetDataType(), prop, e.getMessage());
+    		logger.warn(message);
+    		return String.valueOf(prop);
+    	}
 	}
 
     private final static <T> void addPropertiesNetwork(final View<? extends CyIdentifiable> view,
                                                    final VisualStyle style,
                                                    final VisualProperty<T> vp,
-                                                   final CyVisualPropertiesElement cvp) {
-    	String value_str = getSerializableVisualProperty(view, vp);
+                                                   final CyVisualPropertiesElement cvp,
+                                                   final VisualPropertyValueCache cache) {
+    	String value_str = getSerializableVisualProperty(view, vp, cache);
         if (CxioUtil.isEmpty(value_str)) {
         	return;
         }
@@ -186,10 +254,11 @@ public final class VisualPropertiesGatherer {
 
     private final static <T> void addDefaultProperties(final VisualStyle style,
                                                    final VisualProperty<T> vp,
-                                                   final CyVisualPropertiesElement cvp) {
+                                                   final CyVisualPropertiesElement cvp,
+                                                   final VisualPropertyValueCache cache) {
         final T vp_value = style.getDefaultValue(vp);
         if (vp_value != null) {
-            final String value_str = vp.toSerializableString(vp_value);
+            final String value_str = cache.serialize(vp, vp_value);
             if (!CxioUtil.isEmpty(value_str)) {
                 final String id_string = vp.getIdString();
                 if (id_string.equals("NODE") || id_string.equals("EDGE") || id_string.equals("NETWORK")) {
@@ -209,33 +278,49 @@ public final class VisualPropertiesGatherer {
     
     final public static char COMMA = ',';
     
-    // escape ',' with double ',' 
-    private static String escapeString(String str) {
+    // escape ',' with double ',', appending straight to the definition
+    private static void appendEscaped(final StringBuilder sb, final String str) {
         if (str == null) {
-          return null;
+          sb.append(str);
+          return;
         }
-        StringBuilder result = new StringBuilder();
         for (int i=0; i<str.length(); i++) {
           char curChar = str.charAt(i);
           if (curChar == COMMA) {
             // special char
-            result.append(COMMA);
+            sb.append(COMMA);
           }
-          result.append(curChar);
+          sb.append(curChar);
         }
-        return result.toString();
       }
+    
+    private static StringBuilder createDefinition(final int entries_capacity, final String col, final String type) {
+        final StringBuilder sb = new StringBuilder(32 + (col == null ? 0 : col.length()) + entries_capacity);
+        sb.append(CxUtil.VM_COL);
+        sb.append("=");
+        appendEscaped(sb, col);
+        sb.append(",");
+        sb.append(CxUtil.VM_TYPE);
+        sb.append("=");
+        appendEscaped(sb, type);
+        return sb;
+    }
 
     // Note: ',' in column name and value are escaped by ',,' 
     private final static <T> void addMappings(final VisualStyle style,
                                           final VisualProperty<T> vp,
                                           final CyVisualPropertiesElement cvp,
-                                          final CyTable table) {
+                                          final CyTable table,
+                                          final VisualPropertyValueCache cache) {
         final VisualMappingFunction<?, T> mapping = style.getVisualMappingFunction(vp);
         if (mapping == null) {
         	return;
         }
         final String col = mapping.getMappingColumnName();
+        if (isBypassColumn(col)) {
+        	// Written as bypasses, see addConvertedBypasses
+        	return;
+        }
         
         if (mapping instanceof PassthroughMapping<?, ?>) {
             final PassthroughMapping<?, T> pm = (PassthroughMapping<?, T>) mapping;
@@ -248,14 +333,7 @@ public final class VisualPropertiesGatherer {
                         + "': column not present, ignoring corresponding passthrough mapping. " + e.getMessage());
                 return;
             }
-            final StringBuilder sb = new StringBuilder();
-            sb.append(CxUtil.VM_COL);
-            sb.append("=");
-            sb.append(escapeString(col));
-            sb.append(",");
-            sb.append(CxUtil.VM_TYPE);
-            sb.append("=");
-            sb.append(escapeString(type));
+            final StringBuilder sb = createDefinition(0, col, type);
             cvp.putMapping(vp.getIdString(), CxUtil.PASSTHROUGH, sb.toString());
         }
         else if (mapping instanceof DiscreteMapping<?, ?>) {
@@ -270,14 +348,8 @@ public final class VisualPropertiesGatherer {
                 return;
             }
             final Map<?, T> map = dm.getAll();
-            final StringBuilder sb = new StringBuilder();
-            sb.append(CxUtil.VM_COL);
-            sb.append("=");
-            sb.append(escapeString(col));
-            sb.append(",");
-            sb.append(CxUtil.VM_TYPE);
-            sb.append("=");
-            sb.append(escapeString(type));
+            // Presize for typical short keys and values, to avoid repeated copies of large definitions
+            final StringBuilder sb = createDefinition(map.size() * 40, col, type);
             int counter = 0;
             for (final Map.Entry<?, T> entry : map.entrySet()) {
                 final T value = entry.getValue();
@@ -288,11 +360,12 @@ public final class VisualPropertiesGatherer {
                     sb.append(",K=");
                     sb.append(counter);
                     sb.append("=");
-                    sb.append(escapeString(entry.getKey().toString()));
+                    appendEscaped(sb, entry.getKey().toString());
                     sb.append(",V=");
                     sb.append(counter);
                     sb.append("=");
-                    sb.append(escapeString(vp.toSerializableString(value)));
+                    // Values are drawn from a small set, serialize each distinct value once
+                    appendEscaped(sb, cache.serialize(vp, value));
                 }
                 catch (final Exception e) {
                     logger.info("could not add discrete mapping entry: " + value);
@@ -314,14 +387,7 @@ public final class VisualPropertiesGatherer {
                         + "': column not present, ignoring corresponding continuous mapping." + e.getMessage());
                 return;
             }
-            final StringBuilder sb = new StringBuilder();
-            sb.append(CxUtil.VM_COL);
-            sb.append("=");
-            sb.append(escapeString(col));
-            sb.append(",");
-            sb.append(CxUtil.VM_TYPE);
-            sb.append("=");
-            sb.append(escapeString(type));
+            final StringBuilder sb = createDefinition(cm.getPointCount() * 80, col, type);
             int counter = 0;
             for (final ContinuousMappingPoint<?, T> cp : cm.getAllPoints()) {
                 final T lesser = cp.getRange().lesserValue;
@@ -330,19 +396,19 @@ public final class VisualPropertiesGatherer {
                 sb.append(",L=");
                 sb.append(counter);
                 sb.append("=");
-                sb.append(escapeString(vp.toSerializableString(lesser)));
+                appendEscaped(sb, cache.serialize(vp, lesser));
                 sb.append(",E=");
                 sb.append(counter);
                 sb.append("=");
-                sb.append(escapeString(vp.toSerializableString(equal)));
+                appendEscaped(sb, cache.serialize(vp, equal));
                 sb.append(",G=");
                 sb.append(counter);
                 sb.append("=");
-                sb.append(escapeString(vp.toSerializableString(greater)));
+                appendEscaped(sb, cache.serialize(vp, greater));
                 sb.append(",OV=");
                 sb.append(counter);
                 sb.append("=");
-                sb.append(escapeString(cp.getValue().toString()));
+                appendEscaped(sb, cp.getValue().toString());
                 ++counter;
             }
             cvp.putMapping(vp.getIdString(), CxUtil.CONTINUOUS, sb.toString());
@@ -352,19 +418,18 @@ public final class VisualPropertiesGatherer {
     private static void gatherEdgesDefaultVisualProperties(final CyNetworkView view,
                                                            final List<AspectElement> visual_properties,
                                                            final VisualStyle current_visual_style,
-                                                           final Set<VisualProperty<?>> all_visual_properties,
-                                                           final Long viewId) {
+                                                           final List<VisualProperty<?>> visual_property_list,
+                                                           final Long viewId,
+                                                           final VisualPropertyValueCache cache) {
 
         final CyVisualPropertiesElement e = new CyVisualPropertiesElement(VisualPropertyType.EDGES_DEFAULT.asString(),
         		viewId,
         		viewId);
         
-        for (final VisualProperty<?> visual_property : all_visual_properties) {
-            if (visual_property.getTargetDataType() == CyEdge.class) {
-                addDefaultProperties(current_visual_style, visual_property, e);
-                final CyTable table = view.getModel().getTable(CyEdge.class, CyNetwork.DEFAULT_ATTRS);
-                addMappings(current_visual_style, visual_property, e, table);
-            }
+        final CyTable table = view.getModel().getTable(CyEdge.class, CyNetwork.DEFAULT_ATTRS);
+        for (final VisualProperty<?> visual_property : visual_property_list) {
+            addDefaultProperties(current_visual_style, visual_property, e, cache);
+            addMappings(current_visual_style, visual_property, e, table, cache);
         }
         addDependency(CxUtil.ARROW_COLOR_MATCHES_EDGE, current_visual_style, e);
         visual_properties.add(e);
@@ -372,21 +437,22 @@ public final class VisualPropertiesGatherer {
 
     private static void gatherEdgeVisualProperties(final CyNetworkView view,
                                                    final List<AspectElement> visual_properties,
-                                                   final Set<VisualProperty<?>> all_visual_properties,
+                                                   final VisualStyle current_visual_style,
+                                                   final List<VisualProperty<?>> visual_property_list,
                                                    final Long viewId,
-                                                   boolean use_cxId) throws JsonProcessingException {
+                                                   boolean use_cxId,
+                                                   final VisualPropertyValueCache cache) throws JsonProcessingException {
+        final Map<String, String> converted = getConvertedBypasses(current_visual_style, visual_property_list);
         for (View<CyEdge> edge_view : view.getEdgeViews()) {
         	final CyEdge edge = edge_view.getModel();
             final CyVisualPropertiesElement e = new CyVisualPropertiesElement(VisualPropertyType.EDGES.asString(),
             												CxUtil.getElementId(edge, (CySubNetwork)view.getModel(), use_cxId),                                                                           
             												viewId);
 
-            for (final VisualProperty<?> visual_property : all_visual_properties) {
-            	
-                if (visual_property.getTargetDataType() == CyEdge.class) {
-                    addProperties(edge_view, visual_property, e);
-                }
+            for (final VisualProperty<?> visual_property : visual_property_list) {
+                addProperties(edge_view, visual_property, e, cache);
             }
+            addConvertedBypasses(view.getModel().getRow(edge), converted, e);
             if ((e.getProperties() != null) && !e.getProperties().isEmpty()) {
                 visual_properties.add(e);
             }
@@ -396,16 +462,15 @@ public final class VisualPropertiesGatherer {
     private static void gatherNetworkVisualProperties(final CyNetworkView view,
                                                       final List<AspectElement> visual_properties,
                                                       final VisualStyle current_visual_style,
-                                                      final Set<VisualProperty<?>> all_visual_properties,
-                                                      final Long viewId) {
+                                                      final List<VisualProperty<?>> visual_property_list,
+                                                      final Long viewId,
+                                                      final VisualPropertyValueCache cache) {
         final CyVisualPropertiesElement e = new CyVisualPropertiesElement(VisualPropertyType.NETWORK.asString(),
         												viewId,
                                                         viewId);
 
-        for (final VisualProperty<?> visual_property : all_visual_properties) {
-            if (visual_property.getTargetDataType() == CyNetwork.class) {
-                addPropertiesNetwork(view, current_visual_style, visual_property, e);
-            }
+        for (final VisualProperty<?> visual_property : visual_property_list) {
+            addPropertiesNetwork(view, current_visual_style, visual_property, e, cache);
         }
         visual_properties.add(e);
     }
@@ -413,17 +478,16 @@ public final class VisualPropertiesGatherer {
     private static void gatherNodesDefaultVisualProperties(final CyNetworkView view,
                                                            final List<AspectElement> visual_properties,
                                                            final VisualStyle current_visual_style,
-                                                           final Set<VisualProperty<?>> all_visual_properties,
-                                                           final Long viewId) {
+                                                           final List<VisualProperty<?>> visual_property_list,
+                                                           final Long viewId,
+                                                           final VisualPropertyValueCache cache) {
         final CyVisualPropertiesElement e = new CyVisualPropertiesElement(VisualPropertyType.NODES_DEFAULT.asString(),
         											viewId, viewId);
         
-        for (final VisualProperty<?> visual_property : all_visual_properties) {
-            if (visual_property.getTargetDataType() == CyNode.class) {
-                addDefaultProperties(current_visual_style, visual_property, e);
-                final CyTable table = view.getModel().getTable(CyNode.class, CyNetwork.DEFAULT_ATTRS);
-                addMappings(current_visual_style, visual_property, e, table);
-            }
+        final CyTable table = view.getModel().getTable(CyNode.class, CyNetwork.DEFAULT_ATTRS);
+        for (final VisualProperty<?> visual_property : visual_property_list) {
+            addDefaultProperties(current_visual_style, visual_property, e, cache);
+            addMappings(current_visual_style, visual_property, e, table, cache);
         }
         addDependency(CxUtil.NODE_CUSTOM_GRAPHICS_SIZE_SYNC, current_visual_style, e);
         addDependency(CxUtil.NODE_SIZE_LOCKED, current_visual_style, e);
@@ -443,26 +507,65 @@ public final class VisualPropertiesGatherer {
 
     private static void gatherNodeVisualProperties(final CyNetworkView view,
                                                    final List<AspectElement> visual_properties,
-                                                   final Set<VisualProperty<?>> all_visual_properties,
+                                                   final VisualStyle current_visual_style,
+                                                   final List<VisualProperty<?>> visual_property_list,
                                                    final Long viewId,
-                                                   boolean use_cxId) throws JsonProcessingException {
+                                                   boolean use_cxId,
+                                                   final VisualPropertyValueCache cache) throws JsonProcessingException {
+        final Map<String, String> converted = getConvertedBypasses(current_visual_style, visual_property_list);
         for (View<CyNode> node_view : view.getNodeViews()) {
             final CyNode cy_node = node_view.getModel();
             final CyVisualPropertiesElement e = new CyVisualPropertiesElement(VisualPropertyType.NODES.asString(),
             																CxUtil.getElementId(cy_node, (CySubNetwork)view.getModel(), use_cxId),
                                                                             viewId);
      
-            for (final VisualProperty<?> visual_property : all_visual_properties) {
-                if (visual_property.getTargetDataType() == CyNode.class) {
-                    addProperties(node_view, visual_property, e);
-                }
+            for (final VisualProperty<?> visual_property : visual_property_list) {
+                addProperties(node_view, visual_property, e, cache);
             }
+            addConvertedBypasses(view.getModel().getRow(cy_node), converted, e);
             if ((e.getProperties() != null) && !e.getProperties().isEmpty()) {
                 visual_properties.add(e);
             }
         }
     }
 
+    private static boolean isBypassColumn(final String col) {
+        return col != null && col.startsWith(CxUtil.BYPASS_COLUMN_PREFIX);
+    }
+
+    /**
+     * @return the columns of visual properties mapped from bypasses converted on import, by property ID
+     */
+    private static Map<String, String> getConvertedBypasses(final VisualStyle style,
+                                                            final List<VisualProperty<?>> visual_property_list) {
+        final Map<String, String> converted = new HashMap<>();
+        for (final VisualProperty<?> vp : visual_property_list) {
+            final VisualMappingFunction<?, ?> mapping = style.getVisualMappingFunction(vp);
+            if (mapping != null && isBypassColumn(mapping.getMappingColumnName())) {
+                converted.put(vp.getIdString(), mapping.getMappingColumnName());
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Restore bypasses converted to mappings on import, the columns hold the original CX values.
+     * Values locked on the view take precedence.
+     */
+    private static void addConvertedBypasses(final CyRow row,
+                                             final Map<String, String> converted,
+                                             final CyVisualPropertiesElement cvp) {
+        for (final Map.Entry<String, String> entry : converted.entrySet()) {
+            if (cvp.getProperties() != null && cvp.getProperties().containsKey(entry.getKey())) {
+                continue;
+            }
+            final String value = row.get(entry.getValue(), String.class);
+            if (!CxioUtil.isEmpty(value)) {
+                cvp.putProperty(entry.getKey(), value);
+            }
+        }
+    }
+
     private final static String toAttributeType(final Class<?> attr_class, final CyTable table, final String col_name)
             throws IOException {
         if (attr_class == String.class) {
@@ -0,0 +1,70 @@
+package org.cytoscape.io.internal.cx_writer;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.cytoscape.view.model.VisualProperty;
+
+/**
+ * Memo cache of serialized visual property values for a single export. Bypass values (colors,
+ * fonts, shapes, sizes) are usually drawn from a small set, so each distinct (property, value)
+ * pair is only passed to {@link VisualProperty#toSerializableString(Object)} once.
+ *
+ * Not thread safe, create one per export.
+ *
+ */
+public final class VisualPropertyValueCache {
+
+	/**
+	 * Stop caching new values for a property once it has this many distinct values,
+	 * so continuous values (locations, sizes) don't grow the cache for nothing
+	 */
+	private static final int MAX_VALUES_PER_PROPERTY = 4096;
+
+	private final Map<VisualProperty<?>, Map<Object, String>> cache = new IdentityHashMap<>();
+	private int hits = 0;
+	private int misses = 0;
+
+	/**
+	 * Serialize a value of the given visual property
+	 * @param vp
+	 * @param value
+	 * @return the serialized value, or null if value is null
+	 * @throws ClassCastException if the property's serializer can not handle the value
+	 */
+	public <T> String serialize(final VisualProperty<T> vp, final T value) {
+		if (value == null) {
+			return null;
+		}
+		Map<Object, String> values = cache.get(vp);
+		if (values == null) {
+			values = new HashMap<>();
+			cache.put(vp, values);
+		}
+		String val = values.get(value);
+		if (val != null) {
+			hits++;
+			return val;
+		}
+		misses++;
+		val = vp.toSerializableString(value);
+		if (val != null && values.size() < MAX_VALUES_PER_PROPERTY) {
+			values.put(value, val);
+		}
+		return val;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	@Override
+	public String toString() {
+		return "VisualPropertyValueCache [properties=" + cache.size() + ", hits=" + hits + ", misses=" + misses + "]";
+	}
+}
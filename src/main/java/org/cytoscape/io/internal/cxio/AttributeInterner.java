@@ -0,0 +1,198 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+
+/**
+ * Import scoped interning table for attribute names and repeated string values.
+ *
+ * Every attribute element read from CX carries its own copy of the column name and of
+ * its value, although columns typically hold few distinct values (categories, booleans,
+ * species names). Elements are rebuilt to share a single instance of each name and of
+ * each value of a column, up to {@link #MAX_VALUES_PER_COLUMN} distinct values per column.
+ * Columns declared as numeric by the tableColumns aspect are not interned by value. The
+ * declaration may come before or after the attributes: values of a column read before it is
+ * declared numeric are interned, and its pool is dropped once it is declared.
+ *
+ * Not thread safe, create one per import.
+ *
+ */
+public final class AttributeInterner {
+
+	/**
+	 * Columns with more distinct values than this are considered high cardinality, values
+	 * seen after the limit is reached are kept as they are
+	 */
+	public static final int MAX_VALUES_PER_COLUMN = 10000;
+
+	/**
+	 * Longer values are unlikely to repeat and are not interned
+	 */
+	private static final int MAX_VALUE_LENGTH = 256;
+
+	// Rough per String overhead (object header, array header, hash) for memory reporting
+	private static final int STRING_OVERHEAD = 40;
+
+	private final Map<String, String> names = new HashMap<>();
+	private final Map<String, Map<String, String>> values = new HashMap<>();
+	// Kept apart from the column pools, an edge column may have any name
+	private final Map<String, String> interactions = new HashMap<>();
+	private final Set<String> numericColumns = new HashSet<>();
+
+	private long elements = 0;
+	private long shared = 0;
+	private long savedBytes = 0;
+
+	/**
+	 * Register a column declaration, before or after attributes of that column are read
+	 * @param column
+	 */
+	public void declare(final CyTableColumnElement column) {
+		final String name = internName(column.getName());
+		final ATTRIBUTE_DATA_TYPE type = column.getDataType();
+		if (type == null) {
+			return;
+		}
+		switch (type) {
+		case DOUBLE:
+		case INTEGER:
+		case LONG:
+			numericColumns.add(name);
+			values.remove(name);
+			break;
+		default:
+			break;
+		}
+	}
+
+	public NodeAttributesElement intern(final NodeAttributesElement e) {
+		if (!canRebuild(e)) {
+			return e;
+		}
+		final Long id = e.getPropertyOf().get(0);
+		final String name = internName(e.getName());
+		if (e.isSingleValue()) {
+			return new NodeAttributesElement(e.getSubnetwork(), id, name, internValue(name, e.getDataType(), e.getValue()), e.getDataType());
+		}
+		return new NodeAttributesElement(e.getSubnetwork(), id, name, internValues(name, e.getDataType(), e.getValues()), e.getDataType());
+	}
+
+	public EdgeAttributesElement intern(final EdgeAttributesElement e) {
+		if (!canRebuild(e)) {
+			return e;
+		}
+		final Long id = e.getPropertyOf().get(0);
+		final String name = internName(e.getName());
+		if (e.isSingleValue()) {
+			return new EdgeAttributesElement(e.getSubnetwork(), id, name, internValue(name, e.getDataType(), e.getValue()), e.getDataType());
+		}
+		return new EdgeAttributesElement(e.getSubnetwork(), id, name, internValues(name, e.getDataType(), e.getValues()), e.getDataType());
+	}
+
+	/**
+	 * Interactions are usually drawn from a handful of values ("pp", "interacts with")
+	 * @param e
+	 * @return
+	 */
+	public EdgesElement intern(final EdgesElement e) {
+		final String interaction = e.getInteraction();
+		if (interaction == null) {
+			return e;
+		}
+		final String value = intern(interactions, interaction);
+		if (value == interaction) {
+			return e;
+		}
+		return new EdgesElement(e.getId(), e.getSource(), e.getTarget(), value);
+	}
+
+	private boolean canRebuild(final AbstractAttributesAspectElement e) {
+		elements++;
+		// Elements shared by several nodes/edges keep their list of IDs
+		return e.getPropertyOf() != null && e.getPropertyOf().size() == 1 && e.getName() != null;
+	}
+
+	private String internName(final String name) {
+		final String existing = names.putIfAbsent(name, name);
+		if (existing != null) {
+			if (existing != name) {
+				saved(name);
+			}
+			return existing;
+		}
+		return name;
+	}
+
+	private List<String> internValues(final String name, final ATTRIBUTE_DATA_TYPE type, final List<String> list) {
+		if (list == null) {
+			return null;
+		}
+		final List<String> interned = new ArrayList<>(list.size());
+		for (final String value : list) {
+			interned.add(internValue(name, type, value));
+		}
+		return interned;
+	}
+
+	private String internValue(final String name, final ATTRIBUTE_DATA_TYPE type, final String value) {
+		if (value == null || numericColumns.contains(name)) {
+			return value;
+		}
+		Map<String, String> column = values.get(name);
+		if (column == null) {
+			column = new HashMap<>();
+			values.put(name, column);
+		}
+		return intern(column, value);
+	}
+
+	private String intern(final Map<String, String> column, final String value) {
+		if (value.length() > MAX_VALUE_LENGTH) {
+			return value;
+		}
+		final String existing = column.get(value);
+		if (existing != null) {
+			if (existing != value) {
+				saved(value);
+			}
+			return existing;
+		}
+		if (column.size() < MAX_VALUES_PER_COLUMN) {
+			column.put(value, value);
+		}
+		return value;
+	}
+
+	private void saved(final String str) {
+		shared++;
+		savedBytes += STRING_OVERHEAD + 2L * str.length();
+	}
+
+	public long getSharedCount() {
+		return shared;
+	}
+
+	/**
+	 * @return estimate of the heap saved by sharing strings, in bytes
+	 */
+	public long getSavedBytes() {
+		return savedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AttributeInterner [attributes=%d, columns=%d, shared strings=%d, saved ~%d KB]",
+				elements, names.size(), shared, savedBytes / 1024);
+	}
+}
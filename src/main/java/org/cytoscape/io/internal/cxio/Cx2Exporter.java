@@ -0,0 +1,304 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * This class is for serializing a Cytoscape network as CX2 with Jackson's streaming generator.
+ *
+ * Column types are written once in attributeDeclarations, and values are written inline on the
+ * network, nodes and edges, column by column from the rows resolved once per element. Node
+ * coordinates are taken from the given view, if any.
+ *
+ * CX2 describes a single network, so collections are not supported. Styles are not written.
+ *
+ */
+public final class Cx2Exporter {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX2 Exporter");
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	/**
+	 * Cytoscape bookkeeping columns that have no meaning in CX2
+	 */
+	private static final Set<String> IGNORE_COLUMNS = new HashSet<>();
+
+	static {
+		IGNORE_COLUMNS.add(CyNetwork.SUID);
+		IGNORE_COLUMNS.add(CyNetwork.SELECTED);
+		IGNORE_COLUMNS.add(CxUtil.SHARED_NAME);
+		IGNORE_COLUMNS.add(CxUtil.SHARED_INTERACTION);
+		IGNORE_COLUMNS.add(CxUtil.CX_ID_MAPPING);
+		IGNORE_COLUMNS.add(CxUtil.CX_METADATA);
+	}
+
+	private final CyNetwork network;
+	private final CyNetworkView view;
+	private final boolean useCxId;
+	private List<String> nodeColumns, edgeColumns, networkColumns;
+	private Settings settings = Settings.INSTANCE.copy();
+
+	/**
+	 * @param network the network to export
+	 * @param view view to take node coordinates from, may be null
+	 * @param useCxId write CX IDs from a previous import instead of SUIDs
+	 */
+	public Cx2Exporter(final CyNetwork network, final CyNetworkView view, final boolean useCxId) {
+		this.network = network;
+		this.view = view;
+		this.useCxId = useCxId;
+	}
+
+	public void writeNetwork(final OutputStream out) throws IOException {
+		final long t0 = System.currentTimeMillis();
+
+		final CyTable networkTable = network.getDefaultNetworkTable();
+		final CyTable nodeTable = network.getDefaultNodeTable();
+		final CyTable edgeTable = network.getDefaultEdgeTable();
+
+		final List<CyColumn> netCols = getExportedColumns(networkTable, networkColumns);
+		final List<CyColumn> nodeCols = getExportedColumns(nodeTable, nodeColumns);
+		final List<CyColumn> edgeCols = getExportedColumns(edgeTable, edgeColumns);
+
+		final List<CyNode> nodes = network.getNodeList();
+		final List<CyEdge> edges = network.getEdgeList();
+
+		try (JsonGenerator g = JSON_FACTORY.createGenerator(out)) {
+			g.writeStartArray();
+
+			g.writeStartObject();
+			g.writeStringField(Cx2Util.CX_VERSION, Cx2Util.CX2_VERSION);
+			g.writeBooleanField(Cx2Util.HAS_FRAGMENTS, false);
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.METADATA);
+			writeMetaData(g, Cx2Util.ATTRIBUTE_DECLARATIONS, 1);
+			writeMetaData(g, Cx2Util.NETWORK_ATTRIBUTES, 1);
+			writeMetaData(g, Cx2Util.NODES, nodes.size());
+			writeMetaData(g, Cx2Util.EDGES, edges.size());
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.ATTRIBUTE_DECLARATIONS);
+			g.writeStartObject();
+			writeDeclarations(g, Cx2Util.NETWORK_ATTRIBUTES, netCols);
+			writeDeclarations(g, Cx2Util.NODES, nodeCols);
+			writeDeclarations(g, Cx2Util.EDGES, edgeCols);
+			g.writeEndObject();
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.NETWORK_ATTRIBUTES);
+			g.writeStartObject();
+			final CyRow networkRow = networkTable.getRow(network.getSUID());
+			for (final CyColumn col : netCols) {
+				writeValue(g, col, networkRow);
+			}
+			g.writeEndObject();
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.NODES);
+			for (final CyNode node : nodes) {
+				g.writeStartObject();
+				g.writeNumberField(Cx2Util.ID, CxUtil.getElementId(node, network, useCxId));
+				writeLocation(g, node);
+				writeValues(g, nodeCols, nodeTable.getRow(node.getSUID()));
+				g.writeEndObject();
+			}
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.EDGES);
+			for (final CyEdge edge : edges) {
+				g.writeStartObject();
+				g.writeNumberField(Cx2Util.ID, CxUtil.getElementId(edge, network, useCxId));
+				g.writeNumberField(Cx2Util.SOURCE, CxUtil.getElementId(edge.getSource(), network, useCxId));
+				g.writeNumberField(Cx2Util.TARGET, CxUtil.getElementId(edge.getTarget(), network, useCxId));
+				writeValues(g, edgeCols, edgeTable.getRow(edge.getSUID()));
+				g.writeEndObject();
+			}
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeStartObject();
+			g.writeArrayFieldStart(Cx2Util.STATUS);
+			g.writeStartObject();
+			g.writeStringField("error", "");
+			g.writeBooleanField("success", true);
+			g.writeEndObject();
+			g.writeEndArray();
+			g.writeEndObject();
+
+			g.writeEndArray();
+		}
+		logger.info("Exported " + nodes.size() + " nodes and " + edges.size() + " edges as CX2");
+		if (settings.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "CX2 export", nodes.size() + edges.size());
+		}
+	}
+
+	private static void writeMetaData(final JsonGenerator g, final String name, final long count) throws IOException {
+		g.writeStartObject();
+		g.writeStringField(Cx2Util.NAME, name);
+		g.writeNumberField(Cx2Util.ELEMENT_COUNT, count);
+		g.writeEndObject();
+	}
+
+	private static void writeDeclarations(final JsonGenerator g, final String aspect, final List<CyColumn> columns)
+			throws IOException {
+		if (columns.isEmpty()) {
+			return;
+		}
+		g.writeObjectFieldStart(aspect);
+		for (final CyColumn col : columns) {
+			g.writeObjectFieldStart(col.getName());
+			g.writeStringField(Cx2Util.DATA_TYPE, Cx2Util.toLabel(getDataType(col)));
+			g.writeEndObject();
+		}
+		g.writeEndObject();
+	}
+
+	private void writeLocation(final JsonGenerator g, final CyNode node) throws IOException {
+		if (view == null) {
+			return;
+		}
+		final View<CyNode> nv = view.getNodeView(node);
+		if (nv == null) {
+			return;
+		}
+		g.writeNumberField(Cx2Util.X, nv.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION));
+		g.writeNumberField(Cx2Util.Y, nv.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION));
+		final Double z = nv.getVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION);
+		if (z != null && Math.abs(z) > 0.000000001) {
+			g.writeNumberField(Cx2Util.Z, z);
+		}
+	}
+
+	private void writeValues(final JsonGenerator g, final List<CyColumn> columns, final CyRow row)
+			throws IOException {
+		if (row == null) {
+			return;
+		}
+		g.writeObjectFieldStart(Cx2Util.VALUES);
+		for (final CyColumn col : columns) {
+			writeValue(g, col, row);
+		}
+		g.writeEndObject();
+	}
+
+	/**
+	 * Write a field for a column value. Nulls, empty strings and empty lists are not written
+	 */
+	private void writeValue(final JsonGenerator g, final CyColumn col, final CyRow row) throws IOException {
+		final Object value = col.getType() == List.class
+				? row.getList(col.getName(), col.getListElementType())
+				: row.get(col.getName(), col.getType());
+		if (value == null || settings.ignores(col.getName(), null, value)) {
+			return;
+		}
+		g.writeFieldName(col.getName());
+		if (value instanceof List) {
+			g.writeStartArray();
+			for (final Object v : (List<?>) value) {
+				writeScalar(g, v);
+			}
+			g.writeEndArray();
+		} else {
+			writeScalar(g, value);
+		}
+	}
+
+	private static void writeScalar(final JsonGenerator g, final Object value) throws IOException {
+		if (value == null) {
+			g.writeNull();
+		} else if (value instanceof Integer) {
+			g.writeNumber((Integer) value);
+		} else if (value instanceof Long) {
+			g.writeNumber((Long) value);
+		} else if (value instanceof Double) {
+			g.writeNumber((Double) value);
+		} else if (value instanceof Boolean) {
+			g.writeBoolean((Boolean) value);
+		} else {
+			g.writeString(String.valueOf(value));
+		}
+	}
+
+	private static ATTRIBUTE_DATA_TYPE getDataType(final CyColumn col) {
+		return col.getType() == List.class
+				? CxUtil.toListAttributeType(col.getListElementType())
+				: CxUtil.toAttributeType(col.getType());
+	}
+
+	private static List<CyColumn> getExportedColumns(final CyTable table, final List<String> column_filter) {
+		final Set<String> filter = column_filter == null ? null : new HashSet<String>(column_filter);
+		final List<CyColumn> columns = new ArrayList<CyColumn>();
+		for (final CyColumn col : table.getColumns()) {
+			final String name = col.getName();
+			if (IGNORE_COLUMNS.contains(name) || name.startsWith(CxUtil.OPAQUE_ASPECT_PREFIX)) {
+				continue;
+			}
+			if (filter != null && !filter.contains(name)) {
+				continue;
+			}
+			columns.add(col);
+		}
+		return columns;
+	}
+
+	/**
+	 * @param settings settings of this export, instead of a copy of the defaults taken at construction
+	 */
+	public void setSettings(final Settings settings) {
+		this.settings = settings;
+	}
+
+	public void setNodeColumnFilter(List<String> selectedValues) {
+		if (selectedValues != null && !selectedValues.isEmpty()) {
+			this.nodeColumns = selectedValues;
+		}
+	}
+
+	public void setEdgeColumnFilter(List<String> selectedValues) {
+		if (selectedValues != null && !selectedValues.isEmpty()) {
+			this.edgeColumns = selectedValues;
+		}
+	}
+
+	public void setNetworkColumnFilter(List<String> selectedValues) {
+		if (selectedValues != null && !selectedValues.isEmpty()) {
+			this.networkColumns = selectedValues;
+		}
+	}
+}
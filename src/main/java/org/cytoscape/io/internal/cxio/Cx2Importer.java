@@ -0,0 +1,487 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * This class is for de-serializing CX2 formatted networks with Jackson's streaming parser.
+ *
+ * The result is the same {@link NiceCXNetwork} model the CX importer produces, so CX2 networks are
+ * built by the NiceCy apply path. Attribute names and types are taken from the attributeDeclarations
+ * aspect, so they are resolved once per column instead of once per value. Node name and represents,
+ * and edge interaction, go to the node and edge elements as in CX.
+ *
+ * Only the network, node and edge data and the node coordinates are read. CX2 style aspects
+ * (visualProperties, nodeBypasses, edgeBypasses) use a different model and are skipped.
+ *
+ */
+public final class Cx2Importer {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX2 Importer");
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	private static final String NODE_TABLE = "node_table";
+	private static final String EDGE_TABLE = "edge_table";
+	private static final String NETWORK_TABLE = "network_table";
+
+	/**
+	 * Type, alias and default value of one attribute
+	 */
+	private static final class AttributeDeclaration {
+		final String name;
+		final ATTRIBUTE_DATA_TYPE type;
+		Object defaultValue;
+
+		AttributeDeclaration(final String name, final ATTRIBUTE_DATA_TYPE type) {
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Declarations of the attributes of one aspect, by name and by alias
+	 */
+	private static final class Declarations {
+		final Map<String, AttributeDeclaration> byKey = new HashMap<>();
+		final List<AttributeDeclaration> declared = new ArrayList<>();
+		final List<AttributeDeclaration> withDefaults = new ArrayList<>();
+
+		void add(final AttributeDeclaration decl, final String alias) {
+			byKey.put(decl.name, decl);
+			if (alias != null) {
+				byKey.put(alias, decl);
+			}
+			declared.add(decl);
+			if (decl.defaultValue != null) {
+				withDefaults.add(decl);
+			}
+		}
+
+		/**
+		 * Resolve the attribute for a key of an element, declaring undeclared attributes from
+		 * the type of their first value
+		 */
+		AttributeDeclaration get(final String key, final JsonToken token) {
+			AttributeDeclaration decl = byKey.get(key);
+			if (decl == null) {
+				decl = new AttributeDeclaration(key, inferType(token));
+				add(decl, null);
+			}
+			return decl;
+		}
+	}
+
+	/**
+	 * Attribute values of the current element, reused between elements
+	 */
+	private static final class ElementValues {
+		final List<AttributeDeclaration> attributes = new ArrayList<>();
+		final List<Object> values = new ArrayList<>();
+		final Set<AttributeDeclaration> seen = new HashSet<>();
+
+		void clear() {
+			attributes.clear();
+			values.clear();
+			seen.clear();
+		}
+
+		void add(final AttributeDeclaration decl, final Object value) {
+			seen.add(decl);
+			if (value != null) {
+				attributes.add(decl);
+				values.add(value);
+			}
+		}
+
+		void addDefaults(final Declarations declarations) {
+			for (final AttributeDeclaration decl : declarations.withDefaults) {
+				if (!seen.contains(decl)) {
+					attributes.add(decl);
+					values.add(decl.defaultValue);
+				}
+			}
+		}
+	}
+
+	public NiceCXNetwork getCXNetworkFromStream(final InputStream in) throws IOException {
+		final long t0 = System.currentTimeMillis();
+		final NiceCXNetwork niceCX = new NiceCXNetwork();
+		final Map<String, Declarations> declarations = new HashMap<>();
+		declarations.put(Cx2Util.NETWORK_ATTRIBUTES, new Declarations());
+		declarations.put(Cx2Util.NODES, new Declarations());
+		declarations.put(Cx2Util.EDGES, new Declarations());
+
+		long nodeIdCounter = 0;
+		long edgeIdCounter = 0;
+		long nodeCount = 0;
+		long edgeCount = 0;
+		boolean versionFound = false;
+
+		try (JsonParser p = JSON_FACTORY.createParser(in)) {
+			if (p.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("CX2 document must be a JSON array");
+			}
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					final String name = p.getCurrentName();
+					p.nextToken();
+					switch (name) {
+					case Cx2Util.CX_VERSION:
+						if (!p.getText().startsWith("2")) {
+							throw new IOException("Unsupported CX version: " + p.getText());
+						}
+						versionFound = true;
+						break;
+					case Cx2Util.HAS_FRAGMENTS:
+						break;
+					case Cx2Util.ATTRIBUTE_DECLARATIONS:
+						readAttributeDeclarations(p, declarations);
+						break;
+					case Cx2Util.NETWORK_ATTRIBUTES:
+						readNetworkAttributes(p, niceCX, declarations.get(Cx2Util.NETWORK_ATTRIBUTES));
+						break;
+					case Cx2Util.NODES:
+						expect(p, JsonToken.START_ARRAY, name);
+						final ElementValues nodeValues = new ElementValues();
+						while (p.nextToken() == JsonToken.START_OBJECT) {
+							final long id = readNode(p, niceCX, declarations.get(Cx2Util.NODES), nodeValues);
+							nodeIdCounter = Math.max(nodeIdCounter, id);
+							nodeCount++;
+						}
+						break;
+					case Cx2Util.EDGES:
+						expect(p, JsonToken.START_ARRAY, name);
+						final ElementValues edgeValues = new ElementValues();
+						while (p.nextToken() == JsonToken.START_OBJECT) {
+							final long id = readEdge(p, niceCX, declarations.get(Cx2Util.EDGES), edgeValues);
+							edgeIdCounter = Math.max(edgeIdCounter, id);
+							edgeCount++;
+						}
+						break;
+					case Cx2Util.METADATA:
+					case Cx2Util.STATUS:
+						p.skipChildren();
+						break;
+					default:
+						logger.info("Skipping CX2 aspect " + name);
+						p.skipChildren();
+					}
+				}
+			}
+		}
+		if (!versionFound) {
+			throw new IOException("Missing " + Cx2Util.CX_VERSION + ", not a CX2 document");
+		}
+
+		addTableColumns(niceCX, declarations.get(Cx2Util.NETWORK_ATTRIBUTES), NETWORK_TABLE);
+		addTableColumns(niceCX, declarations.get(Cx2Util.NODES), NODE_TABLE);
+		addTableColumns(niceCX, declarations.get(Cx2Util.EDGES), EDGE_TABLE);
+
+		final MetaDataCollection metadata = new MetaDataCollection();
+		addMetaData(metadata, NodesElement.ASPECT_NAME, nodeCount, nodeIdCounter);
+		addMetaData(metadata, EdgesElement.ASPECT_NAME, edgeCount, edgeIdCounter);
+		niceCX.setMetadata(metadata);
+
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "niceCX from CX2", nodeCount + edgeCount);
+		}
+		return niceCX;
+	}
+
+	private static void addMetaData(final MetaDataCollection metadata, final String name, final long count,
+			final long idCounter) {
+		final MetaDataElement e = new MetaDataElement(name, "1.0");
+		e.setElementCount(count);
+		e.setIdCounter(idCounter);
+		metadata.add(e);
+	}
+
+	/**
+	 * Declare the column types, so columns are typed even if they have no values
+	 */
+	private static void addTableColumns(final NiceCXNetwork niceCX, final Declarations declarations,
+			final String applies_to) {
+		for (final AttributeDeclaration decl : declarations.declared) {
+			if (NODE_TABLE.equals(applies_to) && CxUtil.REPRESENTS.equals(decl.name)) {
+				continue;
+			}
+			niceCX.addOpaqueAspect(new CyTableColumnElement(null, applies_to, decl.name, decl.type));
+		}
+	}
+
+	private static void readAttributeDeclarations(final JsonParser p, final Map<String, Declarations> declarations)
+			throws IOException {
+		expect(p, JsonToken.START_ARRAY, Cx2Util.ATTRIBUTE_DECLARATIONS);
+		while (p.nextToken() == JsonToken.START_OBJECT) {
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				final String aspect = p.getCurrentName();
+				p.nextToken();
+				final Declarations decls = declarations.get(aspect);
+				if (decls == null) {
+					p.skipChildren();
+					continue;
+				}
+				expect(p, JsonToken.START_OBJECT, aspect);
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					final String name = p.getCurrentName();
+					expect(p, p.nextToken(), JsonToken.START_OBJECT, name);
+					String type = null;
+					String alias = null;
+					Object defaultValue = null;
+					while (p.nextToken() == JsonToken.FIELD_NAME) {
+						final String field = p.getCurrentName();
+						p.nextToken();
+						switch (field) {
+						case Cx2Util.DATA_TYPE:
+							type = p.getText();
+							break;
+						case Cx2Util.ALIAS:
+							alias = p.getText();
+							break;
+						case Cx2Util.DEFAULT_VALUE:
+							defaultValue = readValue(p);
+							break;
+						default:
+							p.skipChildren();
+						}
+					}
+					final AttributeDeclaration decl;
+					try {
+						decl = new AttributeDeclaration(name, Cx2Util.fromLabel(type));
+					} catch (IllegalArgumentException e) {
+						throw new IOException("Unknown data type '" + type + "' of attribute " + name);
+					}
+					decl.defaultValue = defaultValue;
+					decls.add(decl, alias);
+				}
+			}
+		}
+	}
+
+	private static void readNetworkAttributes(final JsonParser p, final NiceCXNetwork niceCX,
+			final Declarations declarations) throws IOException {
+		expect(p, JsonToken.START_ARRAY, Cx2Util.NETWORK_ATTRIBUTES);
+		final ElementValues values = new ElementValues();
+		while (p.nextToken() == JsonToken.START_OBJECT) {
+			values.clear();
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				final String key = p.getCurrentName();
+				final JsonToken token = p.nextToken();
+				values.add(declarations.get(key, token), readValue(p));
+			}
+			values.addDefaults(declarations);
+			for (int i = 0; i < values.attributes.size(); i++) {
+				final AttributeDeclaration decl = values.attributes.get(i);
+				final Object value = values.values.get(i);
+				niceCX.addNetworkAttribute(value instanceof List
+						? new NetworkAttributesElement(null, decl.name, toStringList(value), decl.type)
+						: new NetworkAttributesElement(null, decl.name, (String) value, decl.type));
+			}
+		}
+	}
+
+	private static long readNode(final JsonParser p, final NiceCXNetwork niceCX, final Declarations declarations,
+			final ElementValues values) throws IOException {
+		values.clear();
+		Long id = null;
+		Double x = null, y = null, z = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			switch (field) {
+			case Cx2Util.ID:
+				id = p.getLongValue();
+				break;
+			case Cx2Util.X:
+				x = p.getDoubleValue();
+				break;
+			case Cx2Util.Y:
+				y = p.getDoubleValue();
+				break;
+			case Cx2Util.Z:
+				z = p.getDoubleValue();
+				break;
+			case Cx2Util.VALUES:
+				readValues(p, declarations, values);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (id == null) {
+			throw new IOException("CX2 node without id");
+		}
+		values.addDefaults(declarations);
+
+		String name = null;
+		String represents = null;
+		for (int i = 0; i < values.attributes.size(); i++) {
+			final AttributeDeclaration decl = values.attributes.get(i);
+			final Object value = values.values.get(i);
+			if (CxUtil.NAME.equals(decl.name) && value instanceof String) {
+				name = (String) value;
+			} else if (CxUtil.REPRESENTS.equals(decl.name) && value instanceof String) {
+				represents = (String) value;
+			} else {
+				niceCX.addNodeAttribute(value instanceof List
+						? new NodeAttributesElement(null, id, decl.name, toStringList(value), decl.type)
+						: new NodeAttributesElement(null, id, decl.name, (String) value, decl.type));
+			}
+		}
+		niceCX.addNode(new NodesElement(id, name, represents));
+
+		if (x != null && y != null) {
+			final CartesianLayoutElement cl = z != null
+					? new CartesianLayoutElement(id, null, x.doubleValue(), y.doubleValue(), z.doubleValue())
+					: new CartesianLayoutElement(id, null, x.toString(), y.toString());
+			niceCX.addNodeAssociatedAspectElement(id, cl);
+		}
+		return id;
+	}
+
+	private static long readEdge(final JsonParser p, final NiceCXNetwork niceCX, final Declarations declarations,
+			final ElementValues values) throws IOException {
+		values.clear();
+		Long id = null, source = null, target = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			switch (field) {
+			case Cx2Util.ID:
+				id = p.getLongValue();
+				break;
+			case Cx2Util.SOURCE:
+				source = p.getLongValue();
+				break;
+			case Cx2Util.TARGET:
+				target = p.getLongValue();
+				break;
+			case Cx2Util.VALUES:
+				readValues(p, declarations, values);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (id == null || source == null || target == null) {
+			throw new IOException("CX2 edge without id, source or target");
+		}
+		values.addDefaults(declarations);
+
+		String interaction = null;
+		for (int i = 0; i < values.attributes.size(); i++) {
+			final AttributeDeclaration decl = values.attributes.get(i);
+			final Object value = values.values.get(i);
+			if (CxUtil.INTERACTION.equals(decl.name) && value instanceof String) {
+				interaction = (String) value;
+			} else {
+				niceCX.addEdgeAttribute(value instanceof List
+						? new EdgeAttributesElement(null, id, decl.name, toStringList(value), decl.type)
+						: new EdgeAttributesElement(null, id, decl.name, (String) value, decl.type));
+			}
+		}
+		niceCX.addEdge(new EdgesElement(id, source, target, interaction));
+		return id;
+	}
+
+	/**
+	 * Read the "v" object of an element
+	 */
+	private static void readValues(final JsonParser p, final Declarations declarations, final ElementValues values)
+			throws IOException {
+		expect(p, p.getCurrentToken(), JsonToken.START_OBJECT, Cx2Util.VALUES);
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String key = p.getCurrentName();
+			final JsonToken token = p.nextToken();
+			values.add(declarations.get(key, token), readValue(p));
+		}
+	}
+
+	/**
+	 * Read the value at the current token as text, as the CX attribute elements hold it
+	 * @return a String, a List of Strings, or null
+	 */
+	private static Object readValue(final JsonParser p) throws IOException {
+		switch (p.getCurrentToken()) {
+		case VALUE_NULL:
+			return null;
+		case START_ARRAY:
+			final List<String> list = new ArrayList<>();
+			while (p.nextToken() != JsonToken.END_ARRAY) {
+				if (p.getCurrentToken() == JsonToken.START_OBJECT) {
+					p.skipChildren();
+				} else if (p.getCurrentToken() != JsonToken.VALUE_NULL) {
+					list.add(p.getText());
+				}
+			}
+			return list.isEmpty() ? null : list;
+		case START_OBJECT:
+			p.skipChildren();
+			return null;
+		default:
+			return p.getText();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> toStringList(final Object value) {
+		return (List<String>) value;
+	}
+
+	private static ATTRIBUTE_DATA_TYPE inferType(final JsonToken token) {
+		switch (token) {
+		case VALUE_NUMBER_INT:
+			return ATTRIBUTE_DATA_TYPE.LONG;
+		case VALUE_NUMBER_FLOAT:
+			return ATTRIBUTE_DATA_TYPE.DOUBLE;
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+			return ATTRIBUTE_DATA_TYPE.BOOLEAN;
+		case START_ARRAY:
+			return ATTRIBUTE_DATA_TYPE.LIST_OF_STRING;
+		default:
+			return ATTRIBUTE_DATA_TYPE.STRING;
+		}
+	}
+
+	private static void expect(final JsonParser p, final JsonToken expected, final String name) throws IOException {
+		expect(p, p.getCurrentToken(), expected, name);
+	}
+
+	private static void expect(final JsonParser p, final JsonToken actual, final JsonToken expected,
+			final String name) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Malformed CX2 at " + name + ": expected " + expected + " but found " + actual
+					+ " at line " + p.getCurrentLocation().getLineNr());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.Locale;
+
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+
+/**
+ * Names and helpers shared by the CX2 importer and exporter.
+ *
+ * CX2 declares the type, alias and default value of every attribute once in the
+ * attributeDeclarations aspect, and stores attribute values inline on nodes and edges:
+ * <pre>
+ * [{"CXVersion":"2.0","hasFragments":false},
+ *  {"metaData":[...]},
+ *  {"attributeDeclarations":[{"nodes":{"name":{"d":"string"},"score":{"d":"double","a":"s","v":0.0}}}]},
+ *  {"nodes":[{"id":1,"x":0.0,"y":1.0,"v":{"name":"A","s":2.5}}]},
+ *  {"edges":[{"id":1,"s":1,"t":2,"v":{"interaction":"pp"}}]},
+ *  {"status":[{"error":"","success":true}]}]
+ * </pre>
+ */
+public final class Cx2Util {
+
+	public static final String CX_VERSION = "CXVersion";
+	public static final String CX2_VERSION = "2.0";
+	public static final String HAS_FRAGMENTS = "hasFragments";
+
+	public static final String METADATA = "metaData";
+	public static final String ATTRIBUTE_DECLARATIONS = "attributeDeclarations";
+	public static final String NETWORK_ATTRIBUTES = "networkAttributes";
+	public static final String NODES = "nodes";
+	public static final String EDGES = "edges";
+	public static final String STATUS = "status";
+
+	// Element fields
+	public static final String ID = "id";
+	public static final String VALUES = "v";
+	public static final String X = "x";
+	public static final String Y = "y";
+	public static final String Z = "z";
+	public static final String SOURCE = "s";
+	public static final String TARGET = "t";
+
+	// Declaration fields
+	public static final String DATA_TYPE = "d";
+	public static final String ALIAS = "a";
+	public static final String DEFAULT_VALUE = "v";
+
+	// Metadata fields
+	public static final String NAME = "name";
+	public static final String ELEMENT_COUNT = "elementCount";
+
+	private Cx2Util() {
+	}
+
+	/**
+	 * @param type
+	 * @return the CX2 label of a data type, e.g. list_of_string
+	 */
+	public static String toLabel(final ATTRIBUTE_DATA_TYPE type) {
+		return type.name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param label a CX2 data type label, string if null
+	 * @return
+	 * @throws IllegalArgumentException for unknown labels
+	 */
+	public static ATTRIBUTE_DATA_TYPE fromLabel(final String label) {
+		if (label == null) {
+			return ATTRIBUTE_DATA_TYPE.STRING;
+		}
+		return ATTRIBUTE_DATA_TYPE.valueOf(label.toUpperCase(Locale.ROOT));
+	}
+}
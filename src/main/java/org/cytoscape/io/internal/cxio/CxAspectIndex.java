@@ -0,0 +1,393 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Byte offsets and element counts of the aspect fragments in a CX file.
+ *
+ * The index is written by {@link CxExporter} as an aspect of its own after the data fragments, see
+ * {@link CxExporter#setWriteAspectIndex(boolean)}, or built by scanning an existing file, and can
+ * be saved as a small JSON document. With it, a reader can seek straight to the fragments of the
+ * aspects it needs and read them with {@link #openFragments(File, List)}, instead of parsing
+ * everything before them.
+ *
+ */
+public final class CxAspectIndex {
+
+	/**
+	 * Aspect holding the index in an exported file
+	 */
+	public static final String ASPECT_NAME = "cxAspectIndex";
+
+	private static final String FORMAT = ASPECT_NAME;
+	private static final int VERSION = 1;
+
+	// The index fragment as written by a JSON generator without pretty printing
+	private static final byte[] EMBEDDED_START = ("{\"" + ASPECT_NAME + "\":[").getBytes(StandardCharsets.US_ASCII);
+	// Only the post-metadata and status follow the index, look for it in this much of the end
+	private static final long MAX_TAIL = 16L << 20;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		JSON_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	public static final class Fragment {
+		private final String name;
+		private final long offset;
+		private final long length;
+		private final long elementCount;
+
+		public Fragment(final String name, final long offset, final long length, final long elementCount) {
+			this.name = name;
+			this.offset = offset;
+			this.length = length;
+			this.elementCount = elementCount;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public long getElementCount() {
+			return elementCount;
+		}
+
+		@Override
+		public String toString() {
+			return name + "@" + offset + "+" + length + " (" + elementCount + ")";
+		}
+	}
+
+	private final List<Fragment> fragments = new ArrayList<>();
+
+	public void add(final Fragment fragment) {
+		fragments.add(fragment);
+	}
+
+	/**
+	 * @return all fragments, in file order
+	 */
+	public List<Fragment> getFragments() {
+		return Collections.unmodifiableList(fragments);
+	}
+
+	/**
+	 * @param aspect
+	 * @return the fragments of an aspect, in file order
+	 */
+	public List<Fragment> getFragments(final String aspect) {
+		final List<Fragment> result = new ArrayList<>();
+		for (final Fragment f : fragments) {
+			if (aspect.equals(f.getName())) {
+				result.add(f);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param aspect
+	 * @return total number of elements of an aspect
+	 */
+	public long getElementCount(final String aspect) {
+		long count = 0;
+		for (final Fragment f : getFragments(aspect)) {
+			count += f.getElementCount();
+		}
+		return count;
+	}
+
+	private CxStructureScanner.Listener listener() {
+		return (name, offset, length, elementCount) -> add(new Fragment(name, offset, length, elementCount));
+	}
+
+	/**
+	 * Build the index of a CX JSON stream. The stream is read to the end but not closed
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static CxAspectIndex scan(final InputStream in) throws IOException {
+		final CxAspectIndex index = new CxAspectIndex();
+		final CxStructureScanner scanner = new CxStructureScanner(index.listener());
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			scanner.update(buffer, 0, n);
+		}
+		if (!scanner.isComplete()) {
+			throw new IOException("Truncated CX: index incomplete after " + scanner.getPosition() + " bytes");
+		}
+		return index;
+	}
+
+	public void write(final OutputStream out) throws IOException {
+		try (JsonGenerator g = JSON_FACTORY.createGenerator(out)) {
+			g.writeStartObject();
+			g.writeStringField("format", FORMAT);
+			g.writeNumberField("version", VERSION);
+			g.writeArrayFieldStart("fragments");
+			for (final Fragment f : fragments) {
+				g.writeStartObject();
+				g.writeStringField("name", f.getName());
+				g.writeNumberField("offset", f.getOffset());
+				g.writeNumberField("length", f.getLength());
+				g.writeNumberField("elementCount", f.getElementCount());
+				g.writeEndObject();
+			}
+			g.writeEndArray();
+			g.writeEndObject();
+		}
+	}
+
+	public static CxAspectIndex read(final InputStream in) throws IOException {
+		final CxAspectIndex index = new CxAspectIndex();
+		try (JsonParser p = JSON_FACTORY.createParser(in)) {
+			if (p.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Not a CX aspect index");
+			}
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = p.getCurrentName();
+				p.nextToken();
+				switch (field) {
+				case "format":
+					if (!FORMAT.equals(p.getText())) {
+						throw new IOException("Not a CX aspect index: " + p.getText());
+					}
+					break;
+				case "version":
+					if (p.getIntValue() > VERSION) {
+						throw new IOException("Unsupported CX aspect index version " + p.getIntValue());
+					}
+					break;
+				case "fragments":
+					while (p.nextToken() == JsonToken.START_OBJECT) {
+						index.add(readFragment(p, -1));
+					}
+					break;
+				default:
+					p.skipChildren();
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Read the index an exporter embedded in a CX JSON file
+	 * @param file
+	 * @return the index, or null if the file has none
+	 * @throws IOException
+	 */
+	public static CxAspectIndex readEmbedded(final File file) throws IOException {
+		final long start = findEmbedded(file);
+		if (start < 0) {
+			return null;
+		}
+		final CxAspectIndex index = new CxAspectIndex();
+		try (InputStream in = openRange(file, start, file.length() - start);
+				JsonParser p = JSON_FACTORY.createParser(in)) {
+			p.nextToken();
+			p.nextToken();
+			if (p.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Invalid CX aspect index in " + file);
+			}
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				final Fragment f = readFragment(p, start);
+				if (f.getOffset() < 0 || f.getOffset() + f.getLength() > start) {
+					throw new IOException("Invalid fragment in CX aspect index: " + f);
+				}
+				index.add(f);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return the offset of the last index fragment in the end of the file, or -1
+	 */
+	private static long findEmbedded(final File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final long length = raf.length();
+			long tail = BUFFER_SIZE;
+			while (true) {
+				final int n = (int) Math.min(length, tail);
+				final byte[] bytes = new byte[n];
+				raf.seek(length - n);
+				raf.readFully(bytes);
+				for (int i = n - EMBEDDED_START.length; i >= 0; i--) {
+					if (matches(bytes, i, EMBEDDED_START)) {
+						return length - n + i;
+					}
+				}
+				if (n == length || tail >= MAX_TAIL) {
+					return -1;
+				}
+				tail *= 2;
+			}
+		}
+	}
+
+	private static boolean matches(final byte[] bytes, final int offset, final byte[] pattern) {
+		for (int i = 0; i < pattern.length; i++) {
+			if (bytes[offset + i] != pattern[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param base offset of the embedded index fragment, which its distances count back from, or -1
+	 */
+	private static Fragment readFragment(final JsonParser p, final long base) throws IOException {
+		String name = null;
+		long offset = -1, length = -1, count = 0;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			switch (field) {
+			case "name":
+				name = p.getText();
+				break;
+			case "offset":
+				offset = p.getLongValue();
+				break;
+			case "distance":
+				if (base >= 0) {
+					offset = base - p.getLongValue();
+				}
+				break;
+			case "length":
+				length = p.getLongValue();
+				break;
+			case "elementCount":
+				count = p.getLongValue();
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (name == null || offset < 0 || length < 0) {
+			throw new IOException("Invalid fragment in CX aspect index");
+		}
+		return new Fragment(name, offset, length, count);
+	}
+
+	/**
+	 * Open the given fragments of a CX file as a CX stream of their own, i.e.
+	 * <code>[fragment,fragment,...]</code>, reading only their bytes from the file
+	 * @param file
+	 * @param fragments
+	 * @return
+	 * @throws IOException
+	 */
+	public static InputStream openFragments(final File file, final List<Fragment> fragments) throws IOException {
+		final Vector<InputStream> parts = new Vector<>();
+		parts.add(ascii("["));
+		for (int i = 0; i < fragments.size(); i++) {
+			if (i > 0) {
+				parts.add(ascii(","));
+			}
+			final Fragment f = fragments.get(i);
+			parts.add(openRange(file, f.getOffset(), f.getLength()));
+		}
+		parts.add(ascii("]"));
+		return new SequenceInputStream(parts.elements());
+	}
+
+	/**
+	 * @return a stream over a byte range of a file. The file is opened on first read
+	 */
+	static InputStream openRange(final File file, final long offset, final long length) {
+		return new RangeInputStream(file, offset, length);
+	}
+
+	static InputStream ascii(final String s) {
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Reads a byte range of a file. The file is opened on first read
+	 */
+	private static final class RangeInputStream extends InputStream {
+		private final File file;
+		private final long offset;
+		private long remaining;
+		private RandomAccessFile raf;
+
+		RangeInputStream(final File file, final long offset, final long length) {
+			this.file = file;
+			this.offset = offset;
+			this.remaining = length;
+		}
+
+		private RandomAccessFile open() throws IOException {
+			if (raf == null) {
+				raf = new RandomAccessFile(file, "r");
+				raf.seek(offset);
+			}
+			return raf;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			final int b = open().read();
+			if (b >= 0) {
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			final int n = open().read(b, off, (int) Math.min(len, remaining));
+			if (n > 0) {
+				remaining -= n;
+			}
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (raf != null) {
+				raf.close();
+			}
+		}
+	}
+}
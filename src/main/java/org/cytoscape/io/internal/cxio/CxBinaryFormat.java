@@ -0,0 +1,250 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Binary encoding of CX using Jackson's Smile backend. A binary CX file holds exactly the same
+ * aspect model as a CX JSON file. It is read by {@link CxBinaryReader} and written by
+ * {@link CxStreamWriter} straight from and to Smile, on the importing or exporting thread.
+ * Decoding to CX JSON is only left for readers that need the JSON text, e.g. the spool of a
+ * partial import.
+ *
+ * Smile back references are enabled for both property names and short string values, which
+ * removes most of the repeated keys ("po", "n", "v", "d") and attribute values of a CX file.
+ *
+ */
+public final class CxBinaryFormat {
+
+	public static final String EXTENSION = "cxb";
+	public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+	/**
+	 * Every Smile document starts with ':)\n'
+	 */
+	private static final byte[] SMILE_HEADER = { ':', ')', '\n' };
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// Tokens decoded between flushes of the JSON generator
+	private static final int TOKENS_PER_FILL = 256;
+
+	static final JsonFactory JSON_FACTORY = new JsonFactory();
+	static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		SMILE_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		SMILE_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		SMILE_FACTORY.enable(SmileGenerator.Feature.CHECK_SHARED_NAMES);
+		SMILE_FACTORY.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+	}
+
+	private CxBinaryFormat() {
+	}
+
+	/**
+	 * @param header first bytes of a file
+	 * @param length number of valid bytes in header
+	 * @return true if the bytes start a Smile document
+	 */
+	public static boolean isSmileHeader(final byte[] header, final int length) {
+		if (length < SMILE_HEADER.length) {
+			return false;
+		}
+		for (int i = 0; i < SMILE_HEADER.length; i++) {
+			if (header[i] != SMILE_HEADER[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check the Smile header at the start of a stream. Only the header is read, and it is
+	 * pushed back with mark/reset if the stream supports it.
+	 * @param in
+	 * @return true if the stream starts a Smile document
+	 * @throws IOException
+	 */
+	public static boolean hasSmileHeader(final InputStream in) throws IOException {
+		final byte[] header = new byte[SMILE_HEADER.length];
+		final boolean markable = in.markSupported();
+		if (markable) {
+			in.mark(header.length);
+		}
+		int length = 0;
+		int read;
+		while (length < header.length && (read = in.read(header, length, header.length - length)) > 0) {
+			length += read;
+		}
+		if (markable) {
+			in.reset();
+		}
+		return isSmileHeader(header, length);
+	}
+
+	/**
+	 * @param in
+	 * @return in itself if it supports mark/reset, otherwise a buffered stream on it
+	 */
+	public static InputStream markable(final InputStream in) {
+		return in.markSupported() ? in : new BufferedInputStream(in);
+	}
+
+	/**
+	 * Create a parser for a stream of CX JSON or binary CX. The parser does not close the stream.
+	 * @param in
+	 * @return a Smile parser for binary CX, a JSON parser otherwise
+	 * @throws IOException
+	 */
+	public static JsonParser createParser(final InputStream in) throws IOException {
+		final InputStream markable = markable(in);
+		return hasSmileHeader(markable) ? SMILE_FACTORY.createParser(markable) : JSON_FACTORY.createParser(markable);
+	}
+
+	/**
+	 * Return a stream of CX JSON for the given stream, which may hold CX JSON or binary CX.
+	 * @param in
+	 * @return in itself (buffered) for CX JSON, a decoding stream for binary CX
+	 * @throws IOException
+	 */
+	public static InputStream toJsonStream(final InputStream in) throws IOException {
+		final InputStream markable = markable(in);
+		return hasSmileHeader(markable) ? decode(markable) : markable;
+	}
+
+	/**
+	 * Copy a document from one encoding to the other, token by token
+	 * @param from
+	 * @param in
+	 * @param to
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void transcode(final JsonFactory from, final InputStream in, final JsonFactory to,
+			final OutputStream out) throws IOException {
+		try (JsonParser p = from.createParser(in); JsonGenerator g = to.createGenerator(out)) {
+			while (p.nextToken() != null) {
+				g.copyCurrentEvent(p);
+			}
+		}
+	}
+
+	public static void smileToJson(final InputStream in, final OutputStream out) throws IOException {
+		transcode(SMILE_FACTORY, in, JSON_FACTORY, out);
+	}
+
+	public static void jsonToSmile(final InputStream in, final OutputStream out) throws IOException {
+		transcode(JSON_FACTORY, in, SMILE_FACTORY, out);
+	}
+
+	/**
+	 * Stream the JSON form of a binary CX stream. Tokens are decoded as the returned stream is read,
+	 * so nothing is left running if the reader stops early. The returned stream does not close the
+	 * source.
+	 * @param smile
+	 * @return
+	 * @throws IOException
+	 */
+	public static InputStream decode(final InputStream smile) throws IOException {
+		return new DecodingInputStream(SMILE_FACTORY.createParser(smile));
+	}
+
+	private static final class DecodingInputStream extends InputStream {
+		private final JsonParser parser;
+		private final Buffer json = new Buffer();
+		private final JsonGenerator generator;
+		private int position = 0;
+		private boolean done = false;
+
+		DecodingInputStream(final JsonParser parser) throws IOException {
+			this.parser = parser;
+			this.generator = JSON_FACTORY.createGenerator(json);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return json.bytes()[position++] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			final int n = Math.min(len, json.size() - position);
+			System.arraycopy(json.bytes(), position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return json.size() - position;
+		}
+
+		/**
+		 * Decode tokens until there are unread JSON bytes or the document ends
+		 * @return false at the end of the document
+		 */
+		private boolean fill() throws IOException {
+			while (position == json.size()) {
+				if (done) {
+					return false;
+				}
+				json.reset();
+				position = 0;
+				for (int i = 0; i < TOKENS_PER_FILL; i++) {
+					if (parser.nextToken() == null) {
+						generator.close();
+						parser.close();
+						done = true;
+						break;
+					}
+					generator.copyCurrentEvent(parser);
+				}
+				if (!done) {
+					generator.flush();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			done = true;
+			position = json.size();
+			parser.close();
+		}
+	}
+
+	/**
+	 * Gives access to the buffer, to copy decoded JSON out without a copy of the whole buffer
+	 */
+	static final class Buffer extends ByteArrayOutputStream {
+		Buffer() {
+			super(BUFFER_SIZE);
+		}
+
+		byte[] bytes() {
+			return buf;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.ndexbio.cxio.core.CxElementReader2;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.core.interfaces.AspectFragmentReader;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.misc.OpaqueElement;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reads binary CX element by element straight from a Smile parser, as {@link CxElementReader2}
+ * does for CX JSON. Every element is read into a tree and decoded by the same aspect readers, so
+ * the elements are the same as for the JSON form of the file.
+ *
+ * The metadata fragments are handed to cxio as small JSON documents, they hold a few elements at
+ * most. Smile stores numbers in binary, so numberVerification is skipped rather than checked, and
+ * so is the status fragment at the end of the document.
+ *
+ * Not thread safe, create one per import.
+ *
+ */
+final class CxBinaryReader {
+
+	private static final String NUMBER_VERIFICATION = "numberVerification";
+	private static final String STATUS = "status";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final JsonParser parser;
+	private final Set<AspectFragmentReader> readers;
+	private final Map<String, AspectFragmentReader> readersByAspect = new HashMap<>();
+
+	private MetaDataCollection preMetaData;
+	private MetaDataCollection postMetaData;
+
+	// The fragment being read, null between fragments
+	private String aspect;
+	private AspectElement next;
+	private boolean done = false;
+
+	/**
+	 * Start reading, up to the first element
+	 * @param in binary CX, not closed
+	 * @param readers
+	 * @throws IOException
+	 */
+	CxBinaryReader(final InputStream in, final Set<AspectFragmentReader> readers) throws IOException {
+		this.parser = CxBinaryFormat.SMILE_FACTORY.createParser(in);
+		this.readers = readers;
+		for (final AspectFragmentReader reader : readers) {
+			readersByAspect.put(reader.getAspectName(), reader);
+		}
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			throw new IOException("Not binary CX: expected an array of aspect fragments");
+		}
+		next = advance();
+	}
+
+	/**
+	 * @return the first metaData fragment, null if there is none before the first element
+	 */
+	MetaDataCollection getPreMetaData() {
+		return preMetaData;
+	}
+
+	/**
+	 * @return the metaData fragment after the elements, only known once all elements are read
+	 */
+	MetaDataCollection getPostMetaData() {
+		return postMetaData;
+	}
+
+	/**
+	 * @return the next element, or null at the end of the document
+	 * @throws IOException
+	 */
+	AspectElement read() throws IOException {
+		final AspectElement elmt = next;
+		if (elmt != null) {
+			next = advance();
+		}
+		return elmt;
+	}
+
+	private AspectElement advance() throws IOException {
+		while (!done) {
+			final JsonToken token = parser.nextToken();
+			if (aspect != null) {
+				if (token == JsonToken.START_OBJECT) {
+					return decode(aspect, MAPPER.readTree(parser));
+				}
+				if (token != JsonToken.END_ARRAY) {
+					throw new IOException("Malformed binary CX: expected an element of " + aspect + ", got " + token);
+				}
+				aspect = null;
+				continue;
+			}
+			if (token == JsonToken.START_OBJECT || token == JsonToken.END_OBJECT) {
+				continue;
+			}
+			if (token == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					parser.skipChildren();
+				} else if (MetaDataCollection.NAME.equals(name)) {
+					readMetaData(MAPPER.readTree(parser));
+				} else if (NUMBER_VERIFICATION.equals(name) || STATUS.equals(name)) {
+					parser.skipChildren();
+				} else {
+					aspect = name;
+				}
+				continue;
+			}
+			if (token == null) {
+				throw new IOException("Truncated binary CX");
+			}
+			if (token != JsonToken.END_ARRAY) {
+				throw new IOException("Malformed binary CX: unexpected " + token);
+			}
+			parser.close();
+			done = true;
+		}
+		return null;
+	}
+
+	private AspectElement decode(final String name, final ObjectNode o) throws IOException {
+		final AspectFragmentReader reader = readersByAspect.get(name);
+		return reader == null ? new OpaqueElement(name, o) : reader.readElement(o);
+	}
+
+	/**
+	 * The first metaData fragment is the pre-metadata, any later one the post-metadata
+	 */
+	private void readMetaData(final ArrayNode elements) throws IOException {
+		final ArrayNode doc = MAPPER.createArrayNode();
+		doc.addObject().set(MetaDataCollection.NAME, elements);
+		try (InputStream in = new ByteArrayInputStream(MAPPER.writeValueAsBytes(doc))) {
+			final MetaDataCollection metadata = new CxElementReader2(in, readers, false).getPreMetaData();
+			if (preMetaData == null) {
+				preMetaData = metadata;
+			} else {
+				postMetaData = metadata;
+			}
+		}
+	}
+}
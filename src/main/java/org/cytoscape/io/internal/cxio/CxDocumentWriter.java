@@ -0,0 +1,112 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ndexbio.cxio.core.CxWriter;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.misc.AspectElementCounts;
+import org.ndexbio.cxio.misc.OpaqueElement;
+
+/**
+ * The part of cxio's {@link CxWriter} used by {@link CxExporter}, so the same export can be
+ * written as CX JSON by cxio, or by a {@link CxStreamWriter} as binary CX or as indexed CX JSON.
+ *
+ */
+interface CxDocumentWriter {
+
+	void addPreMetaData(MetaDataCollection metadata);
+
+	void addPostMetaData(MetaDataCollection metadata);
+
+	/**
+	 * Open the document and write the pre-metadata
+	 */
+	void start() throws IOException;
+
+	/**
+	 * Write the post-metadata and status, and finish the document. Does not close the target.
+	 */
+	void end(boolean success, String message) throws IOException;
+
+	void startAspectFragment(String aspect) throws IOException;
+
+	void endAspectFragment() throws IOException;
+
+	/**
+	 * Write elements of one aspect, as a fragment of their own unless a fragment is open
+	 */
+	void writeAspectElements(List<AspectElement> elements) throws IOException;
+
+	void writeOpaqueAspectElement(OpaqueElement element) throws IOException;
+
+	/**
+	 * @return number of elements written, by aspect
+	 */
+	Map<String, Long> getAspectElementCounts();
+
+	/**
+	 * @param writer a CX JSON writer with its aspect fragment writers added
+	 * @return
+	 */
+	static CxDocumentWriter of(final CxWriter writer) {
+		return new CxDocumentWriter() {
+			@Override
+			public void addPreMetaData(final MetaDataCollection metadata) {
+				writer.addPreMetaData(metadata);
+			}
+
+			@Override
+			public void addPostMetaData(final MetaDataCollection metadata) {
+				writer.addPostMetaData(metadata);
+			}
+
+			@Override
+			public void start() throws IOException {
+				writer.start();
+			}
+
+			@Override
+			public void end(final boolean success, final String message) throws IOException {
+				writer.end(success, message);
+			}
+
+			@Override
+			public void startAspectFragment(final String aspect) throws IOException {
+				writer.startAspectFragment(aspect);
+			}
+
+			@Override
+			public void endAspectFragment() throws IOException {
+				writer.endAspectFragment();
+			}
+
+			@Override
+			public void writeAspectElements(final List<AspectElement> elements) throws IOException {
+				writer.writeAspectElements(elements);
+			}
+
+			@Override
+			public void writeOpaqueAspectElement(final OpaqueElement element) throws IOException {
+				writer.writeOpaqueAspectElement(element);
+			}
+
+			@Override
+			public Map<String, Long> getAspectElementCounts() {
+				final AspectElementCounts counts = writer.getAspectElementCounts();
+				if (counts == null) {
+					return Collections.emptyMap();
+				}
+				final Map<String, Long> result = new LinkedHashMap<>();
+				for (final String name : counts.getAllAspectNames()) {
+					result.put(name, (long) counts.getAspectElementCount(name));
+				}
+				return result;
+			}
+		};
+	}
+}
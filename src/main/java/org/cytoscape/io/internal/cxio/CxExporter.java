@@ -7,6 +7,7 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,7 +35,6 @@ import org.ndexbio.cxio.core.interfaces.AspectElement;
 import org.ndexbio.cxio.core.interfaces.AspectFragmentWriter;
 import org.ndexbio.cxio.metadata.MetaDataCollection;
 import org.ndexbio.cxio.metadata.MetaDataElement;
-import org.ndexbio.cxio.misc.AspectElementCounts;
 import org.ndexbio.cxio.misc.OpaqueElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +53,7 @@ import org.cytoscape.group.CyGroupManager;
 import org.cytoscape.io.internal.AspectSet;
 import org.cytoscape.io.internal.CyServiceModule;
 import org.cytoscape.io.internal.cx_writer.VisualPropertiesGatherer;
+import org.cytoscape.io.internal.cx_writer.VisualPropertyValueCache;
 import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
@@ -97,17 +98,23 @@ public final class CxExporter {
 	private final List<CySubNetwork> subnetworks;
 	
 	private boolean omitOpaqueAspects = false;
+	private boolean writeAspectIndex = false;
 	private List<String> nodeColumns, edgeColumns, networkColumns;
+	// Copied at construction, so concurrent exports do not see changes to the defaults
+	private Settings settings = Settings.INSTANCE.copy();
 	
 	private HashMap<String, Long> idCounters = new HashMap<String, Long>();
 	
 	private Set<CyGroup> collapsed_groups;
 	
+	// Serialized visual property values, shared by all views of one export
+	private VisualPropertyValueCache vpValueCache;
+	
 	//Services needed to export
 	private final CyGroupManager group_manager;
 	private final CyNetworkViewManager _networkview_manager;
 	
-	private CxWriter writer;
+	private CxDocumentWriter writer;
 	private String ID_STRING = "_id";
 
 	/**
@@ -159,6 +166,22 @@ public final class CxExporter {
 	 */
 
 	public final void writeNetwork(Collection<String> aspects, final OutputStream out) throws IOException {
+		writeNetwork(aspects, out, false);
+	}
+
+	/**
+	 * Serialize the network as CX JSON, or as binary CX (Smile) if binary is true.
+	 *
+	 * @param aspects
+	 *            the set of aspects to serialize
+	 * @param out
+	 *            the stream to write to, not closed
+	 * @param binary
+	 *            write binary CX with a {@link CxStreamWriter}, see {@link CxBinaryFormat}. Binary
+	 *            CX is never indexed, see {@link #setWriteAspectIndex(boolean)}
+	 * @throws IOException
+	 */
+	public final void writeNetwork(Collection<String> aspects, final OutputStream out, final boolean binary) throws IOException {
 		
 		if (aspects == null || aspects.isEmpty()) {
 			aspects = AspectSet.getAspectNames();
@@ -192,10 +215,22 @@ public final class CxExporter {
 			}
 		}
 
-		writer = CxWriter.createInstance(out, false);
-		
-		for (final AspectFragmentWriter aspect_writer : AspectSet.getAspectFragmentWriters(aspects)) {
-			writer.addAspectFragmentWriter(aspect_writer);
+		CxStreamWriter indexed = null;
+		if (binary) {
+			if (writeAspectIndex) {
+				// Offsets are only meaningful for the JSON text
+				logger.info("Aspect index is only written for CX JSON");
+			}
+			writer = CxStreamWriter.binary(out);
+		} else if (writeAspectIndex) {
+			indexed = CxStreamWriter.indexedJson(out);
+			writer = indexed;
+		} else {
+			final CxWriter cx_writer = CxWriter.createInstance(out, false);
+			for (final AspectFragmentWriter aspect_writer : AspectSet.getAspectFragmentWriters(aspects)) {
+				cx_writer.addAspectFragmentWriter(aspect_writer);
+			}
+			writer = CxDocumentWriter.of(cx_writer);
 		}
 
 		MetaDataCollection meta_data = writePreMetaData(aspects);
@@ -205,6 +240,8 @@ public final class CxExporter {
 		String msg = null;
 		boolean success = true;
 		
+		vpValueCache = new VisualPropertyValueCache();
+		
 		// Must expand all groups beforehand to reveal nodes
 		collapsed_groups = expandGroups();
 		
@@ -230,8 +267,14 @@ public final class CxExporter {
 			// Also handles Opaque aspects
 			writeHiddenAttributes(); 
 
-			final AspectElementCounts aspects_counts = writer.getAspectElementCounts();
+			// After the last data fragment, before the post-metadata
+			if (indexed != null) {
+				indexed.writeAspectIndex();
+			}
+
+			final Map<String, Long> aspects_counts = writer.getAspectElementCounts();
 
+			logger.debug(String.valueOf(vpValueCache));
 			writePostMetadata(meta_data, aspects_counts);
 			CxUtil.setMetaData(baseNetwork, meta_data);
 
@@ -253,8 +296,8 @@ public final class CxExporter {
 		writer.end(success, msg);
 
 		if (success) {
-			final AspectElementCounts counts = writer.getAspectElementCounts();
-			if (counts != null) {
+			final Map<String, Long> counts = writer.getAspectElementCounts();
+			if (!counts.isEmpty()) {
 				System.out.println("Aspects elements written out:");
 				System.out.println(counts);
 			}
@@ -285,13 +328,13 @@ public final class CxExporter {
 		return pre_meta_data;
 	}
 	private final void writePostMetadata(final MetaDataCollection meta_data,
-			final AspectElementCounts aspects_counts) {
+			final Map<String, Long> aspects_counts) {
 
 		if (meta_data == null) {
 			throw new IllegalArgumentException("Cannot populate null post metaData");
 		}
-		for (String name : aspects_counts.getAllAspectNames()) {
-			long count = (long) aspects_counts.getAspectElementCount(name);			
+		for (String name : aspects_counts.keySet()) {
+			long count = aspects_counts.get(name);
 			Long idCounter = idCounters.getOrDefault(name, null);
 			if (count > 0) {
 				addDataToMetaDataCollection(meta_data, name, count, idCounter);
@@ -300,7 +343,7 @@ public final class CxExporter {
 
 		final long t0 = System.currentTimeMillis();
 		writer.addPostMetaData(meta_data);
-		if (Settings.INSTANCE.isTiming()) {
+		if (settings.isTiming()) {
 			TimingUtil.reportTimeDifference(t0, "post meta-data", -1);
 		}
 	}
@@ -358,7 +401,7 @@ public final class CxExporter {
 		
 		for (CyColumn col : c) {
 			
-			if (Settings.isIgnore(col.getName(), additional_ignore, null)){
+			if (settings.ignores(col.getName(), additional_ignore, null)){
 				continue;
 			}
 			if (col.getName().startsWith(CxUtil.OPAQUE_ASPECT_PREFIX)) {
@@ -416,7 +459,8 @@ public final class CxExporter {
 
 	private void writeOpaqueElement(String column, String value)
 			throws JsonParseException, IOException {
-		if (omitOpaqueAspects) {
+		// An imported index does not match the exported file
+		if (omitOpaqueAspects || CxAspectIndex.ASPECT_NAME.equals(column)) {
 			return;
 		}
 		InputStream in = new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
@@ -466,32 +510,19 @@ public final class CxExporter {
 	private void writeNodeAttributes() throws IOException {
 		List<AspectElement> nodeAttributes = new ArrayList<AspectElement>();
 		
-		List<String> shared_cols = new ArrayList<String>();
+		final Set<String> shared_cols = new HashSet<String>();
 		//Write shared attributes first
 		if (writeSiblings) {
 			CyTable table = baseNetwork.getTable(CyNode.class, CyRootNetwork.SHARED_ATTRS);
 			table.getColumns().forEach((col) -> {
 				shared_cols.add(col.getName());
 			});
-			
-			for (CyNode node : baseNetwork.getNodeList()) {
-				CyRow row = baseNetwork.getRow(node, CyRootNetwork.SHARED_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					addNodeAttributesElement(nodeAttributes, baseNetwork, node, name, value);
-				});
-			}
+			addNodeAttributesByColumn(nodeAttributes, baseNetwork, table, Collections.emptySet());
 		}
 		
-		
 		for (CySubNetwork network : subnetworks) {
-			for (CyNode node : network.getNodeList()) {
-				CyRow row = network.getRow(node, CyNetwork.DEFAULT_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					if (!shared_cols.contains(name)) {
-						addNodeAttributesElement(nodeAttributes, network, node, name, value);
-					}
-				});
-			}
+			CyTable table = network.getTable(CyNode.class, CyNetwork.DEFAULT_ATTRS);
+			addNodeAttributesByColumn(nodeAttributes, network, table, shared_cols);
 		}
 		writeAspectElements(nodeAttributes);
 	}
@@ -499,36 +530,110 @@ public final class CxExporter {
 	private void writeEdgeAttributes() throws IOException{
 		List<AspectElement> edgeAttributes = new ArrayList<AspectElement>();
 		
-		final List<String> shared_cols = new ArrayList<String>();
+		final Set<String> shared_cols = new HashSet<String>();
 		//Write shared attributes first
 		if (writeSiblings) {
 			CyTable table = baseNetwork.getTable(CyEdge.class, CyRootNetwork.SHARED_ATTRS);
 			table.getColumns().forEach(col -> {
 				shared_cols.add(col.getName());
 			});
-			
-			for (CyEdge edge : baseNetwork.getEdgeList()) {
-				CyRow row = baseNetwork.getRow(edge, CyRootNetwork.SHARED_ATTRS);
-				row.getAllValues().forEach((name, value) -> {
-					addEdgeAttributesElement(edgeAttributes, baseNetwork, edge, name, value);
-				});
-			}
+			addEdgeAttributesByColumn(edgeAttributes, baseNetwork, table, Collections.emptySet());
 		}
 		
-		
 		for (CySubNetwork network : subnetworks) {
-			for (CyEdge edge : network.getEdgeList()) {
-				CyRow row = network.getRow(edge);//, CyNetwork.DEFAULT_ATTRS);
-				row.getAllValues().entrySet().stream()
-					.filter(entry -> !shared_cols.contains(entry.getKey()))
-					.forEach(e -> {
-						addEdgeAttributesElement(edgeAttributes, network, edge, e.getKey(), e.getValue());
-						}
-					);
-			}
+			CyTable table = network.getTable(CyEdge.class, CyNetwork.DEFAULT_ATTRS);
+			addEdgeAttributesByColumn(edgeAttributes, network, table, shared_cols);
 		}
 		writeAspectElements(edgeAttributes);
 	}
+	
+	/**
+	 * Read node attributes column by column. Rows and CX IDs are resolved once per network, and 
+	 * only the columns that pass the column filter are read, instead of building a map of every
+	 * value for each row.
+	 * @param elements
+	 * @param network
+	 * @param table
+	 * @param skip_cols columns written elsewhere (shared columns of a collection)
+	 */
+	private void addNodeAttributesByColumn(final List<AspectElement> elements, final CyNetwork network, 
+			final CyTable table, final Set<String> skip_cols) {
+		final List<CyNode> nodes = network.getNodeList();
+		final Long subnetworkId = getAspectSubnetworkId(network);
+		final Long[] ids = new Long[nodes.size()];
+		final CyRow[] rows = new CyRow[nodes.size()];
+		for (int i = 0; i < ids.length; i++) {
+			final CyNode node = nodes.get(i);
+			ids[i] = CxUtil.getElementId(node, network, useCxId);
+			rows[i] = table.getRow(node.getSUID());
+		}
+		
+		for (final CyColumn col : getExportedColumns(table, nodeColumns, skip_cols)) {
+			final String name = col.getName();
+			for (int i = 0; i < ids.length; i++) {
+				addNodeAttributesElement(elements, subnetworkId, ids[i], name, getColumnValue(rows[i], col));
+			}
+		}
+	}
+	
+	/**
+	 * Read edge attributes column by column. See {@link #addNodeAttributesByColumn}
+	 * @param elements
+	 * @param network
+	 * @param table
+	 * @param skip_cols columns written elsewhere (shared columns of a collection)
+	 */
+	private void addEdgeAttributesByColumn(final List<AspectElement> elements, final CyNetwork network, 
+			final CyTable table, final Set<String> skip_cols) {
+		final List<CyEdge> edges = network.getEdgeList();
+		final Long subnetworkId = getAspectSubnetworkId(network);
+		final Long[] ids = new Long[edges.size()];
+		final CyRow[] rows = new CyRow[edges.size()];
+		for (int i = 0; i < ids.length; i++) {
+			final CyEdge edge = edges.get(i);
+			ids[i] = CxUtil.getElementId(edge, network, useCxId);
+			rows[i] = table.getRow(edge.getSUID());
+		}
+		
+		for (final CyColumn col : getExportedColumns(table, edgeColumns, skip_cols)) {
+			final String name = col.getName();
+			for (int i = 0; i < ids.length; i++) {
+				addEdgeAttributesElement(elements, subnetworkId, ids[i], name, getColumnValue(rows[i], col));
+			}
+		}
+	}
+	
+	/**
+	 * Return the columns of a table that pass the user column filter and are not skipped.
+	 * Value dependent checks (empty values, selected) are still done per element
+	 * @param table
+	 * @param column_filter
+	 * @param skip_cols
+	 * @return
+	 */
+	private static List<CyColumn> getExportedColumns(final CyTable table, final List<String> column_filter, 
+			final Set<String> skip_cols) {
+		final Set<String> filter = column_filter == null ? null : new HashSet<String>(column_filter);
+		final List<CyColumn> columns = new ArrayList<CyColumn>();
+		for (final CyColumn col : table.getColumns()) {
+			final String name = col.getName();
+			if (skip_cols.contains(name)) {
+				continue;
+			}
+			if (filter != null && !filter.contains(name)) {
+				continue;
+			}
+			columns.add(col);
+		}
+		return columns;
+	}
+	
+	private static Object getColumnValue(final CyRow row, final CyColumn col) {
+		if (col.getType() == List.class) {
+			return row.getList(col.getName(), col.getListElementType());
+		}
+		return row.get(col.getName(), col.getType());
+	}
 
 	
 	// Aggregators
@@ -583,7 +688,7 @@ public final class CxExporter {
 				continue;
 			}
 			// Ignore columns like SUID, etc
-			if (Settings.isIgnore(column_name, Settings.IGNORE_NETWORK_ATTRIBUTES, value)) {
+			if (settings.ignores(column_name, Settings.IGNORE_NETWORK_ATTRIBUTES, value)) {
 				continue;
 			}
 			
@@ -698,20 +803,15 @@ public final class CxExporter {
 		elements.add(group_element);
 	}
 
-	private void addNodeAttributesElement(final List<AspectElement> elements, CyNetwork network, CyNode node, String name, Object value) {
+	private void addNodeAttributesElement(final List<AspectElement> elements, Long subnetworkId, Long nodeId, String name, Object value) {
 		if (value == null) {
 			return;
 		}
 
-		if (Settings.isIgnore(name, Settings.IGNORE_NODE_ATTRIBUTES, value)) {
-			return;
-		}
-		if (nodeColumns != null && !nodeColumns.contains(name)) {
+		if (settings.ignores(name, Settings.IGNORE_NODE_ATTRIBUTES, value)) {
 			return;
 		}
 		
-		Long nodeId = CxUtil.getElementId(node, network, useCxId);
-		Long subnetworkId = getAspectSubnetworkId(network);
 		ATTRIBUTE_DATA_TYPE type = AttributesAspectUtils.determineDataType(value);
 		
 		if (!type.isSingleValueType()) {
@@ -730,21 +830,16 @@ public final class CxExporter {
 
 	
 
-	private void addEdgeAttributesElement(final List<AspectElement> elements, CyNetwork network, CyEdge edge, String name, Object value) {
+	private void addEdgeAttributesElement(final List<AspectElement> elements, Long subnetworkId, Long edgeId, String name, Object value) {
 		
 		if (value == null || (value instanceof String && ((String) value).length() == 0)) {
 			return;
 		}
 
-		if (Settings.isIgnore(name, Settings.IGNORE_EDGE_ATTRIBUTES, value)) {
+		if (settings.ignores(name, Settings.IGNORE_EDGE_ATTRIBUTES, value)) {
 			return;
 		}
 		
-		if (edgeColumns != null && !edgeColumns.contains(name)) {
-			return;
-		}
-		Long edgeId = CxUtil.getElementId(edge, network, useCxId);
-		Long subnetworkId = getAspectSubnetworkId(network);
 		if (value instanceof List) {
 			final List<String> attr_values = new ArrayList<>();
 			for (final Object v : (List<?>) value) {
@@ -903,7 +998,7 @@ public final class CxExporter {
 
 		final Long viewId = getViewId(view);
 		
-		final List<AspectElement> elements = VisualPropertiesGatherer.gatherVisualPropertiesAsAspectElements(view, lexicon, types, viewId, useCxId);
+		final List<AspectElement> elements = VisualPropertiesGatherer.gatherVisualPropertiesAsAspectElements(view, lexicon, types, viewId, useCxId, vpValueCache);
 		writeAspectElements(elements);
 	}
 
@@ -958,7 +1053,7 @@ public final class CxExporter {
 		}
 		final long t0 = System.currentTimeMillis();
 		writer.writeAspectElements(elements);
-		if (Settings.INSTANCE.isTiming()) {
+		if (settings.isTiming()) {
 			TimingUtil.reportTimeDifference(t0, elements.get(0).getAspectName(), elements.size());
 		}
 	}
@@ -1051,6 +1146,17 @@ public final class CxExporter {
 		return null;
 	}
 	
+	/**
+	 * @param settings settings of this export, instead of a copy of the defaults taken at construction
+	 */
+	public void setSettings(Settings settings) {
+		this.settings = settings;
+	}
+
+	public Settings getSettings() {
+		return settings;
+	}
+	
 	public void setNodeColumnFilter(List<String> selectedValues) {
 		if (selectedValues != null && !selectedValues.isEmpty()) {
 			this.nodeColumns = selectedValues;
@@ -1066,6 +1172,14 @@ public final class CxExporter {
 			this.networkColumns = selectedValues;
 		}
 	}
+
+	/**
+	 * Write a {@link CxAspectIndex} of the exported CX JSON into the document, as an aspect after
+	 * the data fragments
+	 * @param writeAspectIndex
+	 */
+	public void setWriteAspectIndex(boolean writeAspectIndex) {
+		this.writeAspectIndex = writeAspectIndex;
+	}
 	
 }
-
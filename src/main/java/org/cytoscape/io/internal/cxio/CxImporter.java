@@ -1,24 +1,18 @@
 package org.cytoscape.io.internal.cxio;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.cytoscape.io.internal.AspectSet;
-import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
-import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
-import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
-import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
-import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
-import org.ndexbio.cxio.aspects.datamodels.NodesElement;
 import org.ndexbio.cxio.core.CxElementReader2;
 import org.ndexbio.cxio.core.interfaces.AspectElement;
 import org.ndexbio.cxio.core.interfaces.AspectFragmentReader;
 import org.ndexbio.cxio.metadata.MetaDataCollection;
-import org.ndexbio.cxio.metadata.MetaDataElement;
-import org.ndexbio.model.cx.NdexNetworkStatus;
 import org.ndexbio.model.cx.NiceCXNetwork;
 
 /**
@@ -86,6 +80,10 @@ import org.ndexbio.model.cx.NiceCXNetwork;
 public final class CxImporter {
 
     private final Set<AspectFragmentReader> all_readers ;
+    private final Set<AspectFragmentReader> additional_readers = new HashSet<>();
+    private int parseThreads = 1;
+    private Predicate<AspectElement> elementFilter = null;
+    private ParsedNetworkCache cache = null;
 
     public CxImporter() {
         
@@ -117,6 +115,7 @@ public final class CxImporter {
      */
     public final void addAdditionalReaders(final Collection<AspectFragmentReader> additional_readers) {
         all_readers.addAll(additional_readers);
+        this.additional_readers.addAll(additional_readers);
     } 
 
     /**
@@ -129,6 +128,7 @@ public final class CxImporter {
      */
     public final void addAdditionalReader(final AspectFragmentReader additional_reader) {
         all_readers.add(additional_reader);
+        additional_readers.add(additional_reader);
     }
 
     /**
@@ -175,81 +175,137 @@ public final class CxImporter {
      */
   
     public NiceCXNetwork getCXNetworkFromStream( final InputStream in) throws IOException {
-    	CxElementReader2 r = new CxElementReader2(in, all_readers, true);
+    	if (cache != null && elementFilter == null && in instanceof FileInputStream) {
+    		// A file is hashed in place, without reading it through the stream
+    		final String key = ParsedNetworkCache.getKey(((FileInputStream) in).getChannel());
+    		final NiceCXNetwork cached = cache.load(key, all_readers);
+    		if (cached != null) {
+    			return cached;
+    		}
+    		final NiceCXNetwork niceCX = parse(in, null);
+    		cache.store(key, niceCX);
+    		return niceCX;
+    	}
+    	return parse(in, elementFilter == null ? cache : null);
+    }
+
+    /**
+     * @param cache the cache for the parallel parser, which hashes the content while it spools it
+     */
+    private NiceCXNetwork parse(final InputStream in, final ParsedNetworkCache cache) throws IOException {
+    	final InputStream markable = CxBinaryFormat.markable(in);
+    	if (CxBinaryFormat.hasSmileHeader(markable)) {
+    		// Binary CX is read natively, on the calling thread
+    		return readBinary(markable, all_readers, elementFilter);
+    	}
+    	if (parseThreads > 1) {
+    		return new ParallelCxParser(this::newReaders, parseThreads, elementFilter, cache).parse(markable);
+    	}
+    	CxElementReader2 r = new CxElementReader2(markable, all_readers, true);
         long t0 = System.currentTimeMillis();
         MetaDataCollection metadata = r.getPreMetaData();
-		
-        long nodeIdCounter = 0;
-        long edgeIdCounter = 0;
         
-        NiceCXNetwork niceCX = new NiceCXNetwork ();
+        // Fail fast if the element counts in the metadata can not fit in memory
+        if (elementFilter == null) {
+        	checkMemory(metadata);
+        }
+		
+        final NiceCXAssembler assembler = new NiceCXAssembler(elementFilter);
         
      	for ( AspectElement elmt : r ) {
-     		switch ( elmt.getAspectName() ) {
-     			case NodesElement.ASPECT_NAME :       //Node
-     				    NodesElement n = (NodesElement) elmt;
-     					niceCX.addNode(n);
-                        if (n.getId() > nodeIdCounter )
-                        	nodeIdCounter = n.getId();
-     					break;
-     				case NdexNetworkStatus.ASPECT_NAME:   //ndexStatus we ignore this in CX
-     					break; 
-     				case EdgesElement.ASPECT_NAME:       // Edge
-     					EdgesElement ee = (EdgesElement) elmt;
-     					niceCX.addEdge(ee);
-     					if( ee.getId() > edgeIdCounter)
-     						edgeIdCounter = ee.getId();
-     					break;
-     				case NodeAttributesElement.ASPECT_NAME:  // node attributes
-     					niceCX.addNodeAttribute((NodeAttributesElement) elmt );
-     					break;
-     				case NetworkAttributesElement.ASPECT_NAME: //network attributes
-     					niceCX.addNetworkAttribute(( NetworkAttributesElement) elmt);
-     					break;
-     				case EdgeAttributesElement.ASPECT_NAME: //edge attributes
-     					niceCX.addEdgeAttribute((EdgeAttributesElement)elmt);
-     					break;
-     				case CartesianLayoutElement.ASPECT_NAME: // cartesian layout
-     					CartesianLayoutElement e = (CartesianLayoutElement)elmt;
-     					niceCX.addNodeAssociatedAspectElement(e.getNode(), e);
-     					break;
-     				default:    // opaque aspect
-     					niceCX.addOpaqueAspect(elmt);
-     			}
+     		assembler.add(elmt);
      	} 
      	
-     	MetaDataCollection postmetadata = r.getPostMetaData();
-     	
-  	    if ( postmetadata !=null) {
-		  if( metadata == null) {
-			  metadata = postmetadata;
-		  } else {
-			  for (MetaDataElement e : postmetadata) {
-				  Long cnt = e.getIdCounter();
-				  if ( cnt !=null) {
-					 metadata.setIdCounter(e.getName(),cnt);
-				  }
-				  cnt = e.getElementCount() ;
-				  if ( cnt !=null) {
-					  metadata.setElementCount(e.getName(),cnt);
-				  }
-			  }
-		  }
-	    }
-  	    
-  	    Long cxNodeIdCounter = metadata.getIdCounter(NodesElement.ASPECT_NAME);
-  	    if (cxNodeIdCounter == null || cxNodeIdCounter.longValue() < nodeIdCounter)
-  	    	metadata.setIdCounter(NodesElement.ASPECT_NAME, Long.valueOf(nodeIdCounter));
-  	    
-  	    Long cxEdgeIdCounter = metadata.getIdCounter(EdgesElement.ASPECT_NAME);
-  	    if (cxEdgeIdCounter == null || cxEdgeIdCounter.longValue() < edgeIdCounter)
-  	        metadata.setIdCounter(EdgesElement.ASPECT_NAME, Long.valueOf(edgeIdCounter));
-  	
-  	    niceCX.setMetadata(metadata);
+     	final NiceCXNetwork niceCX = assembler.finish(metadata, r.getPostMetaData());
   	    if (Settings.INSTANCE.isTiming()) {
 			TimingUtil.reportTimeDifference(t0, "niceCX", niceCX.getMetadata().size());
+			TimingUtil.reportInterning(assembler.getInterner());
 		}
         return niceCX;
     }
+
+    /**
+     * Read binary CX, e.g. a file or a cached snapshot, element by element into a network
+     *
+     * @param in
+     *            binary CX
+     * @param readers
+     *            the aspect readers
+     * @param filter
+     *            elements to keep, or null to keep all
+     * @return
+     * @throws IOException
+     */
+    static NiceCXNetwork readBinary(final InputStream in, final Set<AspectFragmentReader> readers,
+    		final Predicate<AspectElement> filter) throws IOException {
+    	final CxBinaryReader r = new CxBinaryReader(in, readers);
+    	long t0 = System.currentTimeMillis();
+    	MetaDataCollection metadata = r.getPreMetaData();
+
+    	if (filter == null && metadata != null) {
+    		checkMemory(metadata);
+    	}
+
+    	final NiceCXAssembler assembler = new NiceCXAssembler(filter);
+    	AspectElement elmt;
+    	while ((elmt = r.read()) != null) {
+    		assembler.add(elmt);
+    	}
+
+    	final NiceCXNetwork niceCX = assembler.finish(metadata, r.getPostMetaData());
+    	if (Settings.INSTANCE.isTiming()) {
+    		TimingUtil.reportTimeDifference(t0, "niceCX (binary)", niceCX.getMetadata().size());
+    		TimingUtil.reportInterning(assembler.getInterner());
+    	}
+    	return niceCX;
+    }
+
+    static void checkMemory(final MetaDataCollection metadata) throws IOException {
+        final ImportMemoryEstimate estimate = ImportMemoryEstimate.fromMetaData(metadata);
+        estimate.check(estimate.getParseBytes() + estimate.getNetworkBytes(), "import");
+    }
+
+    /**
+     * Decode independent aspect fragments on several threads, see {@link ParallelCxParser}. The
+     * additional readers are then used from several threads at once.
+     *
+     * @param threads
+     *            number of decoding threads, 1 or less to parse on the calling thread
+     */
+    public final void setParseThreads(final int threads) {
+        this.parseThreads = threads;
+    }
+
+    /**
+     * Only keep the elements accepted by a filter, e.g. an {@link ElementSelection}. The filter is
+     * applied in file order, before elements are added to the network.
+     *
+     * @param filter
+     *            the filter, or null to keep all elements
+     */
+    public final void setElementFilter(final Predicate<AspectElement> filter) {
+        this.elementFilter = filter;
+    }
+
+    /**
+     * Reuse networks parsed before from the same content, see {@link ParsedNetworkCache}. Only
+     * imports of whole networks are cached, not filtered ones.
+     *
+     * @param cache
+     *            the cache, or null to always parse
+     */
+    public final void setCache(final ParsedNetworkCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return a new set of readers, for parsing on another thread. The built-in readers are new
+     *         instances, the additional readers are shared between all sets
+     */
+    private Set<AspectFragmentReader> newReaders() {
+        final Set<AspectFragmentReader> readers = new HashSet<>(additional_readers);
+        readers.addAll(AspectSet.getAspectFragmentReaders(AspectSet.getAspectNames()));
+        return readers;
+    }
     
 }
@@ -0,0 +1,321 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.aspects.datamodels.SubNetworkElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Summary of a CX network, read without building the network: element counts, subnetworks with
+ * their sizes, views, and the network name.
+ *
+ * Only metaData, networkAttributes, networkRelations and subNetworks are decoded. Elements of all
+ * other aspects are counted and skipped at the token level, so scanning takes a fraction of the
+ * time and practically none of the memory of a full import. Use it to decide import options, e.g.
+ * whether to create views, before loading the network.
+ *
+ */
+public final class CxNetworkSummary {
+
+	private final Map<String, Long> elementCounts = new LinkedHashMap<>();
+	private final Map<String, Long> metaDataCounts = new LinkedHashMap<>();
+	private final Map<Long, String> subnetworks = new LinkedHashMap<>();
+	private final Map<Long, Long> subnetworkSizes = new LinkedHashMap<>();
+	private final Map<Long, String> views = new LinkedHashMap<>();
+	private final Map<Long, Long> viewParents = new LinkedHashMap<>();
+	private String name;
+
+	private CxNetworkSummary() {
+	}
+
+	/**
+	 * Scan a CX JSON or binary CX stream. The stream is read to the end but not closed
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static CxNetworkSummary scan(final InputStream in) throws IOException {
+		final long t0 = System.currentTimeMillis();
+		final CxNetworkSummary summary = new CxNetworkSummary();
+		try (JsonParser p = CxBinaryFormat.createParser(in)) {
+			if (p.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Not CX: expected an array of aspect fragments");
+			}
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					final String aspect = p.getCurrentName();
+					if (p.nextToken() != JsonToken.START_ARRAY) {
+						p.skipChildren();
+						continue;
+					}
+					summary.readAspect(p, aspect);
+				}
+			}
+		}
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "CX summary scan", -1);
+		}
+		return summary;
+	}
+
+	private void readAspect(final JsonParser p, final String aspect) throws IOException {
+		long count = 0;
+		while (p.nextToken() != JsonToken.END_ARRAY) {
+			count++;
+			if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+				p.skipChildren();
+				continue;
+			}
+			switch (aspect) {
+			case MetaDataCollection.NAME:
+				readMetaData(p);
+				break;
+			case NetworkAttributesElement.ASPECT_NAME:
+				readNetworkAttribute(p);
+				break;
+			case NetworkRelationsElement.ASPECT_NAME:
+				readNetworkRelation(p);
+				break;
+			case SubNetworkElement.ASPECT_NAME:
+				readSubNetwork(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (!MetaDataCollection.NAME.equals(aspect)) {
+			elementCounts.merge(aspect, count, Long::sum);
+		}
+	}
+
+	/**
+	 * Post-metadata counts replace the pre-metadata counts
+	 */
+	private void readMetaData(final JsonParser p) throws IOException {
+		String aspect = null;
+		Long count = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			if ("name".equals(field)) {
+				aspect = p.getText();
+			} else if ("elementCount".equals(field) && p.getCurrentToken().isNumeric()) {
+				count = p.getLongValue();
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (aspect != null && count != null) {
+			metaDataCounts.put(aspect, count);
+		}
+	}
+
+	private void readNetworkAttribute(final JsonParser p) throws IOException {
+		String n = null, v = null;
+		boolean subnet = false;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			if ("n".equals(field)) {
+				n = p.getText();
+			} else if ("v".equals(field) && p.getCurrentToken().isScalarValue()) {
+				v = p.getText();
+			} else if ("s".equals(field)) {
+				subnet = true;
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (!subnet && "name".equals(n)) {
+			name = v;
+		}
+	}
+
+	private void readNetworkRelation(final JsonParser p) throws IOException {
+		Long parent = null, child = null;
+		String relationship = NetworkRelationsElement.TYPE_SUBNETWORK, childName = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			p.nextToken();
+			if ("p".equals(field) && p.getCurrentToken().isNumeric()) {
+				parent = p.getLongValue();
+			} else if ("c".equals(field) && p.getCurrentToken().isNumeric()) {
+				child = p.getLongValue();
+			} else if ("r".equals(field)) {
+				relationship = p.getText();
+			} else if ("name".equals(field)) {
+				childName = p.getText();
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (child == null) {
+			return;
+		}
+		if (NetworkRelationsElement.TYPE_VIEW.equals(relationship)) {
+			views.put(child, childName);
+			viewParents.put(child, parent);
+		} else {
+			subnetworks.put(child, childName);
+		}
+	}
+
+	private void readSubNetwork(final JsonParser p) throws IOException {
+		Long id = null;
+		long size = 0;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("@id".equals(field) && t.isNumeric()) {
+				id = p.getLongValue();
+			} else if (t == JsonToken.START_ARRAY && ("nodes".equals(field) || "edges".equals(field))) {
+				while (p.nextToken() != JsonToken.END_ARRAY) {
+					p.skipChildren();
+					size++;
+				}
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (id != null) {
+			subnetworkSizes.put(id, size);
+		}
+	}
+
+	/**
+	 * @return the root network name, may be null
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param aspect
+	 * @return number of elements of an aspect in the file, or the count in the metadata if the
+	 *         aspect is not in the file
+	 */
+	public long getElementCount(final String aspect) {
+		final Long count = elementCounts.get(aspect);
+		if (count != null) {
+			return count;
+		}
+		final Long declared = metaDataCounts.get(aspect);
+		return declared != null ? declared : 0;
+	}
+
+	public long getNodeCount() {
+		return getElementCount(NodesElement.ASPECT_NAME);
+	}
+
+	public long getEdgeCount() {
+		return getElementCount(EdgesElement.ASPECT_NAME);
+	}
+
+	/**
+	 * @return element counts of the aspects in the file, in file order
+	 */
+	public Map<String, Long> getElementCounts() {
+		return Collections.unmodifiableMap(elementCounts);
+	}
+
+	/**
+	 * @return element counts declared in the metadata
+	 */
+	public Map<String, Long> getMetaDataCounts() {
+		return Collections.unmodifiableMap(metaDataCounts);
+	}
+
+	/**
+	 * @return subnetwork names by CX ID, from networkRelations
+	 */
+	public Map<Long, String> getSubnetworks() {
+		return Collections.unmodifiableMap(subnetworks);
+	}
+
+	/**
+	 * @return number of subnetworks, at least 1
+	 */
+	public int getSubnetworkCount() {
+		return Math.max(1, subnetworks.size());
+	}
+
+	/**
+	 * @return view names by CX ID, from networkRelations
+	 */
+	public Map<Long, String> getViews() {
+		return Collections.unmodifiableMap(views);
+	}
+
+	public int getViewCount() {
+		return views.size();
+	}
+
+	/**
+	 * @param view
+	 * @return ID of the subnetwork the view belongs to, or null
+	 */
+	public Long getViewParent(final Long view) {
+		return viewParents.get(view);
+	}
+
+	/**
+	 * @param subnetwork
+	 * @return number of nodes and edges of a subnetwork, or -1 if not listed in subNetworks
+	 */
+	public long getSubnetworkSize(final Long subnetwork) {
+		final Long size = subnetworkSizes.get(subnetwork);
+		return size != null ? size : -1;
+	}
+
+	/**
+	 * @return number of nodes and edges of the largest network, the root network if no subnetworks are listed
+	 */
+	public long getLargestNetworkSize() {
+		long largest = 0;
+		for (final Long size : subnetworkSizes.values()) {
+			largest = Math.max(largest, size);
+		}
+		return subnetworkSizes.isEmpty() ? getNodeCount() + getEdgeCount() : largest;
+	}
+
+	/**
+	 * @param viewThreshold see CxPreferences.getViewThreshold()
+	 * @return true if views of all networks are below the threshold, and would be created automatically
+	 */
+	public boolean isBelowViewThreshold(final long viewThreshold) {
+		return getLargestNetworkSize() < viewThreshold;
+	}
+
+	/**
+	 * @return estimated memory needed to import, see {@link ImportMemoryEstimate}
+	 */
+	public ImportMemoryEstimate getMemoryEstimate() {
+		final Map<String, Long> counts = new LinkedHashMap<>(metaDataCounts);
+		counts.putAll(elementCounts);
+		final MetaDataCollection metadata = new MetaDataCollection();
+		for (final Map.Entry<String, Long> e : counts.entrySet()) {
+			final MetaDataElement element = new MetaDataElement(e.getKey(), "1.0");
+			element.setElementCount(e.getValue());
+			metadata.add(element);
+		}
+		return ImportMemoryEstimate.fromMetaData(metadata);
+	}
+
+	@Override
+	public String toString() {
+		return "CxNetworkSummary [name=" + name + ", nodes=" + getNodeCount() + ", edges=" + getEdgeCount()
+				+ ", subnetworks=" + getSubnetworkCount() + ", views=" + getViewCount() + "]";
+	}
+}
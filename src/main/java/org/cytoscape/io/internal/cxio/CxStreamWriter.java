@@ -0,0 +1,250 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.io.internal.cxio.CxBinaryFormat.Buffer;
+import org.ndexbio.cxio.core.CxWriter;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.misc.OpaqueElement;
+import org.ndexbio.cxio.util.JsonWriter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Writes binary CX straight to a Smile generator, on the exporting thread. The document, its
+ * fragments, numberVerification and status are written as Smile directly. cxio serializes aspect
+ * elements and metadata as JSON only, so they are serialized in batches of {@link #BATCH_SIZE}
+ * into a reused buffer and copied into the Smile document token by token.
+ *
+ * Not thread safe, create one per export.
+ *
+ */
+final class CxBinaryWriter implements CxDocumentWriter {
+
+	/**
+	 * Elements serialized to JSON between copies into the Smile document
+	 */
+	static final int BATCH_SIZE = 1024;
+
+	private static final String NUMBER_VERIFICATION = "numberVerification";
+	private static final long LONG_NUMBER = 281474976710655L;
+	private static final String STATUS = "status";
+
+	private final JsonGenerator generator;
+	private final Buffer batch = new Buffer();
+	private final Map<String, Long> counts = new LinkedHashMap<>();
+
+	// Only when indexing, null otherwise
+	private final Counter counter;
+	private final CxAspectIndex index;
+	private long fragmentStart;
+	private long fragmentElements;
+
+	private MetaDataCollection preMetaData;
+	private MetaDataCollection postMetaData;
+
+	// The open fragment, null between fragments
+	private String fragment;
+
+	/**
+	 * @param out the target, not closed
+	 * @throws IOException
+	 */
+	CxBinaryWriter(final OutputStream out) throws IOException {
+		this.generator = CxBinaryFormat.SMILE_FACTORY.createGenerator(out);
+	}
+
+	@Override
+	public void addPreMetaData(final MetaDataCollection metadata) {
+		preMetaData = metadata;
+	}
+
+	@Override
+	public void addPostMetaData(final MetaDataCollection metadata) {
+		postMetaData = metadata;
+	}
+
+	@Override
+	public void start() throws IOException {
+		generator.writeStartArray();
+		startAspectFragment(NUMBER_VERIFICATION);
+		generator.writeStartObject();
+		generator.writeNumberField("longNumber", LONG_NUMBER);
+		generator.writeEndObject();
+		endAspectFragment();
+		if (preMetaData != null) {
+			writeMetaData(preMetaData);
+		}
+	}
+
+	@Override
+	public void end(final boolean success, final String message) throws IOException {
+		if (fragment != null) {
+			endAspectFragment();
+		}
+		if (postMetaData != null) {
+			writeMetaData(postMetaData);
+		}
+		startAspectFragment(STATUS);
+		generator.writeStartObject();
+		generator.writeStringField("error", message == null ? "" : message);
+		generator.writeBooleanField("success", success);
+		generator.writeEndObject();
+		endAspectFragment();
+		generator.writeEndArray();
+		generator.close();
+	}
+
+	@Override
+	public void startAspectFragment(final String aspect) throws IOException {
+		fragment = aspect;
+		generator.writeStartObject();
+		if (index != null) {
+			// The '{' is the last byte written, after the separator
+			generator.flush();
+			fragmentStart = counter.count - 1;
+			fragmentElements = 0;
+		}
+		generator.writeArrayFieldStart(aspect);
+	}
+
+	@Override
+	public void endAspectFragment() throws IOException {
+		generator.writeEndArray();
+		generator.writeEndObject();
+		if (index != null && !NUMBER_VERIFICATION.equals(fragment) && !STATUS.equals(fragment)) {
+			generator.flush();
+			index.add(new CxAspectIndex.Fragment(fragment, fragmentStart, counter.count - fragmentStart,
+					fragmentElements));
+		}
+		fragment = null;
+	}
+
+	/**
+	 * Write the index of the aspect fragments written so far as a {@link CxAspectIndex#ASPECT_NAME}
+	 * fragment of its own, to be read back with {@link CxAspectIndex#readEmbedded(java.io.File)}.
+	 * Offsets in it are distances back from the start of the index fragment, so it stays valid
+	 * wherever the document starts in a file. Call it after the last aspect fragment.
+	 * @throws IOException
+	 */
+	void writeAspectIndex() throws IOException {
+		if (index == null) {
+			throw new IllegalStateException("Aspect index is only written for CX JSON");
+		}
+		startAspectFragment(CxAspectIndex.ASPECT_NAME);
+		final long start = fragmentStart;
+		for (final CxAspectIndex.Fragment f : index.getFragments()) {
+			generator.writeStartObject();
+			generator.writeStringField("name", f.getName());
+			generator.writeNumberField("distance", start - f.getOffset());
+			generator.writeNumberField("length", f.getLength());
+			generator.writeNumberField("elementCount", f.getElementCount());
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		fragment = null;
+	}
+
+	@Override
+	public void writeAspectElements(final List<AspectElement> elements) throws IOException {
+		if (elements == null || elements.isEmpty()) {
+			return;
+		}
+		final String aspect = elements.get(0).getAspectName();
+		final boolean own = fragment == null;
+		if (own) {
+			startAspectFragment(aspect);
+		}
+		for (int i = 0; i < elements.size(); i += BATCH_SIZE) {
+			copyElements(elements.subList(i, Math.min(i + BATCH_SIZE, elements.size())));
+		}
+		fragmentElements += elements.size();
+		counts.merge(aspect, (long) elements.size(), Long::sum);
+		if (own) {
+			endAspectFragment();
+		}
+	}
+
+	@Override
+	public void writeOpaqueAspectElement(final OpaqueElement element) throws IOException {
+		copyElements(Collections.singletonList(element));
+		fragmentElements++;
+		counts.merge(fragment == null ? element.getAspectName() : fragment, 1L, Long::sum);
+	}
+
+	@Override
+	public Map<String, Long> getAspectElementCounts() {
+		return counts;
+	}
+
+	private void copyElements(final List<? extends AspectElement> elements) throws IOException {
+		batch.reset();
+		final JsonWriter json = JsonWriter.createInstance(batch, false);
+		for (final AspectElement elmt : elements) {
+			elmt.write(json);
+		}
+		json.close();
+		try (JsonParser p = CxBinaryFormat.JSON_FACTORY.createParser(batch.bytes(), 0, batch.size())) {
+			while (p.nextToken() != null) {
+				generator.copyCurrentStructure(p);
+			}
+		}
+	}
+
+	/**
+	 * Let cxio write the metadata in a JSON document of its own, and copy its metaData fragment
+	 */
+	private void writeMetaData(final MetaDataCollection metadata) throws IOException {
+		batch.reset();
+		final CxWriter json = CxWriter.createInstance(batch, false);
+		json.addPreMetaData(metadata);
+		json.start();
+		json.end(true, null);
+		try (JsonParser p = CxBinaryFormat.JSON_FACTORY.createParser(batch.bytes(), 0, batch.size())) {
+			while (p.nextToken() != null) {
+				if (p.getCurrentToken() == JsonToken.FIELD_NAME && MetaDataCollection.NAME.equals(p.getCurrentName())) {
+					p.nextToken();
+					generator.writeStartObject();
+					generator.writeFieldName(MetaDataCollection.NAME);
+					generator.copyCurrentStructure(p);
+					generator.writeEndObject();
+					return;
+				}
+			}
+		}
+		throw new IOException("Failed to write binary CX metadata");
+	}
+
+	/**
+	 * Counts the bytes written through it
+	 */
+	private static final class Counter extends FilterOutputStream {
+		long count = 0;
+
+		Counter(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the aspect fragments of a CX document in its raw bytes, without decoding any values.
+ *
+ * CX is a top level array of fragment objects, each holding one aspect name and an array of
+ * elements:
+ * <pre>[ {"metaData":[...]}, {"nodes":[{...},{...}]}, ... ]</pre>
+ * The scanner only tracks strings and nesting depth, so it runs at close to memory bandwidth and
+ * can be fed incrementally, e.g. from an output stream while a file is written. Offsets are byte
+ * offsets from the first byte fed.
+ *
+ */
+public final class CxStructureScanner {
+
+	public interface Listener {
+		/**
+		 * Called when a fragment object is closed
+		 * @param name the aspect name, the first key of the fragment
+		 * @param offset offset of the fragment's '{'
+		 * @param length length up to and including its '}'
+		 * @param elementCount number of object or array elements in the aspect's array
+		 */
+		void fragment(String name, long offset, long length, long elementCount);
+
+		/**
+		 * Called for every element of a fragment's array that is an object or an array
+		 * @param name the aspect name
+		 * @param offset offset of the element's first byte
+		 * @param length length of the element
+		 */
+		default void element(String name, long offset, long length) {
+		}
+	}
+
+	// Depth inside the top level array, and inside an aspect's array
+	private static final int FRAGMENT_DEPTH = 1;
+	private static final int ELEMENT_DEPTH = 3;
+
+	private final Listener listener;
+
+	private long position = 0;
+	private int depth = 0;
+	private boolean inString = false;
+	private boolean escape = false;
+
+	private long fragmentStart = -1;
+	private long elementStart = -1;
+	private long elements = 0;
+	private String name = null;
+	private boolean readingName = false;
+	private final ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+
+	public CxStructureScanner(final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return number of bytes scanned
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	public void update(final byte[] b, final int off, final int len) {
+		for (int i = off; i < off + len; i++) {
+			update(b[i]);
+		}
+	}
+
+	public void update(final int b) {
+		final long pos = position++;
+		if (inString) {
+			if (escape) {
+				escape = false;
+			} else if (b == '\\') {
+				escape = true;
+			} else if (b == '"') {
+				inString = false;
+				if (readingName) {
+					readingName = false;
+					name = new String(nameBytes.toByteArray(), StandardCharsets.UTF_8);
+				}
+				return;
+			}
+			if (readingName) {
+				nameBytes.write(b);
+			}
+			return;
+		}
+		switch (b) {
+		case '"':
+			inString = true;
+			if (depth == FRAGMENT_DEPTH + 1 && fragmentStart >= 0 && name == null) {
+				readingName = true;
+				nameBytes.reset();
+			}
+			break;
+		case '{':
+		case '[':
+			if (depth == FRAGMENT_DEPTH && b == '{') {
+				fragmentStart = pos;
+				elements = 0;
+				name = null;
+			} else if (depth == ELEMENT_DEPTH && fragmentStart >= 0) {
+				elementStart = pos;
+				elements++;
+			}
+			depth++;
+			break;
+		case '}':
+		case ']':
+			depth--;
+			if (depth == ELEMENT_DEPTH && elementStart >= 0) {
+				listener.element(name, elementStart, pos + 1 - elementStart);
+				elementStart = -1;
+			} else if (depth == FRAGMENT_DEPTH && b == '}' && fragmentStart >= 0) {
+				listener.fragment(name, fragmentStart, pos + 1 - fragmentStart, elements);
+				fragmentStart = -1;
+			}
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * @return true if the scanned bytes end outside of any value
+	 */
+	public boolean isComplete() {
+		return depth == 0 && !inString;
+	}
+}
@@ -0,0 +1,357 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Imports part of a CX network in two passes over a spooled copy of the input.
+ *
+ * The first pass only reads the aspects needed to decide which nodes and edges to keep (see
+ * {@link #select(Spool)}), with Jackson's streaming parser, so it holds nothing but the IDs.
+ * The second pass is a regular {@link CxImporter} parse of a stream that leaves out the unselected
+ * nodes, edges, attributes, layouts and visual properties at the token level (see
+ * {@link ElementSelection#test(String, JsonParser)}), so only selected elements are parsed into
+ * objects, and the parsed network and the Cytoscape networks built from it scale with the
+ * selection, not with the file.
+ *
+ */
+public abstract class CxSubsetImporter {
+
+	protected static final Logger logger = LoggerFactory.getLogger("CX Subset Import");
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The spooled CX JSON of one import
+	 */
+	protected interface Spool {
+		/**
+		 * @return a new stream over the CX JSON, to be closed by the caller
+		 * @throws IOException
+		 */
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * Handles one element of the first pass
+	 */
+	protected interface ElementHandler {
+		/**
+		 * @param aspect
+		 * @param p positioned on the START_OBJECT of the element
+		 * @return true if the element was read up to its END_OBJECT, false to skip it
+		 * @throws IOException
+		 */
+		boolean handle(String aspect, JsonParser p) throws IOException;
+	}
+
+	/**
+	 * Receives the edges of the first pass
+	 */
+	protected interface EdgeHandler {
+		void handle(long id, long source, long target) throws IOException;
+	}
+
+	/**
+	 * Import the selected part of a CX JSON or binary CX stream. The stream is read to the end but not closed
+	 * @param in
+	 * @param importer
+	 * @return
+	 * @throws IOException
+	 */
+	public NiceCXNetwork getCXNetworkFromStream(final InputStream in, final CxImporter importer) throws IOException {
+		final File file = File.createTempFile("cx-subset", ".tmp");
+		try {
+			long t0 = System.currentTimeMillis();
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+				final InputStream json = CxBinaryFormat.toJsonStream(in);
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int n;
+				while ((n = json.read(buffer)) > 0) {
+					out.write(buffer, 0, n);
+				}
+			}
+			final Spool spool = () -> new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+			final ElementSelection selection = select(spool);
+			logger.info("Selected " + selection + " with " + this);
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportTimeDifference(t0, "select subset", selection.getNodes().size());
+			}
+
+			importer.setElementFilter(selection);
+			try (InputStream json = new SelectedElementsInputStream(spool.open(), selection)) {
+				return importer.getCXNetworkFromStream(json);
+			} finally {
+				importer.setElementFilter(null);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * First pass: decide which part of the network to import. Selections may read the spool more
+	 * than once
+	 * @param spool the CX JSON
+	 * @return the selection
+	 * @throws IOException if the selection is empty or can not be resolved
+	 */
+	protected abstract ElementSelection select(Spool spool) throws IOException;
+
+	/**
+	 * Stream over the elements of a CX document
+	 * @param json
+	 * @param handler called for every object element
+	 * @throws IOException
+	 */
+	protected static void forEachElement(final InputStream json, final ElementHandler handler) throws IOException {
+		try (JsonParser p = JSON_FACTORY.createParser(json)) {
+			if (p.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Not CX: expected an array of aspect fragments");
+			}
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					final String aspect = p.getCurrentName();
+					if (p.nextToken() != JsonToken.START_ARRAY) {
+						p.skipChildren();
+						continue;
+					}
+					while (p.nextToken() != JsonToken.END_ARRAY) {
+						if (p.getCurrentToken() != JsonToken.START_OBJECT || !handler.handle(aspect, p)) {
+							p.skipChildren();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the IDs of an array field into a set
+	 * @param p positioned on the START_ARRAY
+	 * @param ids
+	 * @throws IOException
+	 */
+	protected static void readIds(final JsonParser p, final LongSet ids) throws IOException {
+		while (p.nextToken() != JsonToken.END_ARRAY) {
+			if (p.getCurrentToken().isNumeric()) {
+				ids.add(p.getLongValue());
+			} else {
+				p.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Read an edge element
+	 * @param p positioned on the START_OBJECT of the element
+	 * @param handler called if the edge has an ID, a source and a target
+	 * @throws IOException
+	 */
+	protected static void readEdge(final JsonParser p, final EdgeHandler handler) throws IOException {
+		Long id = null, source = null, target = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if (!t.isNumeric()) {
+				p.skipChildren();
+			} else if ("@id".equals(field)) {
+				id = p.getLongValue();
+			} else if ("s".equals(field)) {
+				source = p.getLongValue();
+			} else if ("t".equals(field)) {
+				target = p.getLongValue();
+			}
+		}
+		if (id != null && source != null && target != null) {
+			handler.handle(id, source, target);
+		}
+	}
+
+	/**
+	 * Read a metadata element
+	 * @param p positioned on the START_OBJECT of the element
+	 * @param elementCounts receives the element count by aspect name, if the element has one
+	 * @throws IOException
+	 */
+	protected static void readMetaData(final JsonParser p, final Map<String, Long> elementCounts) throws IOException {
+		String name = null;
+		Long count = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("name".equals(field)) {
+				name = p.getText();
+			} else if ("elementCount".equals(field) && t.isNumeric()) {
+				count = p.getLongValue();
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (name != null && count != null) {
+			elementCounts.put(name, count);
+		}
+	}
+
+	/**
+	 * CX JSON without the unselected elements of the {@link ElementSelection#isFiltered(String)
+	 * filtered} aspects, and without the element counts of the metadata, which no longer apply.
+	 * Encoded from the parser a few elements at a time, as it is read
+	 */
+	private static final class SelectedElementsInputStream extends InputStream {
+		private static final int TOKENS_PER_FILL = 256;
+
+		private final InputStream in;
+		private final JsonParser parser;
+		private final ElementSelection selection;
+		private final Buffer json = new Buffer();
+		private final JsonGenerator generator;
+		private int position = 0;
+		private boolean done = false;
+		// Nesting of the current token: 1 in the document array, 2 in a fragment, 3 in an aspect
+		private int depth = 0;
+		private String aspect = null;
+
+		SelectedElementsInputStream(final InputStream in, final ElementSelection selection) throws IOException {
+			this.in = in;
+			this.parser = JSON_FACTORY.createParser(in);
+			this.selection = selection;
+			this.generator = JSON_FACTORY.createGenerator(json);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return json.bytes()[position++] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			final int n = Math.min(len, json.size() - position);
+			System.arraycopy(json.bytes(), position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return json.size() - position;
+		}
+
+		/**
+		 * Copy tokens until there are unread JSON bytes or the document ends
+		 * @return false at the end of the document
+		 */
+		private boolean fill() throws IOException {
+			while (position == json.size()) {
+				if (done) {
+					return false;
+				}
+				json.reset();
+				position = 0;
+				for (int i = 0; i < TOKENS_PER_FILL && !done; i++) {
+					copyToken();
+				}
+				if (!done) {
+					generator.flush();
+				}
+			}
+			return true;
+		}
+
+		private void copyToken() throws IOException {
+			final JsonToken t = parser.nextToken();
+			if (t == null) {
+				generator.close();
+				parser.close();
+				done = true;
+			} else if (t == JsonToken.START_OBJECT && depth == 3 && ElementSelection.isFiltered(aspect)) {
+				final TokenBuffer element = new TokenBuffer(parser);
+				element.copyCurrentStructure(parser);
+				final JsonParser p = element.asParser();
+				p.nextToken();
+				if (selection.test(aspect, p)) {
+					element.serialize(generator);
+				}
+			} else if (t == JsonToken.START_OBJECT && depth == 3 && MetaDataCollection.NAME.equals(aspect)) {
+				generator.writeStartObject();
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					final String field = parser.getCurrentName();
+					parser.nextToken();
+					if ("elementCount".equals(field)) {
+						parser.skipChildren();
+					} else {
+						generator.writeFieldName(field);
+						generator.copyCurrentStructure(parser);
+					}
+				}
+				generator.writeEndObject();
+			} else {
+				if (t == JsonToken.FIELD_NAME && depth == 2) {
+					aspect = parser.getCurrentName();
+				}
+				generator.copyCurrentEvent(parser);
+				if (t.isStructStart()) {
+					depth++;
+				} else if (t.isStructEnd()) {
+					depth--;
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			done = true;
+			position = json.size();
+			try {
+				parser.close();
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	private static final class Buffer extends ByteArrayOutputStream {
+		Buffer() {
+			super(BUFFER_SIZE);
+		}
+
+		byte[] bytes() {
+			return buf;
+		}
+	}
+}
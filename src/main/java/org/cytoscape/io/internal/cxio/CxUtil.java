@@ -60,6 +60,7 @@ public final class CxUtil {
     public static final String CX_ID_MAPPING				  = "CX Element ID";
     public static final String CX_METADATA				  	  = "CX MetaData";
 	public static final String OPAQUE_ASPECT_PREFIX 		  = "CX_OPAQUE::";
+	public static final String BYPASS_COLUMN_PREFIX 		  = "CX_BYPASS::";
 	
 	public static final Long DEFAULT_SUBNET = Long.MIN_VALUE;
 	public static final Long DEFAULT_VIEW = Long.MIN_VALUE;
@@ -350,7 +351,11 @@ public final class CxUtil {
 		return table.getColumn(name);
 	}
 	
-	public final static void addToColumn(final CyTable table, final CyRow row, final AbstractAttributesAspectElement e) {
+	/**
+	 * @param settings which of the SUID and selected columns to skip
+	 */
+	public final static void addToColumn(final CyTable table, final CyRow row, final AbstractAttributesAspectElement e,
+			final Settings settings) {
 		if (e == null) {
 			return;
 		}
@@ -360,8 +365,8 @@ public final class CxUtil {
 			return;
 		}
 				
-		if ((!Settings.INSTANCE.isIgnoreSuidColumn() || !name.equals(CyNetwork.SUID))
-				&& (!Settings.INSTANCE.isIgnoreSelectedColumn() || !name.equals(CyNetwork.SELECTED))) {
+		if ((!settings.isIgnoreSuidColumn() || !name.equals(CyNetwork.SUID))
+				&& (!settings.isIgnoreSelectedColumn() || !name.equals(CyNetwork.SELECTED))) {
 			
 			final Class<?> data_type = CxUtil.getDataType(e.getDataType());
 			
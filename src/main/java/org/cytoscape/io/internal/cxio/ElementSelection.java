@@ -0,0 +1,256 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.ndexbio.cxio.aspects.datamodels.AbstractAttributesAspectElement;
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.CyGroupsElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.HiddenAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.aspects.datamodels.SubNetworkElement;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The part of a CX network kept by a partial import: node and edge IDs, and optionally the
+ * subnetworks and views they are imported into.
+ *
+ * As an element filter, it keeps the elements that belong to the selection, and trims the ID lists
+ * of subnetworks and groups to the selected nodes and edges. IDs are the IDs in the file.
+ *
+ * The aspects with an element per node or edge can also be filtered before they are parsed, see
+ * {@link #test(String, JsonParser)}.
+ *
+ */
+public final class ElementSelection implements Predicate<AspectElement> {
+
+	private final LongSet nodes;
+	private final LongSet edges;
+	private final LongSet subnetworks;
+	private final LongSet views;
+
+	/**
+	 * @param nodes selected nodes
+	 * @param edges selected edges, should only connect selected nodes
+	 * @param subnetworks selected subnetworks, or null for all
+	 * @param views selected views, or null for all
+	 */
+	public ElementSelection(final LongSet nodes, final LongSet edges, final LongSet subnetworks, final LongSet views) {
+		this.nodes = nodes;
+		this.edges = edges;
+		this.subnetworks = subnetworks;
+		this.views = views;
+	}
+
+	public LongSet getNodes() {
+		return nodes;
+	}
+
+	public LongSet getEdges() {
+		return edges;
+	}
+
+	private boolean isSubnetworkSelected(final Long subnetwork) {
+		return subnetwork == null || subnetworks == null || subnetworks.contains(subnetwork);
+	}
+
+	private boolean isViewSelected(final Long view) {
+		return view == null || views == null || views.contains(view);
+	}
+
+	@Override
+	public boolean test(final AspectElement element) {
+		switch (element.getAspectName()) {
+		case NodesElement.ASPECT_NAME:
+			return nodes.contains(((NodesElement) element).getId());
+		case EdgesElement.ASPECT_NAME:
+			return edges.contains(((EdgesElement) element).getId());
+		case NodeAttributesElement.ASPECT_NAME:
+			return isSubnetworkSelected(((NodeAttributesElement) element).getSubnetwork())
+					&& isAnySelected((AbstractAttributesAspectElement) element, nodes);
+		case EdgeAttributesElement.ASPECT_NAME:
+			return isSubnetworkSelected(((EdgeAttributesElement) element).getSubnetwork())
+					&& isAnySelected((AbstractAttributesAspectElement) element, edges);
+		case NetworkAttributesElement.ASPECT_NAME:
+			return isSubnetworkSelected(((NetworkAttributesElement) element).getSubnetwork());
+		case HiddenAttributesElement.ASPECT_NAME:
+			return isSubnetworkSelected(((HiddenAttributesElement) element).getSubnetwork());
+		case CyTableColumnElement.ASPECT_NAME:
+			return isSubnetworkSelected(((CyTableColumnElement) element).getSubnetwork());
+		case CartesianLayoutElement.ASPECT_NAME: {
+			final CartesianLayoutElement layout = (CartesianLayoutElement) element;
+			return nodes.contains(layout.getNode()) && isViewSelected(layout.getView());
+		}
+		case CyVisualPropertiesElement.ASPECT_NAME: {
+			final CyVisualPropertiesElement vp = (CyVisualPropertiesElement) element;
+			if (!isViewSelected(vp.getView())) {
+				return false;
+			}
+			switch (vp.getProperties_of()) {
+			case "nodes":
+				return nodes.contains(vp.getApplies_to());
+			case "edges":
+				return edges.contains(vp.getApplies_to());
+			default:
+				return true;
+			}
+		}
+		case NetworkRelationsElement.ASPECT_NAME: {
+			final NetworkRelationsElement relation = (NetworkRelationsElement) element;
+			return NetworkRelationsElement.TYPE_VIEW.equals(relation.getRelationship())
+					? isViewSelected(relation.getChild()) && isSubnetworkSelected(relation.getParent())
+					: isSubnetworkSelected(relation.getChild());
+		}
+		case SubNetworkElement.ASPECT_NAME: {
+			final SubNetworkElement subnetwork = (SubNetworkElement) element;
+			if (!isSubnetworkSelected(subnetwork.getId())) {
+				return false;
+			}
+			retainSelected(subnetwork.getNodes(), nodes);
+			retainSelected(subnetwork.getEdges(), edges);
+			return true;
+		}
+		case CyGroupsElement.ASPECT_NAME: {
+			final CyGroupsElement group = (CyGroupsElement) element;
+			if (!nodes.contains(group.getGroupId())) {
+				return false;
+			}
+			for (final Long node : group.getNodes()) {
+				if (!nodes.contains(node)) {
+					return false;
+				}
+			}
+			retainSelected(group.getInternalEdges(), edges);
+			retainSelected(group.getExternalEdges(), edges);
+			return true;
+		}
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * @param aspect
+	 * @return true if the elements of the aspect can be tested with {@link #test(String, JsonParser)}
+	 */
+	public static boolean isFiltered(final String aspect) {
+		switch (aspect) {
+		case NodesElement.ASPECT_NAME:
+		case EdgesElement.ASPECT_NAME:
+		case NodeAttributesElement.ASPECT_NAME:
+		case EdgeAttributesElement.ASPECT_NAME:
+		case CartesianLayoutElement.ASPECT_NAME:
+		case CyVisualPropertiesElement.ASPECT_NAME:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Token level version of {@link #test(AspectElement)}, to skip elements before they are parsed.
+	 * Elements with missing IDs are kept and left to the element filter
+	 * @param aspect an aspect for which {@link #isFiltered(String)} is true
+	 * @param p positioned on the START_OBJECT of the element, left on its END_OBJECT
+	 * @return false if the element is not selected
+	 * @throws IOException
+	 */
+	public boolean test(final String aspect, final JsonParser p) throws IOException {
+		// ID of the node or edge the element is about
+		Long id = null;
+		Long subnetwork = null;
+		Long view = null;
+		String propertiesOf = null;
+		boolean owned = false;
+		final LongSet owners = EdgeAttributesElement.ASPECT_NAME.equals(aspect) ? edges : nodes;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if (t.isNumeric() && ("@id".equals(field) || "node".equals(field) || "applies_to".equals(field))) {
+				id = p.getLongValue();
+			} else if (t.isNumeric() && "s".equals(field)) {
+				// Subnetwork of attributes, ignored for edges, where it is the source
+				subnetwork = p.getLongValue();
+			} else if (t.isNumeric() && "view".equals(field)) {
+				view = p.getLongValue();
+			} else if (t == JsonToken.VALUE_STRING && "properties_of".equals(field)) {
+				propertiesOf = p.getText();
+			} else if (t.isNumeric() && "po".equals(field)) {
+				owned |= owners.contains(p.getLongValue());
+			} else if (t == JsonToken.START_ARRAY && "po".equals(field)) {
+				while (p.nextToken() != JsonToken.END_ARRAY) {
+					if (p.getCurrentToken().isNumeric()) {
+						owned |= owners.contains(p.getLongValue());
+					} else {
+						p.skipChildren();
+					}
+				}
+			} else {
+				p.skipChildren();
+			}
+		}
+		switch (aspect) {
+		case NodesElement.ASPECT_NAME:
+			return id == null || nodes.contains(id);
+		case EdgesElement.ASPECT_NAME:
+			return id == null || edges.contains(id);
+		case NodeAttributesElement.ASPECT_NAME:
+		case EdgeAttributesElement.ASPECT_NAME:
+			return owned && isSubnetworkSelected(subnetwork);
+		case CartesianLayoutElement.ASPECT_NAME:
+			return (id == null || nodes.contains(id)) && isViewSelected(view);
+		case CyVisualPropertiesElement.ASPECT_NAME:
+			if (!isViewSelected(view)) {
+				return false;
+			} else if (id == null) {
+				return true;
+			} else if ("nodes".equals(propertiesOf)) {
+				return nodes.contains(id);
+			} else if ("edges".equals(propertiesOf)) {
+				return edges.contains(id);
+			}
+			return true;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * @return true if the attribute belongs to any selected element
+	 */
+	private static boolean isAnySelected(final AbstractAttributesAspectElement attribute, final LongSet selected) {
+		final List<Long> ids = attribute.getPropertyOf();
+		if (ids != null) {
+			for (final Long id : ids) {
+				if (selected.contains(id)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static void retainSelected(final List<Long> ids, final LongSet selected) {
+		if (ids != null) {
+			ids.removeIf(id -> !selected.contains(id));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ElementSelection [nodes=" + nodes.size() + ", edges=" + edges.size() + ", subnetworks="
+				+ (subnetworks == null ? "all" : subnetworks.size()) + ", views=" + (views == null ? "all" : views.size())
+				+ "]";
+	}
+}
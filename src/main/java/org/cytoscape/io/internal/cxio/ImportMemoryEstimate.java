@@ -0,0 +1,198 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Collection;
+import java.util.Map;
+
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+/**
+ * Rough estimate of the heap an import needs, from the element counts in the CX metaData
+ * before parsing, or from the parsed network before the Cytoscape model is built.
+ *
+ * The per-element costs are approximate averages measured on typical NDEx networks, and only
+ * meant to catch imports that can not possibly fit before they run out of memory halfway.
+ *
+ */
+public final class ImportMemoryEstimate {
+
+	// Parsed CX model, per element
+	private static final long CX_NODE_BYTES = 160;
+	private static final long CX_EDGE_BYTES = 200;
+	private static final long CX_ATTRIBUTE_BYTES = 180;
+	private static final long CX_LAYOUT_BYTES = 120;
+	private static final long CX_OTHER_BYTES = 300;
+
+	// Cytoscape model, per element, with its rows in the default, shared and hidden tables
+	private static final long CY_NODE_BYTES = 900;
+	private static final long CY_EDGE_BYTES = 1000;
+	private static final long CY_ATTRIBUTE_BYTES = 120;
+
+	// View model, per node or edge view
+	private static final long VIEW_ELEMENT_BYTES = 1500;
+
+	private final long nodes;
+	private final long edges;
+	private final long attributes;
+	private final long layouts;
+	private final long others;
+
+	private ImportMemoryEstimate(final long nodes, final long edges, final long attributes, final long layouts,
+			final long others) {
+		this.nodes = nodes;
+		this.edges = edges;
+		this.attributes = attributes;
+		this.layouts = layouts;
+		this.others = others;
+	}
+
+	/**
+	 * @param metadata pre-metadata of a CX file, may be null
+	 * @return the estimate for the element counts in the metadata. Aspects without counts are not included
+	 */
+	public static ImportMemoryEstimate fromMetaData(final MetaDataCollection metadata) {
+		long nodes = 0, edges = 0, attributes = 0, layouts = 0, others = 0;
+		if (metadata != null) {
+			for (final MetaDataElement e : metadata) {
+				final Long count = e.getElementCount();
+				if (count == null || count < 0) {
+					continue;
+				}
+				switch (e.getName()) {
+				case NodesElement.ASPECT_NAME:
+					nodes += count;
+					break;
+				case EdgesElement.ASPECT_NAME:
+					edges += count;
+					break;
+				case NodeAttributesElement.ASPECT_NAME:
+				case EdgeAttributesElement.ASPECT_NAME:
+					attributes += count;
+					break;
+				case CartesianLayoutElement.ASPECT_NAME:
+					layouts += count;
+					break;
+				default:
+					others += count;
+				}
+			}
+		}
+		return new ImportMemoryEstimate(nodes, edges, attributes, layouts, others);
+	}
+
+	/**
+	 * @param niceCX a parsed network
+	 * @return the estimate for the parsed element counts
+	 */
+	public static ImportMemoryEstimate fromNiceCX(final NiceCXNetwork niceCX) {
+		return new ImportMemoryEstimate(niceCX.getNodes().size(), niceCX.getEdges().size(),
+				countValues(niceCX.getNodeAttributes()) + countValues(niceCX.getEdgeAttributes()), 0, 0);
+	}
+
+	private static long countValues(final Map<Long, ? extends Collection<?>> map) {
+		long count = 0;
+		for (final Collection<?> c : map.values()) {
+			count += c.size();
+		}
+		return count;
+	}
+
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	public long getEdgeCount() {
+		return edges;
+	}
+
+	/**
+	 * @return bytes needed to hold the parsed CX model
+	 */
+	public long getParseBytes() {
+		return nodes * CX_NODE_BYTES + edges * CX_EDGE_BYTES + attributes * CX_ATTRIBUTE_BYTES
+				+ layouts * CX_LAYOUT_BYTES + others * CX_OTHER_BYTES;
+	}
+
+	/**
+	 * @return bytes needed to build the Cytoscape networks, without views
+	 */
+	public long getNetworkBytes() {
+		return nodes * CY_NODE_BYTES + edges * CY_EDGE_BYTES + attributes * CY_ATTRIBUTE_BYTES;
+	}
+
+	/**
+	 * @return bytes needed for one view of all nodes and edges
+	 */
+	public long getViewBytes() {
+		return (nodes + edges) * VIEW_ELEMENT_BYTES;
+	}
+
+	/**
+	 * @return heap that can still be allocated, or Long.MAX_VALUE if the heap is unbounded
+	 */
+	public static long getAvailableBytes() {
+		final Runtime runtime = Runtime.getRuntime();
+		final long max = runtime.maxMemory();
+		if (max == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		return max - (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	/**
+	 * @param needed
+	 * @return true if the needed bytes are available, counting garbage left since the last
+	 *         collection as available
+	 */
+	public static boolean isAvailable(final long needed) {
+		if (needed <= getAvailableBytes()) {
+			return true;
+		}
+		// Used memory may still include garbage, compare to what was live after the last collection
+		final long max = Runtime.getRuntime().maxMemory();
+		long live = 0;
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			final MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+			if (usage != null) {
+				live += usage.getUsed();
+			}
+		}
+		return needed <= max - live;
+	}
+
+	/**
+	 * @param needed
+	 * @param stage what needs the memory, for the message
+	 * @throws IOException if the needed bytes are not available
+	 */
+	public void check(final long needed, final String stage) throws IOException {
+		if (!isAvailable(needed)) {
+			throw new IOException(String.format(
+					"Not enough memory to %s %,d nodes and %,d edges: about %,d MB needed, %,d MB available. "
+							+ "Increase the memory available to Cytoscape and try again.",
+					stage, nodes, edges, toMB(needed), toMB(getAvailableBytes())));
+		}
+	}
+
+	private static long toMB(final long bytes) {
+		return bytes / (1024 * 1024);
+	}
+
+	@Override
+	public String toString() {
+		return "ImportMemoryEstimate [nodes=" + nodes + ", edges=" + edges + ", attributes=" + attributes
+				+ ", parse=" + toMB(getParseBytes()) + "MB, network=" + toMB(getNetworkBytes()) + "MB, view="
+				+ toMB(getViewBytes()) + "MB, available=" + toMB(getAvailableBytes()) + "MB]";
+	}
+}
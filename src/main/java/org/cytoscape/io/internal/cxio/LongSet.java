@@ -0,0 +1,132 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open addressing hash set of primitive longs, for the sets of element IDs kept by partial imports.
+ *
+ * A boxed HashSet takes about 50 bytes per ID, this one 8 to 16. Not thread safe.
+ *
+ */
+public final class LongSet {
+
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int size = 0;
+	private boolean hasEmptyKey = false;
+
+	public LongSet() {
+		this(16);
+	}
+
+	public LongSet(final int expected) {
+		keys = new long[tableSize(expected)];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	private static int tableSize(final int expected) {
+		int n = 16;
+		while (n < expected * 2L && n < (1 << 30)) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+	private static int hash(final long key) {
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @param key
+	 * @return true if the key was not in the set
+	 */
+	public boolean add(final long key) {
+		if (key == EMPTY) {
+			if (hasEmptyKey) {
+				return false;
+			}
+			hasEmptyKey = true;
+			size++;
+			return true;
+		}
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		size++;
+		if (size * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		return true;
+	}
+
+	public void addAll(final LongSet other) {
+		other.forEach(this::add);
+	}
+
+	public boolean contains(final long key) {
+		if (key == EMPTY) {
+			return hasEmptyKey;
+		}
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * @param key may be null
+	 * @return false for null
+	 */
+	public boolean contains(final Long key) {
+		return key != null && contains(key.longValue());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void forEach(final LongConsumer consumer) {
+		if (hasEmptyKey) {
+			consumer.accept(EMPTY);
+		}
+		for (final long key : keys) {
+			if (key != EMPTY) {
+				consumer.accept(key);
+			}
+		}
+	}
+
+	private void rehash(final int capacity) {
+		final long[] old = keys;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		final int mask = capacity - 1;
+		for (final long key : old) {
+			if (key != EMPTY) {
+				int i = hash(key) & mask;
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+			}
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Imports the k-hop neighborhood of seed nodes: all nodes within the given number of hops of a
+ * seed, and the edges between them.
+ *
+ * Seeds are matched against node names and represents values. In the first pass, edges are kept
+ * as three primitive arrays (ID, source, target), 24 bytes per edge, and the neighborhood is
+ * found by a breadth first search that scans the edge arrays once per hop, ignoring edge direction.
+ *
+ */
+public final class NeighborhoodImporter extends CxSubsetImporter {
+
+	private final Set<String> seeds;
+	private final int hops;
+
+	/**
+	 * @param seeds node names or represents values
+	 * @param hops number of hops from the seeds, 0 for the seeds only
+	 */
+	public NeighborhoodImporter(final Collection<String> seeds, final int hops) {
+		if (seeds == null || seeds.isEmpty()) {
+			throw new IllegalArgumentException("No seed nodes");
+		}
+		if (hops < 0) {
+			throw new IllegalArgumentException("Hops must not be negative: " + hops);
+		}
+		this.seeds = new HashSet<>(seeds);
+		this.hops = hops;
+	}
+
+	@Override
+	protected ElementSelection select(final Spool spool) throws IOException {
+		final LongSet seedIds = new LongSet();
+		final Map<String, Long> counts = new HashMap<>();
+		final EdgeList edgeList = new EdgeList();
+
+		try (InputStream json = spool.open()) {
+			forEachElement(json, (aspect, p) -> {
+				switch (aspect) {
+				case MetaDataCollection.NAME:
+					readMetaData(p, counts);
+					edgeList.presize(counts.get(EdgesElement.ASPECT_NAME));
+					return true;
+				case NodesElement.ASPECT_NAME:
+					readNode(p, seedIds);
+					return true;
+				case EdgesElement.ASPECT_NAME:
+					readEdge(p, edgeList::add);
+					return true;
+				default:
+					return false;
+				}
+			});
+		}
+		if (seedIds.isEmpty()) {
+			throw new IOException("None of the seed nodes " + seeds + " was found");
+		}
+
+		final LongSet nodes = expand(seedIds, edgeList);
+		final LongSet edges = new LongSet();
+		for (int i = 0; i < edgeList.count; i++) {
+			if (nodes.contains(edgeList.sources[i]) && nodes.contains(edgeList.targets[i])) {
+				edges.add(edgeList.ids[i]);
+			}
+		}
+		logger.info("Found " + seedIds.size() + " seeds and " + nodes.size() + " nodes within " + hops + " hops, among "
+				+ edgeList.count + " edges");
+		return new ElementSelection(nodes, edges, null, null);
+	}
+
+	/**
+	 * Breadth first search from the seeds, one scan of the edges per hop
+	 */
+	private LongSet expand(final LongSet seedIds, final EdgeList edgeList) {
+		final LongSet visited = new LongSet(seedIds.size());
+		visited.addAll(seedIds);
+		LongSet frontier = seedIds;
+		for (int hop = 0; hop < hops && !frontier.isEmpty(); hop++) {
+			final LongSet next = new LongSet();
+			for (int i = 0; i < edgeList.count; i++) {
+				final long s = edgeList.sources[i];
+				final long t = edgeList.targets[i];
+				if (frontier.contains(s) && !visited.contains(t)) {
+					next.add(t);
+				}
+				if (frontier.contains(t) && !visited.contains(s)) {
+					next.add(s);
+				}
+			}
+			visited.addAll(next);
+			frontier = next;
+		}
+		return visited;
+	}
+
+	/**
+	 * Edges of the file, as parallel arrays. Local to one selection, so that an importer can be reused
+	 */
+	private static final class EdgeList {
+		private long[] ids = new long[1024];
+		private long[] sources = new long[1024];
+		private long[] targets = new long[1024];
+		private int count = 0;
+
+		void add(final long id, final long source, final long target) {
+			if (count == ids.length) {
+				final int capacity = ids.length + (ids.length >> 1);
+				ids = Arrays.copyOf(ids, capacity);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+			}
+			ids[count] = id;
+			sources[count] = source;
+			targets[count] = target;
+			count++;
+		}
+
+		/**
+		 * Presize the arrays from the edge count in the pre-metadata
+		 */
+		void presize(final Long expected) {
+			if (expected != null && count == 0 && expected > ids.length && expected < Integer.MAX_VALUE) {
+				ids = new long[expected.intValue()];
+				sources = new long[expected.intValue()];
+				targets = new long[expected.intValue()];
+			}
+		}
+	}
+
+	private void readNode(final JsonParser p, final LongSet seedIds) throws IOException {
+		Long id = null;
+		boolean seed = false;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("@id".equals(field) && t.isNumeric()) {
+				id = p.getLongValue();
+			} else if (("n".equals(field) || "r".equals(field)) && t == JsonToken.VALUE_STRING) {
+				seed |= seeds.contains(p.getText());
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (seed && id != null) {
+			seedIds.add(id);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return hops + "-hop neighborhood of " + seeds;
+	}
+}
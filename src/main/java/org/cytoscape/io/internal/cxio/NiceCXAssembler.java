@@ -0,0 +1,132 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.util.function.Predicate;
+
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.model.cx.NdexNetworkStatus;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+/**
+ * Collects the aspect elements of one CX import into a {@link NiceCXNetwork}, in file order.
+ *
+ * Not thread safe, create one per import.
+ *
+ */
+final class NiceCXAssembler {
+
+	private final NiceCXNetwork niceCX = new NiceCXNetwork();
+
+	// Share attribute names and repeated values for the lifetime of the import
+	private final AttributeInterner interner = new AttributeInterner();
+
+	private final Predicate<AspectElement> filter;
+
+	private long nodeIdCounter = 0;
+	private long edgeIdCounter = 0;
+
+	/**
+	 * @param filter elements to keep, or null to keep all
+	 */
+	NiceCXAssembler(final Predicate<AspectElement> filter) {
+		this.filter = filter;
+	}
+
+	void add(final AspectElement elmt) {
+		if (filter != null && !filter.test(elmt)) {
+			return;
+		}
+		switch (elmt.getAspectName()) {
+		case NodesElement.ASPECT_NAME: // Node
+			NodesElement n = (NodesElement) elmt;
+			niceCX.addNode(n);
+			if (n.getId() > nodeIdCounter)
+				nodeIdCounter = n.getId();
+			break;
+		case NdexNetworkStatus.ASPECT_NAME: // ndexStatus we ignore this in CX
+			break;
+		case EdgesElement.ASPECT_NAME: // Edge
+			EdgesElement ee = interner.intern((EdgesElement) elmt);
+			niceCX.addEdge(ee);
+			if (ee.getId() > edgeIdCounter)
+				edgeIdCounter = ee.getId();
+			break;
+		case NodeAttributesElement.ASPECT_NAME: // node attributes
+			niceCX.addNodeAttribute(interner.intern((NodeAttributesElement) elmt));
+			break;
+		case NetworkAttributesElement.ASPECT_NAME: // network attributes
+			niceCX.addNetworkAttribute((NetworkAttributesElement) elmt);
+			break;
+		case EdgeAttributesElement.ASPECT_NAME: // edge attributes
+			niceCX.addEdgeAttribute(interner.intern((EdgeAttributesElement) elmt));
+			break;
+		case CartesianLayoutElement.ASPECT_NAME: // cartesian layout
+			CartesianLayoutElement e = (CartesianLayoutElement) elmt;
+			niceCX.addNodeAssociatedAspectElement(e.getNode(), e);
+			break;
+		case CyTableColumnElement.ASPECT_NAME: // column declarations, kept as opaque aspect
+			interner.declare((CyTableColumnElement) elmt);
+			niceCX.addOpaqueAspect(elmt);
+			break;
+		default: // opaque aspect
+			niceCX.addOpaqueAspect(elmt);
+		}
+	}
+
+	/**
+	 * Merge the metadata and set the ID counters
+	 * @param metadata pre-metadata, may be null
+	 * @param postmetadata post-metadata, may be null
+	 * @return the network
+	 */
+	NiceCXNetwork finish(MetaDataCollection metadata, final MetaDataCollection postmetadata) {
+		if (metadata == null) {
+			// Partial documents (e.g. selected fragments of a file) may have no pre-metadata
+			metadata = new MetaDataCollection();
+		}
+		if (postmetadata != null) {
+			for (MetaDataElement e : postmetadata) {
+				Long cnt = e.getIdCounter();
+				if (cnt != null) {
+					getElement(metadata, e.getName()).setIdCounter(cnt);
+				}
+				cnt = e.getElementCount();
+				if (cnt != null) {
+					getElement(metadata, e.getName()).setElementCount(cnt);
+				}
+			}
+		}
+
+		Long cxNodeIdCounter = metadata.getIdCounter(NodesElement.ASPECT_NAME);
+		if (cxNodeIdCounter == null || cxNodeIdCounter.longValue() < nodeIdCounter)
+			getElement(metadata, NodesElement.ASPECT_NAME).setIdCounter(Long.valueOf(nodeIdCounter));
+
+		Long cxEdgeIdCounter = metadata.getIdCounter(EdgesElement.ASPECT_NAME);
+		if (cxEdgeIdCounter == null || cxEdgeIdCounter.longValue() < edgeIdCounter)
+			getElement(metadata, EdgesElement.ASPECT_NAME).setIdCounter(Long.valueOf(edgeIdCounter));
+
+		niceCX.setMetadata(metadata);
+		return niceCX;
+	}
+
+	private static MetaDataElement getElement(final MetaDataCollection metadata, final String name) {
+		MetaDataElement e = metadata.getMetaDataElement(name);
+		if (e == null) {
+			e = new MetaDataElement(name, "1.0");
+			metadata.add(e);
+		}
+		return e;
+	}
+
+	AttributeInterner getInterner() {
+		return interner;
+	}
+}
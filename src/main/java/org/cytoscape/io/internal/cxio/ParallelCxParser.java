@@ -0,0 +1,306 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.ndexbio.cxio.core.CxElementReader2;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.core.interfaces.AspectFragmentReader;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses the aspect fragments of a CX file on several threads.
+ *
+ * The input is spooled to a temporary file while a {@link CxStructureScanner} finds the fragment
+ * and element boundaries. Large fragments are cut into slices of about {@link #SLICE_BYTES} at element
+ * boundaries. Every slice is decoded on a worker thread as a small CX document of its own, and the
+ * decoded elements are merged in file order on the calling thread, so the result is the same as
+ * parsing sequentially. Only a window of slices is decoded ahead of the merge, which bounds the
+ * decoded elements held at once.
+ *
+ * Only for CX JSON, binary CX is read by a {@link CxBinaryReader}.
+ *
+ */
+final class ParallelCxParser {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX Parallel Parser");
+
+	/**
+	 * Fragments larger than this are split into slices of about this size
+	 */
+	static final long SLICE_BYTES = 4L << 20;
+
+	/**
+	 * Slices decoded ahead of the merge, per thread
+	 */
+	private static final int WINDOW = 2;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Supplier<Set<AspectFragmentReader>> readers;
+	private final int threads;
+	private final Predicate<AspectElement> filter;
+	private final ParsedNetworkCache cache;
+
+	/**
+	 * @param readers creates the aspect readers for one slice. Every slice gets a new set, but
+	 *            readers in it may be shared, like the additional readers of a {@link CxImporter},
+	 *            so they must be safe to use from several threads
+	 * @param threads number of decoding threads
+	 * @param filter elements to keep, or null to keep all
+	 * @param cache where to look up and store the network by the hash of the spooled content, or
+	 *            null to not cache
+	 */
+	ParallelCxParser(final Supplier<Set<AspectFragmentReader>> readers, final int threads,
+			final Predicate<AspectElement> filter, final ParsedNetworkCache cache) {
+		this.readers = readers;
+		this.threads = threads;
+		this.filter = filter;
+		this.cache = cache;
+	}
+
+	/**
+	 * A fragment, or a run of elements of a fragment
+	 */
+	private static final class Slice {
+		final String aspect;
+		final long offset;
+		final long length;
+		// false if only elements, without the enclosing fragment
+		final boolean whole;
+
+		Slice(final String aspect, final long offset, final long length, final boolean whole) {
+			this.aspect = aspect;
+			this.offset = offset;
+			this.length = length;
+			this.whole = whole;
+		}
+
+		/**
+		 * @return the slice as a CX document
+		 */
+		InputStream open(final File file) {
+			final InputStream range = CxAspectIndex.openRange(file, offset, length);
+			if (whole) {
+				return concat(CxAspectIndex.ascii("["), range, CxAspectIndex.ascii("]"));
+			}
+			// Aspect names are plain ASCII, copied as they were in the file
+			return concat(CxAspectIndex.ascii("[{\"" + aspect + "\":["), range, CxAspectIndex.ascii("]}]"));
+		}
+
+		boolean isMetaData() {
+			return whole && MetaDataCollection.NAME.equals(aspect);
+		}
+	}
+
+	private static InputStream concat(final InputStream... parts) {
+		return new SequenceInputStream(Collections.enumeration(Arrays.asList(parts)));
+	}
+
+	/**
+	 * Cuts fragments into slices while they are scanned
+	 */
+	private static final class Slicer implements CxStructureScanner.Listener {
+		final List<Slice> slices = new ArrayList<>();
+		private long start = -1;
+		private long end = -1;
+		private boolean split = false;
+
+		@Override
+		public void element(final String name, final long offset, final long length) {
+			if (start < 0) {
+				start = offset;
+			}
+			end = offset + length;
+			if (end - start >= SLICE_BYTES) {
+				slices.add(new Slice(name, start, end - start, false));
+				start = -1;
+				split = true;
+			}
+		}
+
+		@Override
+		public void fragment(final String name, final long offset, final long length, final long elementCount) {
+			if (!split) {
+				slices.add(new Slice(name, offset, length, true));
+			} else if (start >= 0) {
+				slices.add(new Slice(name, start, end - start, false));
+			}
+			start = -1;
+			split = false;
+		}
+	}
+
+	NiceCXNetwork parse(final InputStream in) throws IOException {
+		final long t0 = System.currentTimeMillis();
+		final File spool = File.createTempFile("cx-parse", ".tmp");
+		try {
+			final Slicer slicer = new Slicer();
+			final CxStructureScanner scanner = new CxStructureScanner(slicer);
+			final MessageDigest digest = cache == null ? null : ParsedNetworkCache.newDigest();
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(spool), BUFFER_SIZE)) {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					out.write(buffer, 0, n);
+					scanner.update(buffer, 0, n);
+					if (digest != null) {
+						digest.update(buffer, 0, n);
+					}
+				}
+			}
+			if (!scanner.isComplete()) {
+				throw new IOException("Truncated CX: incomplete after " + scanner.getPosition() + " bytes");
+			}
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportTimeDifference(t0, "spool and scan " + slicer.slices.size() + " slices", -1);
+			}
+			if (digest == null) {
+				return parse(spool, slicer.slices);
+			}
+			final String key = ParsedNetworkCache.getKey(digest);
+			final NiceCXNetwork cached = cache.load(key, readers.get());
+			if (cached != null) {
+				return cached;
+			}
+			final NiceCXNetwork niceCX = parse(spool, slicer.slices);
+			cache.store(key, niceCX);
+			return niceCX;
+		} finally {
+			spool.delete();
+		}
+	}
+
+	private NiceCXNetwork parse(final File spool, final List<Slice> slices) throws IOException {
+		final long t0 = System.currentTimeMillis();
+
+		verify(spool, slices);
+
+		// The first metaData fragment is the pre-metadata, any later one the post-metadata
+		MetaDataCollection metadata = null;
+		MetaDataCollection postmetadata = null;
+		boolean first = true;
+		for (final Slice s : slices) {
+			if (s.isMetaData()) {
+				if (first) {
+					metadata = readMetaData(spool, s);
+					first = false;
+				} else {
+					postmetadata = readMetaData(spool, s);
+				}
+			}
+		}
+		if (filter == null) {
+			CxImporter.checkMemory(metadata);
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			final Thread thread = new Thread(r, "CX parser");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			// At most WINDOW slices per thread are decoded ahead of the merge, and merged slices are
+			// dropped, so only a few slices of elements are held besides the network
+			final Deque<Future<List<AspectElement>>> decoded = new ArrayDeque<>();
+			final Iterator<Slice> pending = slices.iterator();
+			final NiceCXAssembler assembler = new NiceCXAssembler(filter);
+			while (true) {
+				while (decoded.size() < WINDOW * threads && pending.hasNext()) {
+					final Slice s = pending.next();
+					if (!s.isMetaData()) {
+						decoded.add(pool.submit(() -> decode(spool, s)));
+					}
+				}
+				final Future<List<AspectElement>> f = decoded.poll();
+				if (f == null) {
+					break;
+				}
+				for (final AspectElement elmt : get(f)) {
+					assembler.add(elmt);
+				}
+			}
+			final NiceCXNetwork niceCX = assembler.finish(metadata, postmetadata);
+			logger.info("Parsed " + slices.size() + " slices on " + threads + " threads");
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportTimeDifference(t0, "niceCX (parallel)", niceCX.getMetadata().size());
+				TimingUtil.reportInterning(assembler.getInterner());
+			}
+			return niceCX;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Slices are standalone documents without the numberVerification aspect of the file, so they
+	 * are decoded without verification. The first fragment of the file, where CX puts
+	 * numberVerification, is read on its own with verification, as the sequential parser does.
+	 */
+	private void verify(final File spool, final List<Slice> slices) throws IOException {
+		if (slices.isEmpty() || !slices.get(0).whole) {
+			return;
+		}
+		try (InputStream in = slices.get(0).open(spool)) {
+			new CxElementReader2(in, readers.get(), true).getPreMetaData();
+		}
+	}
+
+	private List<AspectElement> decode(final File spool, final Slice s) throws IOException {
+		try (InputStream in = s.open(spool)) {
+			final CxElementReader2 r = new CxElementReader2(in, readers.get(), false);
+			final List<AspectElement> elements = new ArrayList<>();
+			for (final AspectElement elmt : r) {
+				elements.add(elmt);
+			}
+			return elements;
+		}
+	}
+
+	private MetaDataCollection readMetaData(final File spool, final Slice s) throws IOException {
+		try (InputStream in = s.open(spool)) {
+			return new CxElementReader2(in, readers.get(), false).getPreMetaData();
+		}
+	}
+
+	private static <T> T get(final Future<T> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing CX", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("Failed to parse CX: " + cause, cause);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cytoscape.application.CyApplicationConfiguration;
+import org.cytoscape.io.internal.CxPreferences;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.ndexbio.cxio.aspects.datamodels.EdgeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.cxio.core.interfaces.AspectFragmentReader;
+import org.ndexbio.model.cx.NiceCXNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in on-disk cache of imported networks, keyed by the SHA-256 of the CX content.
+ *
+ * The content is only hashed where that costs no extra copy: a file is hashed in place through its
+ * channel before it is parsed, and any other input only when {@link ParallelCxParser} spools it
+ * anyway. Other inputs are not cached.
+ *
+ * Snapshots hold the aspects of the parsed {@link NiceCXNetwork} as binary CX, written by a
+ * {@link CxStreamWriter} and read back by a {@link CxBinaryReader} straight into a new network.
+ * The cache is bounded by size, and the least recently used snapshots are evicted first.
+ *
+ */
+public final class ParsedNetworkCache {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX Cache");
+
+	public static final String DIRECTORY_NAME = "cx-cache";
+
+	/**
+	 * Bump to invalidate existing snapshots when the snapshot format changes
+	 */
+	private static final String FORMAT_VERSION = "v2-";
+	private static final String SUFFIX = "." + CxBinaryFormat.EXTENSION;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File directory;
+	private final long maxBytes;
+
+	public ParsedNetworkCache(final File directory, final long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the cache configured in the preferences, or null if caching is disabled
+	 */
+	public static ParsedNetworkCache fromPreferences() {
+		if (!CxPreferences.getCacheEnabled()) {
+			return null;
+		}
+		final CyApplicationConfiguration config = CyServiceModule.getService(CyApplicationConfiguration.class);
+		final File directory = new File(config.getConfigurationDirectoryLocation(), DIRECTORY_NAME);
+		return new ParsedNetworkCache(directory, CxPreferences.getCacheMaxSizeMB() * 1024L * 1024L);
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * @param digest the digest of the whole content
+	 * @return the cache key of the content
+	 */
+	static String getKey(final MessageDigest digest) {
+		final byte[] bytes = digest.digest();
+		final StringBuilder sb = new StringBuilder(FORMAT_VERSION.length() + bytes.length * 2);
+		sb.append(FORMAT_VERSION);
+		for (final byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Hash the rest of a file from the current position of its channel, which is left unchanged
+	 * @param channel
+	 * @return the cache key of the content
+	 * @throws IOException
+	 */
+	static String getKey(final FileChannel channel) throws IOException {
+		final MessageDigest digest = newDigest();
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = channel.position();
+		int n;
+		while ((n = channel.read(buffer, position)) > 0) {
+			buffer.flip();
+			digest.update(buffer);
+			buffer.clear();
+			position += n;
+		}
+		return getKey(digest);
+	}
+
+	private File getSnapshot(final String key) {
+		return new File(directory, key + SUFFIX);
+	}
+
+	/**
+	 * @param key
+	 * @param readers aspect readers of the import
+	 * @return the cached network, or null if it is not in the cache
+	 */
+	NiceCXNetwork load(final String key, final Set<AspectFragmentReader> readers) {
+		final File snapshot = getSnapshot(key);
+		if (!snapshot.isFile()) {
+			return null;
+		}
+		final long t0 = System.currentTimeMillis();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(snapshot), BUFFER_SIZE)) {
+			final NiceCXNetwork niceCX = CxImporter.readBinary(in, readers, null);
+			// Last modified time orders the LRU eviction
+			snapshot.setLastModified(System.currentTimeMillis());
+			logger.info("Loaded network from cache " + snapshot.getName());
+			if (Settings.INSTANCE.isTiming()) {
+				TimingUtil.reportTimeDifference(t0, "niceCX (cached)", niceCX.getMetadata().size());
+			}
+			return niceCX;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Discarding unreadable cache entry " + snapshot.getName(), e);
+			snapshot.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Write the snapshot of a successfully parsed network, then evict old snapshots. Failures are
+	 * logged, the import goes on without caching.
+	 * @param key
+	 * @param niceCX
+	 */
+	void store(final String key, final NiceCXNetwork niceCX) {
+		final File snapshot = getSnapshot(key);
+		final File partial = new File(directory, snapshot.getName() + ".part");
+		final long t0 = System.currentTimeMillis();
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Failed to create cache directory " + directory);
+			}
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partial), BUFFER_SIZE)) {
+				write(niceCX, out);
+			}
+			Files.move(partial.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Failed to cache network snapshot", e);
+			partial.delete();
+			return;
+		}
+		logger.info("Cached network snapshot " + snapshot.getName() + " (" + snapshot.length() + " bytes)");
+		if (Settings.INSTANCE.isTiming()) {
+			TimingUtil.reportTimeDifference(t0, "cache snapshot", -1);
+		}
+		evict();
+	}
+
+	/**
+	 * Write the aspects a {@link NiceCXAssembler} puts in a network, so reading them back builds
+	 * the same network
+	 */
+	static void write(final NiceCXNetwork niceCX, final OutputStream out) throws IOException {
+		final CxStreamWriter writer = CxStreamWriter.binary(out);
+		writer.addPreMetaData(niceCX.getMetadata());
+		writer.start();
+		writeFragment(writer, NodesElement.ASPECT_NAME, Collections.singleton(niceCX.getNodes().values()));
+		writeFragment(writer, EdgesElement.ASPECT_NAME, Collections.singleton(niceCX.getEdges().values()));
+		writeFragment(writer, NetworkAttributesElement.ASPECT_NAME, Collections.singleton(niceCX.getNetworkAttributes()));
+		writeFragment(writer, NodeAttributesElement.ASPECT_NAME, niceCX.getNodeAttributes().values());
+		writeFragment(writer, EdgeAttributesElement.ASPECT_NAME, niceCX.getEdgeAttributes().values());
+		for (final Map.Entry<String, Map<Long, Collection<AspectElement>>> aspect : niceCX.getNodeAssociatedAspects().entrySet()) {
+			writeFragment(writer, aspect.getKey(), aspect.getValue().values());
+		}
+		for (final Map.Entry<String, Map<Long, Collection<AspectElement>>> aspect : niceCX.getEdgeAssociatedAspects().entrySet()) {
+			writeFragment(writer, aspect.getKey(), aspect.getValue().values());
+		}
+		for (final Map.Entry<String, Collection<AspectElement>> aspect : niceCX.getOpaqueAspectTable().entrySet()) {
+			writeFragment(writer, aspect.getKey(), Collections.singleton(aspect.getValue()));
+		}
+		writer.end(true, null);
+	}
+
+	/**
+	 * Write the elements of one aspect, grouped e.g. by node, as one fragment
+	 */
+	private static void writeFragment(final CxStreamWriter writer, final String aspect,
+			final Collection<? extends Collection<? extends AspectElement>> groups) throws IOException {
+		final List<AspectElement> batch = new ArrayList<>(CxStreamWriter.BATCH_SIZE);
+		boolean started = false;
+		for (final Collection<? extends AspectElement> elements : groups) {
+			if (elements == null) {
+				continue;
+			}
+			for (final AspectElement elmt : elements) {
+				if (!started) {
+					writer.startAspectFragment(aspect);
+					started = true;
+				}
+				batch.add(elmt);
+				if (batch.size() == CxStreamWriter.BATCH_SIZE) {
+					writer.writeAspectElements(batch);
+					batch.clear();
+				}
+			}
+		}
+		if (started) {
+			writer.writeAspectElements(batch);
+			writer.endAspectFragment();
+		}
+	}
+
+	/**
+	 * Delete least recently used snapshots until the cache fits its size limit
+	 */
+	synchronized void evict() {
+		final File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null) {
+			return;
+		}
+		long total = 0;
+		for (final File f : files) {
+			total += f.length();
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int i = 0; i < files.length && total > maxBytes; i++) {
+			final long length = files[i].length();
+			if (files[i].delete()) {
+				total -= length;
+				logger.info("Evicted network snapshot " + files[i].getName());
+			}
+		}
+	}
+}
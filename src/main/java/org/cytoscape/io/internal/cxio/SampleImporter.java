@@ -0,0 +1,209 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.cytoscape.io.internal.CxPreferences;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Imports a bounded random sample of a CX network for a quick preview, with the attributes,
+ * layout and style of the sampled nodes and edges.
+ *
+ * <ul>
+ * <li>{@link Method#NODES}: a uniform sample of nodes, with the edges between them</li>
+ * <li>{@link Method#EDGES}: every edge with probability size / edge count, from the metadata
+ * count, with their end nodes. The sample size is approximate</li>
+ * <li>{@link Method#RESERVOIR}: a uniform sample of exactly size edges (if there are that many),
+ * with their end nodes. Needs no edge count</li>
+ * </ul>
+ *
+ */
+public final class SampleImporter extends CxSubsetImporter {
+
+	public enum Method {
+		NODES, EDGES, RESERVOIR
+	}
+
+	/**
+	 * Seed of samples unless one is given, so that sampling a file again gives the same sample
+	 */
+	public static final long DEFAULT_SEED = 1L;
+
+	private final Method method;
+	private final int size;
+	private final long seed;
+
+	/**
+	 * @param method
+	 * @param size number of nodes for {@link Method#NODES}, of edges otherwise
+	 * @param seed seed of the random sample, the same seed gives the same sample of the same file
+	 */
+	public SampleImporter(final Method method, final int size, final long seed) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Sample size must be positive: " + size);
+		}
+		this.method = method;
+		this.size = size;
+		this.seed = seed;
+	}
+
+	/**
+	 * A preview sample, small enough for its view to be created automatically
+	 * @param method
+	 * @return
+	 */
+	public static SampleImporter preview(final Method method) {
+		return new SampleImporter(method, getPreviewSize(), DEFAULT_SEED);
+	}
+
+	/**
+	 * @return the size of a sample small enough for its view to be created automatically
+	 */
+	public static int getPreviewSize() {
+		// Nodes and edges are compared to the view threshold. Edge samples have at most two nodes
+		// per edge, node samples are assumed to have up to two edges per node
+		return Math.max(1, CxPreferences.getViewThreshold() / 3);
+	}
+
+	@Override
+	protected ElementSelection select(final Spool spool) throws IOException {
+		// A new generator for every import, so that an importer gives the same sample every time
+		final Random random = new Random(seed);
+		final ElementSelection selection = method == Method.NODES ? sampleNodes(spool, random)
+				: sampleEdges(spool, random);
+		if (selection.getNodes().isEmpty()) {
+			throw new IOException("The network has no " + (method == Method.NODES ? "nodes" : "edges") + " to sample");
+		}
+		return selection;
+	}
+
+	/**
+	 * Reservoir sample of node IDs, then a second pass for the edges between them
+	 */
+	private ElementSelection sampleNodes(final Spool spool, final Random random) throws IOException {
+		final long[] reservoir = new long[size];
+		final long[] seen = { 0 };
+		try (InputStream json = spool.open()) {
+			forEachElement(json, (aspect, p) -> {
+				if (!NodesElement.ASPECT_NAME.equals(aspect)) {
+					return false;
+				}
+				final Long id = readId(p);
+				if (id != null) {
+					final int i = slot(seen[0]++, random);
+					if (i >= 0) {
+						reservoir[i] = id;
+					}
+				}
+				return true;
+			});
+		}
+
+		final LongSet nodes = new LongSet(size);
+		for (int i = 0; i < Math.min(seen[0], size); i++) {
+			nodes.add(reservoir[i]);
+		}
+		final LongSet edges = new LongSet();
+		try (InputStream json = spool.open()) {
+			forEachElement(json, (aspect, p) -> {
+				if (!EdgesElement.ASPECT_NAME.equals(aspect)) {
+					return false;
+				}
+				readEdge(p, (id, source, target) -> {
+					if (nodes.contains(source) && nodes.contains(target)) {
+						edges.add(id);
+					}
+				});
+				return true;
+			});
+		}
+		return new ElementSelection(nodes, edges, null, null);
+	}
+
+	private ElementSelection sampleEdges(final Spool spool, final Random random) throws IOException {
+		final Map<String, Long> counts = new HashMap<>();
+		// ID, source and target of the sampled edges
+		final long[][] reservoir = new long[3][size];
+		final long[] seen = { 0 };
+		final LongSet nodes = new LongSet();
+		final LongSet edges = new LongSet();
+
+		try (InputStream json = spool.open()) {
+			forEachElement(json, (aspect, p) -> {
+				switch (aspect) {
+				case MetaDataCollection.NAME:
+					readMetaData(p, counts);
+					return true;
+				case EdgesElement.ASPECT_NAME:
+					readEdge(p, (id, source, target) -> {
+						final Long total = counts.get(EdgesElement.ASPECT_NAME);
+						if (method == Method.EDGES && total != null && total > 0) {
+							if (random.nextDouble() * total < size) {
+								edges.add(id);
+								nodes.add(source);
+								nodes.add(target);
+							}
+						} else {
+							final int i = slot(seen[0]++, random);
+							if (i >= 0) {
+								reservoir[0][i] = id;
+								reservoir[1][i] = source;
+								reservoir[2][i] = target;
+							}
+						}
+					});
+					return true;
+				default:
+					return false;
+				}
+			});
+		}
+
+		for (int i = 0; i < Math.min(seen[0], size); i++) {
+			edges.add(reservoir[0][i]);
+			nodes.add(reservoir[1][i]);
+			nodes.add(reservoir[2][i]);
+		}
+		return new ElementSelection(nodes, edges, null, null);
+	}
+
+	/**
+	 * Algorithm R: the n-th item (from 0) replaces a random reservoir slot with probability size / (n + 1)
+	 * @return the slot to store the item in, or -1 to drop it
+	 */
+	private int slot(final long n, final Random random) {
+		if (n < size) {
+			return (int) n;
+		}
+		final long j = (long) (random.nextDouble() * (n + 1));
+		return j < size ? (int) j : -1;
+	}
+
+	private static Long readId(final JsonParser p) throws IOException {
+		Long id = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("@id".equals(field) && t.isNumeric()) {
+				id = p.getLongValue();
+			} else {
+				p.skipChildren();
+			}
+		}
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return method.name().toLowerCase() + " sample of " + size;
+	}
+}
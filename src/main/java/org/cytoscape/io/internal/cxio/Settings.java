@@ -1,11 +1,18 @@
 package org.cytoscape.io.internal.cxio;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.cytoscape.model.CyNetwork;
 
+/**
+ * Export settings. {@link #INSTANCE} holds the defaults, each export works on its own copy so
+ * that changing the defaults does not affect exports that are running.
+ *
+ */
 public final class Settings {
 
     public final static Settings INSTANCE                                                              = new Settings();
@@ -15,34 +22,25 @@ public final class Settings {
     private static final boolean WRITE_SELECTED_ONLY_IF_TRUE_DEFAULT                                   = true;
     private static final boolean TIMING_DEFAULT                                                        = true;
 
-	public final static Set<String> IGNORE_EDGE_ATTRIBUTES = new HashSet<>();
-	public final static Set<String> IGNORE_NODE_ATTRIBUTES = new HashSet<>();
-	public final static Set<String> IGNORE_NETWORK_ATTRIBUTES = new HashSet<>();
+	public final static Set<String> IGNORE_EDGE_ATTRIBUTES = ignoreSet();
+	public final static Set<String> IGNORE_NODE_ATTRIBUTES = ignoreSet(CxUtil.REPRESENTS);
+	public final static Set<String> IGNORE_NETWORK_ATTRIBUTES = ignoreSet();
 
-	public final static Set<String> IGNORE_SINGLE_NETWORK_EDGE_ATTRIBUTES = new HashSet<>();
-	public final static Set<String> IGNORE_SINGLE_NETWORK_NODE_ATTRIBUTES = new HashSet<>();
-	public final static Set<String> IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES = new HashSet<>();
+	public final static Set<String> IGNORE_SINGLE_NETWORK_EDGE_ATTRIBUTES = ignoreSet(CxUtil.INTERACTION,
+			CxUtil.SHARED_INTERACTION, CxUtil.SHARED_NAME);
+	public final static Set<String> IGNORE_SINGLE_NETWORK_NODE_ATTRIBUTES = ignoreSet(CxUtil.NAME, CxUtil.SHARED_NAME);
+	public final static Set<String> IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES = ignoreSet(CxUtil.SHARED_NAME,
+			CxUtil.SELECTED);
 
-	
-	static {
-		IGNORE_NODE_ATTRIBUTES.add(CxUtil.REPRESENTS);
-		
-		IGNORE_SINGLE_NETWORK_NODE_ATTRIBUTES.add(CxUtil.NAME);
-		IGNORE_SINGLE_NETWORK_NODE_ATTRIBUTES.add(CxUtil.SHARED_NAME);
-		
-		IGNORE_SINGLE_NETWORK_EDGE_ATTRIBUTES.add(CxUtil.INTERACTION);
-		IGNORE_SINGLE_NETWORK_EDGE_ATTRIBUTES.add(CxUtil.SHARED_INTERACTION);
-		IGNORE_SINGLE_NETWORK_EDGE_ATTRIBUTES.add(CxUtil.SHARED_NAME);
-		
-		IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES.add(CxUtil.SHARED_NAME);
-		IGNORE_SINGLE_NETWORK_NETWORK_ATTRIBUTES.add(CxUtil.SELECTED);
-		
+	// Shared by concurrent exports, so never modified
+	private static Set<String> ignoreSet(final String... columns) {
+		return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(columns)));
 	}
 	
-    private boolean              _timing                                                               = TIMING_DEFAULT;
-    private boolean              _ignore_selected_column                                               = IGNORE_SELECTED_COLUMN_DEFAULT;
-    private boolean              _write_selected_only_if_true                                          = WRITE_SELECTED_ONLY_IF_TRUE_DEFAULT;
-    private boolean              _ignore_suid_column                                                   = IGNORE_SUID_COLUMN_DEFAULT;
+    private volatile boolean     _timing                                                               = TIMING_DEFAULT;
+    private volatile boolean     _ignore_selected_column                                               = IGNORE_SELECTED_COLUMN_DEFAULT;
+    private volatile boolean     _write_selected_only_if_true                                          = WRITE_SELECTED_ONLY_IF_TRUE_DEFAULT;
+    private volatile boolean     _ignore_suid_column                                                   = IGNORE_SUID_COLUMN_DEFAULT;
     
 
     public boolean isIgnoreSelectedColumn() {
@@ -77,7 +75,15 @@ public final class Settings {
         _write_selected_only_if_true = write_selected_only_if_true;
     }
     
+    /**
+     * Whether to skip a column value, according to the default settings
+     * @see #ignores(String, Set, Object)
+     */
     public final static boolean isIgnore(final String column_name, final Set<String> additional_to_ignore, Object value) {
+    	return INSTANCE.ignores(column_name, additional_to_ignore, value);
+    }
+
+    public boolean ignores(final String column_name, final Set<String> additional_to_ignore, final Object value) {
     	
     	if (value instanceof String && ((String) value).isEmpty()) {
     		return true;
@@ -88,24 +94,39 @@ public final class Settings {
     	
     	switch (column_name) {
 		case CyNetwork.SUID:
-			return Settings.INSTANCE.isIgnoreSuidColumn();
+			return isIgnoreSuidColumn();
 		case CyNetwork.SELECTED:
 			Boolean boolVal = value == null ? false : Boolean.valueOf(value.toString());
-			return Settings.INSTANCE.isIgnoreSelectedColumn()
-					|| (boolVal != true && Settings.INSTANCE.isWriteSelectedOnlyIfTrue());
+			return isIgnoreSelectedColumn()
+					|| (boolVal != true && isWriteSelectedOnlyIfTrue());
 		case CxUtil.CX_ID_MAPPING:
 		case CxUtil.CX_METADATA:
 			return true;
 		default:
+			if (column_name.startsWith(CxUtil.BYPASS_COLUMN_PREFIX)) {
+				// Generated from bypasses on import, exported as bypasses again
+				return true;
+			}
 			return ((additional_to_ignore != null) && additional_to_ignore.contains(column_name));
 		}
 	}
-	
 
-    private Settings() {
-        // hidden constructor
+    /**
+     * @return a snapshot of these settings, for one export
+     */
+    public Settings copy() {
+        final Settings copy = new Settings();
+        copy._timing = _timing;
+        copy._ignore_selected_column = _ignore_selected_column;
+        copy._write_selected_only_if_true = _write_selected_only_if_true;
+        copy._ignore_suid_column = _ignore_suid_column;
+        return copy;
     }
 
-	
+    /**
+     * Settings with the default values, independent of {@link #INSTANCE}
+     */
+    public Settings() {
+    }
 
 }
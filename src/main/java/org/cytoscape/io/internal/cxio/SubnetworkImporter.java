@@ -0,0 +1,176 @@
+package org.cytoscape.io.internal.cxio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
+import org.ndexbio.cxio.aspects.datamodels.SubNetworkElement;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Imports only the selected subnetworks of a CX collection, with their nodes, edges, attributes,
+ * layouts and views.
+ *
+ * Subnetworks are selected by name, or by their ID in the file, which is needed for names shared
+ * by several subnetworks. Membership is resolved from the networkRelations and subNetworks aspects
+ * in the first pass, which keeps only the member IDs.
+ *
+ */
+public final class SubnetworkImporter extends CxSubsetImporter {
+
+	private final Collection<String> selectors;
+
+	/**
+	 * @param selectors subnetwork names or IDs
+	 */
+	public SubnetworkImporter(final Collection<String> selectors) {
+		if (selectors == null || selectors.isEmpty()) {
+			throw new IllegalArgumentException("No subnetworks selected");
+		}
+		this.selectors = selectors;
+	}
+
+	@Override
+	protected ElementSelection select(final Spool spool) throws IOException {
+		final Map<Long, String> names = new LinkedHashMap<>();
+		final Map<Long, Long> viewParents = new HashMap<>();
+		final Map<Long, LongSet[]> members = new HashMap<>();
+
+		try (InputStream json = spool.open()) {
+			forEachElement(json, (aspect, p) -> {
+				switch (aspect) {
+				case NetworkRelationsElement.ASPECT_NAME:
+					readRelation(p, names, viewParents);
+					return true;
+				case SubNetworkElement.ASPECT_NAME:
+					readSubNetwork(p, members);
+					return true;
+				default:
+					return false;
+				}
+			});
+		}
+		if (members.isEmpty()) {
+			throw new IOException("Subnetworks can only be selected from a collection, this network has none");
+		}
+
+		final LongSet subnetworks = new LongSet();
+		for (final String selector : selectors) {
+			final Long id = resolve(selector, names, members);
+			if (id == null) {
+				throw new IOException("No subnetwork named \"" + selector + "\". Subnetworks are: " + names.values());
+			}
+			subnetworks.add(id);
+		}
+
+		final LongSet nodes = new LongSet();
+		final LongSet edges = new LongSet();
+		subnetworks.forEach(id -> {
+			final LongSet[] m = members.get(id);
+			if (m != null) {
+				nodes.addAll(m[0]);
+				edges.addAll(m[1]);
+			}
+		});
+		final LongSet views = new LongSet();
+		viewParents.forEach((view, parent) -> {
+			if (subnetworks.contains(parent)) {
+				views.add(view);
+			}
+		});
+		return new ElementSelection(nodes, edges, subnetworks, views);
+	}
+
+	/**
+	 * @return the ID of the subnetwork named or identified by the selector, or null if there is none
+	 * @throws IOException if more than one subnetwork has that name
+	 */
+	private static Long resolve(final String selector, final Map<Long, String> names, final Map<Long, LongSet[]> members)
+			throws IOException {
+		final List<Long> matches = new ArrayList<>();
+		names.forEach((id, name) -> {
+			if (selector.equals(name)) {
+				matches.add(id);
+			}
+		});
+		if (matches.size() == 1) {
+			return matches.get(0);
+		}
+		try {
+			final Long id = Long.valueOf(selector.trim());
+			if (members.containsKey(id)) {
+				return id;
+			}
+		} catch (NumberFormatException e) {
+			// Not an ID
+		}
+		if (matches.size() > 1) {
+			throw new IOException("More than one subnetwork is named \"" + selector + "\", select one by ID: " + matches);
+		}
+		return null;
+	}
+
+	private static void readRelation(final JsonParser p, final Map<Long, String> names,
+			final Map<Long, Long> viewParents) throws IOException {
+		Long parent = null, child = null;
+		String relationship = NetworkRelationsElement.TYPE_SUBNETWORK, name = null;
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("p".equals(field) && t.isNumeric()) {
+				parent = p.getLongValue();
+			} else if ("c".equals(field) && t.isNumeric()) {
+				child = p.getLongValue();
+			} else if ("r".equals(field)) {
+				relationship = p.getText();
+			} else if ("name".equals(field)) {
+				name = p.getText();
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (child == null) {
+			return;
+		}
+		if (NetworkRelationsElement.TYPE_VIEW.equals(relationship)) {
+			viewParents.put(child, parent);
+		} else {
+			names.put(child, name);
+		}
+	}
+
+	private static void readSubNetwork(final JsonParser p, final Map<Long, LongSet[]> members) throws IOException {
+		Long id = null;
+		final LongSet nodes = new LongSet();
+		final LongSet edges = new LongSet();
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = p.getCurrentName();
+			final JsonToken t = p.nextToken();
+			if ("@id".equals(field) && t.isNumeric()) {
+				id = p.getLongValue();
+			} else if ("nodes".equals(field) && t == JsonToken.START_ARRAY) {
+				readIds(p, nodes);
+			} else if ("edges".equals(field) && t == JsonToken.START_ARRAY) {
+				readIds(p, edges);
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (id != null) {
+			members.put(id, new LongSet[] { nodes, edges });
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "subnetworks " + selectors;
+	}
+}
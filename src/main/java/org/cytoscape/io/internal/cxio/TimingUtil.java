@@ -23,5 +23,9 @@ public final class TimingUtil {
             System.out.println(String.format("%-20s%-8s: %s ms", label, " ", (System.currentTimeMillis() - t0)));
         }
     }
+    
+    public final static void reportInterning(final AttributeInterner interner) {
+        System.out.println(String.format("%-20s%-8s: ~%s KB saved", "interning", interner.getSharedCount(), interner.getSavedBytes() / 1024));
+    }
 
 }
@@ -0,0 +1,374 @@
+package org.cytoscape.io.internal.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Fruchterman-Reingold force directed layout, with repulsion approximated by a Barnes-Hut quadtree,
+ * on primitive coordinate arrays.
+ *
+ * Each iteration builds the quadtree on the calling thread, then computes the displacement of
+ * every node on the worker threads, each thread owning a contiguous range of nodes. Attraction is
+ * summed per node over a compressed adjacency list, so no two threads write the same slot.
+ *
+ */
+public final class BarnesHutLayout {
+
+	// Deeper cells only hold (nearly) coincident nodes
+	private static final int MAX_DEPTH = 48;
+
+	// Pull towards the center, keeps disconnected components together
+	private static final double GRAVITY = 0.01;
+
+	private final double[] x;
+	private final double[] y;
+	private final int n;
+
+	// Compressed adjacency: neighbors of i are adjacency[offsets[i]] .. adjacency[offsets[i + 1] - 1]
+	private final int[] offsets;
+	private final int[] adjacency;
+
+	private final double[] dispX;
+	private final double[] dispY;
+
+	private double edgeLength = 80;
+	private double theta = 1.0;
+
+	private final QuadTree tree = new QuadTree();
+
+	/**
+	 * @param x node X positions, laid out in place
+	 * @param y node Y positions, laid out in place
+	 * @param sources edge sources, as node indices
+	 * @param targets edge targets, as node indices
+	 */
+	public BarnesHutLayout(final double[] x, final double[] y, final int[] sources, final int[] targets) {
+		if (x.length != y.length || sources.length != targets.length) {
+			throw new IllegalArgumentException("Coordinate and edge arrays must have the same lengths");
+		}
+		this.x = x;
+		this.y = y;
+		this.n = x.length;
+		this.dispX = new double[n];
+		this.dispY = new double[n];
+
+		offsets = new int[n + 1];
+		for (int e = 0; e < sources.length; e++) {
+			if (sources[e] != targets[e]) {
+				offsets[sources[e] + 1]++;
+				offsets[targets[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		adjacency = new int[offsets[n]];
+		final int[] fill = Arrays.copyOf(offsets, n);
+		for (int e = 0; e < sources.length; e++) {
+			if (sources[e] != targets[e]) {
+				adjacency[fill[sources[e]]++] = targets[e];
+				adjacency[fill[targets[e]]++] = sources[e];
+			}
+		}
+	}
+
+	public void setEdgeLength(final double edgeLength) {
+		this.edgeLength = edgeLength;
+	}
+
+	public void setTheta(final double theta) {
+		this.theta = theta;
+	}
+
+	/**
+	 * Place all nodes at random in a square sized for the number of nodes, if they are not already
+	 * spread out
+	 * @param seed
+	 * @return true if the nodes were placed
+	 */
+	public boolean randomizeIfCollapsed(final long seed) {
+		for (int i = 1; i < n; i++) {
+			if (x[i] != x[0] || y[i] != y[0]) {
+				return false;
+			}
+		}
+		final Random random = new Random(seed);
+		final double side = edgeLength * Math.sqrt(n);
+		for (int i = 0; i < n; i++) {
+			x[i] = random.nextDouble() * side;
+			y[i] = random.nextDouble() * side;
+		}
+		return true;
+	}
+
+	/**
+	 * @param iterations
+	 * @param threads
+	 * @param cancelled checked before each iteration
+	 * @param progress receives the fraction of iterations done
+	 * @return false if cancelled
+	 */
+	public boolean run(final int iterations, final int threads, final BooleanSupplier cancelled,
+			final DoubleConsumer progress) {
+		if (n < 2) {
+			return true;
+		}
+		final int chunks = Math.max(1, Math.min(threads, n / 1024 + 1));
+		final ExecutorService pool = chunks == 1 ? null : Executors.newFixedThreadPool(chunks, r -> {
+			final Thread thread = new Thread(r, "CX force layout");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final double start = edgeLength * Math.sqrt(n) / 4;
+			for (int it = 0; it < iterations; it++) {
+				if (cancelled.getAsBoolean()) {
+					return false;
+				}
+				// Linear cooling down to a small fraction of the edge length
+				final double temperature = Math.max(start * (1 - (double) it / iterations), edgeLength / 50);
+				tree.build(x, y, n);
+				final double cx = tree.centerX();
+				final double cy = tree.centerY();
+				if (pool == null) {
+					displace(0, n, cx, cy, new int[4 * MAX_DEPTH + 8]);
+				} else {
+					runChunks(pool, chunks, cx, cy);
+				}
+				move(temperature);
+				progress.accept((it + 1) / (double) iterations);
+			}
+			return true;
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private void runChunks(final ExecutorService pool, final int chunks, final double cx, final double cy) {
+		final List<Future<?>> futures = new ArrayList<>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			final int from = (int) ((long) n * c / chunks);
+			final int to = (int) ((long) n * (c + 1) / chunks);
+			futures.add(pool.submit(() -> displace(from, to, cx, cy, new int[4 * MAX_DEPTH + 8])));
+		}
+		for (final Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted during layout", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Layout failed: " + e.getCause(), e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Displacement of nodes from (inclusive) to to (exclusive)
+	 */
+	private void displace(final int from, final int to, final double cx, final double cy, final int[] stack) {
+		final double k = edgeLength;
+		final double k2 = k * k;
+		final double theta2 = theta * theta;
+		for (int i = from; i < to; i++) {
+			final double xi = x[i];
+			final double yi = y[i];
+			double fx = 0;
+			double fy = 0;
+
+			// Repulsion, k^2 / d for each node, from the cells of the quadtree
+			int top = 0;
+			stack[top++] = 0;
+			while (top > 0) {
+				final int cell = stack[--top];
+				final int count = tree.count[cell];
+				if (count == 0 || (tree.isLeaf(cell) && count == 1 && tree.body[cell] == i)) {
+					continue;
+				}
+				double dx = xi - tree.sumX[cell] / count;
+				double dy = yi - tree.sumY[cell] / count;
+				double d2 = dx * dx + dy * dy;
+				final double size = tree.size[cell];
+				if (tree.isLeaf(cell) || size * size < theta2 * d2) {
+					if (d2 < 1e-6) {
+						// Coincident: push apart in a direction fixed per node
+						final double angle = i * 2.399963229728653;
+						dx = Math.cos(angle) * 0.01;
+						dy = Math.sin(angle) * 0.01;
+						d2 = 1e-4;
+					}
+					final double f = k2 * count / d2;
+					fx += dx * f;
+					fy += dy * f;
+				} else {
+					final int first = tree.firstChild[cell];
+					stack[top++] = first;
+					stack[top++] = first + 1;
+					stack[top++] = first + 2;
+					stack[top++] = first + 3;
+				}
+			}
+
+			// Attraction, d^2 / k along each edge
+			for (int a = offsets[i]; a < offsets[i + 1]; a++) {
+				final int j = adjacency[a];
+				final double dx = xi - x[j];
+				final double dy = yi - y[j];
+				final double d = Math.sqrt(dx * dx + dy * dy);
+				fx -= dx * d / k;
+				fy -= dy * d / k;
+			}
+
+			fx -= GRAVITY * (xi - cx);
+			fy -= GRAVITY * (yi - cy);
+			dispX[i] = fx;
+			dispY[i] = fy;
+		}
+	}
+
+	private void move(final double temperature) {
+		for (int i = 0; i < n; i++) {
+			final double length = Math.sqrt(dispX[i] * dispX[i] + dispY[i] * dispY[i]);
+			if (length > 0) {
+				final double step = Math.min(length, temperature) / length;
+				x[i] += dispX[i] * step;
+				y[i] += dispY[i] * step;
+			}
+		}
+	}
+
+	/**
+	 * Quadtree over node indices, as parallel arrays of cells. Children of a cell are 4
+	 * consecutive cells
+	 */
+	private static final class QuadTree {
+		double[] minX = new double[64];
+		double[] minY = new double[64];
+		double[] size = new double[64];
+		double[] sumX = new double[64];
+		double[] sumY = new double[64];
+		int[] count = new int[64];
+		int[] firstChild = new int[64];
+		// Node of a leaf cell
+		int[] body = new int[64];
+		int cells;
+
+		private double[] x;
+		private double[] y;
+
+		void build(final double[] x, final double[] y, final int n) {
+			this.x = x;
+			this.y = y;
+			double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+			double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				x0 = Math.min(x0, x[i]);
+				y0 = Math.min(y0, y[i]);
+				x1 = Math.max(x1, x[i]);
+				y1 = Math.max(y1, y[i]);
+			}
+			cells = 0;
+			newCell(x0, y0, Math.max(x1 - x0, y1 - y0) + 1);
+			for (int i = 0; i < n; i++) {
+				insert(i);
+			}
+		}
+
+		double centerX() {
+			return sumX[0] / count[0];
+		}
+
+		double centerY() {
+			return sumY[0] / count[0];
+		}
+
+		boolean isLeaf(final int cell) {
+			return firstChild[cell] < 0;
+		}
+
+		private void insert(final int b) {
+			int cell = 0;
+			int depth = 0;
+			while (true) {
+				if (isLeaf(cell)) {
+					if (count[cell] == 0) {
+						body[cell] = b;
+						add(cell, b);
+						return;
+					}
+					if (depth >= MAX_DEPTH) {
+						add(cell, b);
+						return;
+					}
+					// Split, and move the node of the leaf down
+					final int old = body[cell];
+					body[cell] = -1;
+					split(cell);
+					final int child = firstChild[cell] + quadrant(cell, old);
+					body[child] = old;
+					add(child, old);
+				}
+				add(cell, b);
+				cell = firstChild[cell] + quadrant(cell, b);
+				depth++;
+			}
+		}
+
+		private void add(final int cell, final int b) {
+			sumX[cell] += x[b];
+			sumY[cell] += y[b];
+			count[cell]++;
+		}
+
+		private int quadrant(final int cell, final int b) {
+			final double half = size[cell] / 2;
+			return (x[b] >= minX[cell] + half ? 1 : 0) + (y[b] >= minY[cell] + half ? 2 : 0);
+		}
+
+		private void split(final int cell) {
+			final double half = size[cell] / 2;
+			final double x0 = minX[cell];
+			final double y0 = minY[cell];
+			// Cells may be reallocated, read the parent first
+			final int first = newCell(x0, y0, half);
+			newCell(x0 + half, y0, half);
+			newCell(x0, y0 + half, half);
+			newCell(x0 + half, y0 + half, half);
+			firstChild[cell] = first;
+		}
+
+		private int newCell(final double x0, final double y0, final double s) {
+			if (cells == count.length) {
+				final int capacity = cells * 2;
+				minX = Arrays.copyOf(minX, capacity);
+				minY = Arrays.copyOf(minY, capacity);
+				size = Arrays.copyOf(size, capacity);
+				sumX = Arrays.copyOf(sumX, capacity);
+				sumY = Arrays.copyOf(sumY, capacity);
+				count = Arrays.copyOf(count, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				body = Arrays.copyOf(body, capacity);
+			}
+			final int c = cells++;
+			minX[c] = x0;
+			minY[c] = y0;
+			size[c] = s;
+			sumX[c] = 0;
+			sumY[c] = 0;
+			count[c] = 0;
+			firstChild[c] = -1;
+			body[c] = -1;
+			return c;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package org.cytoscape.io.internal.layout;
+
+import java.util.Set;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractLayoutAlgorithm;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.undo.UndoSupport;
+
+/**
+ * Force directed layout for large networks, run on all processors. See {@link BarnesHutLayout}.
+ *
+ * Used by the CX reader for views without positions above the large layout threshold, where the
+ * force directed layout of Cytoscape is too slow.
+ *
+ */
+public class ParallelForceLayout extends AbstractLayoutAlgorithm {
+
+	public static final String NAME = "cx-parallel-force-directed";
+
+	public ParallelForceLayout(final UndoSupport undo) {
+		super(NAME, "Parallel Force Directed (Barnes-Hut)", undo);
+	}
+
+	@Override
+	public TaskIterator createTaskIterator(final CyNetworkView networkView, final Object layoutContext,
+			final Set<View<CyNode>> nodesToLayOut, final String layoutAttribute) {
+		return new TaskIterator(new ParallelForceLayoutTask(toString(), networkView, nodesToLayOut,
+				(ParallelForceLayoutContext) layoutContext, undoSupport));
+	}
+
+	@Override
+	public Object createLayoutContext() {
+		return new ParallelForceLayoutContext();
+	}
+
+	@Override
+	public boolean getSupportsSelectedOnly() {
+		return true;
+	}
+}
@@ -0,0 +1,22 @@
+package org.cytoscape.io.internal.layout;
+
+import org.cytoscape.work.Tunable;
+
+public class ParallelForceLayoutContext {
+
+	@Tunable(description = "Number of iterations", gravity = 1.0)
+	public int iterations = 200;
+
+	@Tunable(description = "Ideal edge length", gravity = 2.0)
+	public double edgeLength = 80;
+
+	@Tunable(description = "Approximation (theta, lower is more accurate and slower)", gravity = 3.0)
+	public double theta = 1.0;
+
+	@Tunable(description = "Threads (0 for one per processor)", gravity = 4.0)
+	public int threads = 0;
+
+	int getThreads() {
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+}
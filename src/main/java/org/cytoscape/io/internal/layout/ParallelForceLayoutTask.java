@@ -0,0 +1,90 @@
+package org.cytoscape.io.internal.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractLayoutTask;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.undo.UndoSupport;
+
+public class ParallelForceLayoutTask extends AbstractLayoutTask {
+
+	private final ParallelForceLayoutContext context;
+
+	public ParallelForceLayoutTask(final String displayName, final CyNetworkView networkView,
+			final Set<View<CyNode>> nodesToLayOut, final ParallelForceLayoutContext context, final UndoSupport undo) {
+		super(displayName, networkView, nodesToLayOut, null, undo);
+		this.context = context;
+	}
+
+	@Override
+	protected void doLayout(final TaskMonitor taskMonitor) {
+		final Collection<View<CyNode>> views = nodesToLayOut == null || nodesToLayOut.isEmpty()
+				? networkView.getNodeViews() : nodesToLayOut;
+		final List<View<CyNode>> nodes = new ArrayList<>(views);
+		final int n = nodes.size();
+		final Map<CyNode, Integer> index = new HashMap<>(n * 4 / 3 + 1);
+		final double[] x = new double[n];
+		final double[] y = new double[n];
+		double centerX = 0, centerY = 0;
+		for (int i = 0; i < n; i++) {
+			final View<CyNode> v = nodes.get(i);
+			index.put(v.getModel(), i);
+			x[i] = v.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION);
+			y[i] = v.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
+			centerX += x[i] / n;
+			centerY += y[i] / n;
+		}
+
+		// Edges between the nodes laid out
+		final List<CyEdge> edges = networkView.getModel().getEdgeList();
+		int[] sources = new int[edges.size()];
+		int[] targets = new int[edges.size()];
+		int m = 0;
+		for (final CyEdge edge : edges) {
+			final Integer s = index.get(edge.getSource());
+			final Integer t = index.get(edge.getTarget());
+			if (s != null && t != null) {
+				sources[m] = s;
+				targets[m] = t;
+				m++;
+			}
+		}
+		if (m < sources.length) {
+			sources = Arrays.copyOf(sources, m);
+			targets = Arrays.copyOf(targets, m);
+		}
+
+		taskMonitor.setStatusMessage("Laying out " + n + " nodes and " + m + " edges on " + context.getThreads()
+				+ " threads");
+		final BarnesHutLayout layout = new BarnesHutLayout(x, y, sources, targets);
+		layout.setEdgeLength(context.edgeLength);
+		layout.setTheta(context.theta);
+		layout.randomizeIfCollapsed(n);
+		if (!layout.run(context.iterations, context.getThreads(), () -> cancelled, taskMonitor::setProgress)) {
+			return;
+		}
+
+		// Keep the nodes where they were
+		double layoutX = 0, layoutY = 0;
+		for (int i = 0; i < n; i++) {
+			layoutX += x[i] / n;
+			layoutY += y[i] / n;
+		}
+		for (int i = 0; i < n; i++) {
+			final View<CyNode> v = nodes.get(i);
+			v.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, x[i] - layoutX + centerX);
+			v.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, y[i] - layoutY + centerY);
+		}
+	}
+}
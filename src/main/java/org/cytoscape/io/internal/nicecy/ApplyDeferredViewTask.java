@@ -0,0 +1,38 @@
+package org.cytoscape.io.internal.nicecy;
+
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies a {@link DeferredView} to the view the user opened, in a task so the event that
+ * opened it does not wait for the layout, style and bypasses. See {@link DeferredViews}.
+ *
+ */
+public class ApplyDeferredViewTask extends AbstractTask {
+
+	private static final Logger logger = LoggerFactory.getLogger("CX Deferred Views");
+
+	private final DeferredView deferred;
+	private final CyNetworkView view;
+
+	public ApplyDeferredViewTask(final DeferredView deferred, final CyNetworkView view) {
+		this.deferred = deferred;
+		this.view = view;
+	}
+
+	@Override
+	public void run(final TaskMonitor taskMonitor) {
+		taskMonitor.setTitle("Applying CX view " + (deferred.getName() != null ? deferred.getName() : ""));
+		if (cancelled) {
+			return;
+		}
+		final long t0 = System.currentTimeMillis();
+		deferred.apply(view);
+		view.updateView();
+		logger.info("Applied deferred view " + deferred.getName() + " with " + deferred.getPositionCount()
+				+ " positions in " + (System.currentTimeMillis() - t0) + "ms");
+	}
+}
@@ -0,0 +1,104 @@
+package org.cytoscape.io.internal.nicecy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.cytoscape.model.CyIdentifiable;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+
+/**
+ * Node or edge bypasses of a {@link DeferredView} stored as one column per visual property, each
+ * a pair of parallel SUID and value arrays, instead of one {@link CyVisualPropertiesElement} per
+ * element. The CX elements are only rebuilt when the view is applied.
+ *
+ */
+final class BypassColumns {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final class Column {
+		private long[] suids = new long[INITIAL_CAPACITY];
+		private String[] values = new String[INITIAL_CAPACITY];
+		private int size = 0;
+
+		void add(final long suid, final String value) {
+			if (size == suids.length) {
+				final int new_capacity = suids.length + (suids.length >> 1);
+				suids = Arrays.copyOf(suids, new_capacity);
+				values = Arrays.copyOf(values, new_capacity);
+			}
+			suids[size] = suid;
+			values[size] = value;
+			size++;
+		}
+
+		void trim() {
+			suids = Arrays.copyOf(suids, size);
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	private final String propertiesOf;
+	private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+	private int count = 0;
+
+	/**
+	 * @param propertiesOf properties_of of the rebuilt elements, nodes or edges
+	 */
+	BypassColumns(final String propertiesOf) {
+		this.propertiesOf = propertiesOf;
+	}
+
+	/**
+	 * Add the bypasses of one node or edge. Values are applied in insertion order, so a later
+	 * value of the same property replaces an earlier one
+	 * @param suid
+	 * @param elements
+	 */
+	void add(final long suid, final List<CyVisualPropertiesElement> elements) {
+		for (final CyVisualPropertiesElement vpe : elements) {
+			if (vpe == null || vpe.getProperties() == null) {
+				continue;
+			}
+			vpe.getProperties().forEach((key, value) -> columns.computeIfAbsent(key, k -> new Column()).add(suid, value));
+		}
+		count++;
+	}
+
+	/**
+	 * Release the spare capacity once all bypasses are added
+	 */
+	void trim() {
+		columns.values().forEach(Column::trim);
+	}
+
+	/**
+	 * @param getElement to skip nodes or edges removed from the network since the import
+	 * @return the bypasses as CX elements by SUID, as the view maker takes them
+	 */
+	<T extends CyIdentifiable> Map<Long, List<CyVisualPropertiesElement>> toElements(
+			final Function<Long, T> getElement) {
+		final Map<Long, CyVisualPropertiesElement> elements = new HashMap<Long, CyVisualPropertiesElement>(
+				count * 4 / 3 + 1);
+		final Map<Long, Boolean> exists = new HashMap<Long, Boolean>(count * 4 / 3 + 1);
+		columns.forEach((key, column) -> {
+			for (int i = 0; i < column.size; i++) {
+				final long suid = column.suids[i];
+				if (!exists.computeIfAbsent(suid, s -> getElement.apply(s) != null)) {
+					continue;
+				}
+				elements.computeIfAbsent(suid, s -> new CyVisualPropertiesElement(propertiesOf, s, null))
+						.putProperty(key, column.values[i]);
+			}
+		});
+		final Map<Long, List<CyVisualPropertiesElement>> bypass = new HashMap<Long, List<CyVisualPropertiesElement>>(
+				elements.size() * 4 / 3 + 1);
+		elements.forEach((suid, vpe) -> bypass.put(suid, Collections.singletonList(vpe)));
+		return bypass;
+	}
+}
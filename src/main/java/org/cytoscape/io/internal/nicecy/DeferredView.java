@@ -0,0 +1,82 @@
+package org.cytoscape.io.internal.nicecy;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.cytoscape.group.CyGroup;
+import org.cytoscape.io.internal.cx_reader.ViewMaker;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
+
+/**
+ * A CX view that was not created at import, kept until the user opens a view of its network.
+ *
+ * Node and edge IDs are resolved to SUIDs when the view is deferred, so it does not hold on to
+ * the {@link NiceCyRootNetwork} it was imported with: only the layout arrays, the style
+ * definition and the bypass columns are kept.
+ *
+ */
+public final class DeferredView {
+
+	private final String name;
+	private final NodePositions cartesianLayout;
+	private final Map<String, CyVisualPropertiesElement> visualProperties;
+	private final BypassColumns nodeBypass;
+	private final BypassColumns edgeBypass;
+	private final boolean convertBypasses;
+	// Groups to refresh in the view, and whether they are collapsed
+	private final Map<CyGroup, Boolean> groups;
+
+	DeferredView(final String name, final NodePositions cartesianLayout,
+			final Map<String, CyVisualPropertiesElement> visualProperties,
+			final BypassColumns nodeBypass, final BypassColumns edgeBypass, final boolean convertBypasses,
+			final Map<CyGroup, Boolean> groups) {
+		this.name = name;
+		this.cartesianLayout = cartesianLayout;
+		this.visualProperties = visualProperties;
+		this.nodeBypass = nodeBypass;
+		this.edgeBypass = edgeBypass;
+		this.convertBypasses = convertBypasses;
+		this.groups = groups;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getPositionCount() {
+		return cartesianLayout.size();
+	}
+
+	/**
+	 * Apply the layout, style and bypasses to a new view of the network. Elements removed from the
+	 * network since the import are skipped
+	 * @param v
+	 */
+	public void apply(final CyNetworkView v) {
+		final CyNetwork network = v.getModel();
+		if (name != null) {
+			v.setVisualProperty(BasicVisualLexicon.NETWORK_TITLE, name);
+		}
+		final Function<Long, CyNode> getNode = network::getNode;
+		final Function<Long, CyEdge> getEdge = network::getEdge;
+		ViewMaker.makeView(v, getNode, getEdge, cartesianLayout, visualProperties, nodeBypass.toElements(getNode),
+				edgeBypass.toElements(getEdge), convertBypasses);
+
+		groups.forEach((group, collapsed) -> {
+			if (!group.isInNetwork(network)) {
+				return;
+			}
+			group.collapse(network);
+			group.expand(network);
+			if (collapsed) {
+				group.collapse(network);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.cytoscape.io.internal.nicecy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cytoscape.application.events.SetCurrentNetworkViewEvent;
+import org.cytoscape.application.events.SetCurrentNetworkViewListener;
+import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.swing.DialogTaskManager;
+
+/**
+ * CX views that were not created at import, by network SUID.
+ *
+ * When the user opens a view of a network with deferred views (for example after Create View),
+ * the first deferred view is applied to it by an {@link ApplyDeferredViewTask}, so the layout and
+ * style of the CX file are kept even if no view was created at import. Views created without
+ * being opened, e.g. by other apps, are left alone. Entries are dropped when their network is
+ * destroyed.
+ *
+ */
+public final class DeferredViews implements SetCurrentNetworkViewListener, NetworkAboutToBeDestroyedListener {
+
+	public static final DeferredViews INSTANCE = new DeferredViews();
+
+	private final Map<Long, Deque<DeferredView>> pending = new HashMap<Long, Deque<DeferredView>>();
+
+	private DeferredViews() {
+	}
+
+	public synchronized void defer(final CyNetwork network, final DeferredView view) {
+		pending.computeIfAbsent(network.getSUID(), suid -> new ArrayDeque<DeferredView>()).add(view);
+	}
+
+	public synchronized int getDeferredCount(final CyNetwork network) {
+		final Deque<DeferredView> views = pending.get(network.getSUID());
+		return views == null ? 0 : views.size();
+	}
+
+	/**
+	 * @param network
+	 * @return the next deferred view of the network, or null
+	 */
+	public synchronized DeferredView take(final CyNetwork network) {
+		final Deque<DeferredView> views = pending.get(network.getSUID());
+		if (views == null) {
+			return null;
+		}
+		final DeferredView view = views.poll();
+		if (views.isEmpty()) {
+			pending.remove(network.getSUID());
+		}
+		return view;
+	}
+
+	public synchronized void clear(final CyNetwork network) {
+		pending.remove(network.getSUID());
+	}
+
+	@Override
+	public void handleEvent(final SetCurrentNetworkViewEvent e) {
+		final CyNetworkView view = e.getNetworkView();
+		if (view == null) {
+			return;
+		}
+		final DeferredView deferred = take(view.getModel());
+		if (deferred != null) {
+			CyServiceModule.getService(DialogTaskManager.class)
+					.execute(new TaskIterator(new ApplyDeferredViewTask(deferred, view)));
+		}
+	}
+
+	@Override
+	public void handleEvent(final NetworkAboutToBeDestroyedEvent e) {
+		clear(e.getNetwork());
+	}
+}
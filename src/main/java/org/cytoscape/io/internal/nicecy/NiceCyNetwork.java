@@ -7,9 +7,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Function;
 
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.PreparedView;
 import org.cytoscape.io.internal.cxio.CxUtil;
 import org.cytoscape.io.internal.cxio.TimingUtil;
 import org.cytoscape.model.CyEdge;
@@ -121,9 +123,19 @@ public abstract class NiceCyNetwork extends Identifiable {
 		}
 
 		public Collection<? extends CyNetworkView> createViews(Boolean explicitCreateView) {
+			return createViews(explicitCreateView, true, view -> null);
+		}
+
+		/**
+		 * @param deferViews whether views that are not created are kept for later, see {@link DeferredViews}
+		 * @param prepared views prepared ahead by {@link NiceCyView#prepare}, null for views to prepare when applied
+		 */
+		Collection<? extends CyNetworkView> createViews(Boolean explicitCreateView, boolean deferViews,
+				Function<NiceCyView, PreparedView> prepared) {
 			List<CyNetworkView> cy_views = new ArrayList<CyNetworkView>();
 			CyNetworkViewFactory view_factory = CyServiceModule.getService(CyNetworkViewFactory.class);
 			CyNetworkViewManager view_manager = CyServiceModule.getService(CyNetworkViewManager.class);
+			final boolean createView = shouldCreateViews(explicitCreateView);
 		
 			views.forEach((suid, view) -> {
 				final boolean hasExplicitView = !view.isCartesianLayoutEmpty() 
@@ -131,37 +143,37 @@ public abstract class NiceCyNetwork extends Identifiable {
 						|| !view.isNodeBypassEmpty() 
 						|| !view.isEdgeBypassEmpty();
 				
-				final long networkSize = network.getEdgeCount() + network.getNodeCount();
-				
-				final long viewThreshold = CxPreferences.getViewThreshold();
-				final CxPreferences.CreateViewEnum createViewPreference = CxPreferences.getCreateView();
-				System.out.println("View Preference: " + createViewPreference);
-				System.out.println("Explicit Create View: " + explicitCreateView);
-				final boolean createView;
-				
-				if (explicitCreateView != null) {
-					createView = explicitCreateView.booleanValue();
-				} else {
-					if(CxPreferences.getCreateView() == CxPreferences.CreateViewEnum.NEVER) { 
-						createView = false;
-					} else if (createViewPreference.equals(CxPreferences.CreateViewEnum.ALWAYS) || networkSize < viewThreshold){
-						createView = true;
-					} else {
-						createView = false;
-					}
-				}
-				
 				if (createView) {
 					CyNetworkView v = view_factory.createNetworkView(network);
 					
-					view.apply(v);
+					view.apply(v, prepared.apply(view));
 					view_manager.addNetworkView(v);
 					cy_views.add(v);
+				} else if (hasExplicitView && deferViews) {
+					// Keep the layout and style until a view of the network is created
+					DeferredViews.INSTANCE.defer(network, view.defer());
 				}
 			});
 			return cy_views;
 		}
 
+		boolean shouldCreateViews(Boolean explicitCreateView) {
+			final long networkSize = network.getEdgeCount() + network.getNodeCount();
+			
+			final long viewThreshold = CxPreferences.getViewThreshold();
+			final CxPreferences.CreateViewEnum createViewPreference = CxPreferences.getCreateView();
+			System.out.println("View Preference: " + createViewPreference);
+			System.out.println("Explicit Create View: " + explicitCreateView);
+			
+			if (explicitCreateView != null) {
+				return explicitCreateView.booleanValue();
+			}
+			if (createViewPreference == CxPreferences.CreateViewEnum.NEVER) { 
+				return false;
+			}
+			return createViewPreference.equals(CxPreferences.CreateViewEnum.ALWAYS) || networkSize < viewThreshold;
+		}
+
 		
 		
 		public void updateViewIds(NiceCySubNetwork otherNet) {
@@ -7,10 +7,17 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.PreparedView;
+import org.cytoscape.io.internal.cxio.CxAspectIndex;
 import org.cytoscape.io.internal.cxio.CxUtil;
 import org.cytoscape.io.internal.cxio.TimingUtil;
 import org.cytoscape.model.CyEdge;
@@ -21,6 +28,10 @@ import org.cytoscape.model.CyTable;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
 import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.VisualLexicon;
+import org.cytoscape.view.presentation.RenderingEngineManager;
+import org.cytoscape.view.vizmap.VisualMappingManager;
+import org.cytoscape.view.vizmap.VisualStyle;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
 import org.ndexbio.cxio.aspects.datamodels.CyGroupsElement;
 import org.ndexbio.cxio.aspects.datamodels.CyTableColumnElement;
@@ -64,6 +75,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 			NdexNetworkStatus.ASPECT_NAME,
 			NumberVerification.NAME,
 			CxUtil.CX_ID_MAPPING,
+			CxAspectIndex.ASPECT_NAME,
 			CyTableColumnElement.ASPECT_NAME,
 			CyGroupsElement.ASPECT_NAME,
 			HiddenAttributesElement.ASPECT_NAME,
@@ -77,6 +89,9 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 	
 	protected final Map<String, Collection<AspectElement>> opaqueAspects;
 	private final Map<Long, NiceCySubNetwork> subnetworks;
+	// All views of all subnetworks by ID, and the view used by elements without view ID
+	private final Map<Long, NiceCyView> viewIndex;
+	private NiceCyView defaultView;
 	protected final boolean isCollection;
 	protected final Map<Long, NiceCyNode> root_nodes;
 	protected final Map<Long, NiceCyEdge> root_edges;
@@ -85,8 +100,10 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 	public NiceCyRootNetwork(NiceCXNetwork niceCX) {
 		super(CxUtil.DEFAULT_SUBNET);
 		subnetworks = new HashMap<Long, NiceCySubNetwork>();
-		root_nodes = new HashMap<Long, NiceCyNode>();
-		root_edges = new HashMap<Long, NiceCyEdge>();
+		viewIndex = new HashMap<Long, NiceCyView>();
+		// Sized for the parsed element counts, to avoid rehashing large networks
+		root_nodes = new HashMap<Long, NiceCyNode>(capacity(niceCX.getNodes().size()));
+		root_edges = new HashMap<Long, NiceCyEdge>(capacity(niceCX.getEdges().size()));
 		root_groups = new HashMap<Long, NiceCyGroup>();
 		
 		opaqueAspects = niceCX.getOpaqueAspectTable();
@@ -113,6 +130,10 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 		TimingUtil.reportTimeDifference(t0, "Convert to NiceCY", -1);
 	}
 	
+	private static int capacity(int size) {
+		return (int) Math.min(Integer.MAX_VALUE, size / 0.75d + 1);
+	}
+	
 	private void handleOpaqueAspects() throws JsonProcessingException{
 		
 		handleCyTableColumns(opaqueAspects.get(CyTableColumnElement.ASPECT_NAME));
@@ -413,6 +434,7 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 				NiceCySubNetwork subnet = (NiceCySubNetwork) getNetwork(net);
 				NiceCyView view = new NiceCyView(suid, subnet, nre.getChildName());
 				subnet.views.put(suid, view);
+				viewIndex.put(suid, view);
 			});
 			TimingUtil.reportTimeDifference(t0, SubNetworkElement.ASPECT_NAME, -1);
 		}
@@ -420,10 +442,37 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 		//Add a default subnetwork if the aspect doesn't exist or lists no subnets
 		if (subnetworks.isEmpty()) {
 			NiceCySubNetwork subnet = new NiceCySubNetwork(CxUtil.DEFAULT_SUBNET, this);
-			subnet.views.put(CxUtil.DEFAULT_VIEW, new NiceCyView(CxUtil.DEFAULT_VIEW, subnet, null));
+			NiceCyView view = new NiceCyView(CxUtil.DEFAULT_VIEW, subnet, null);
+			subnet.views.put(CxUtil.DEFAULT_VIEW, view);
 			subnetworks.put(CxUtil.DEFAULT_SUBNET, subnet);
+			viewIndex.put(CxUtil.DEFAULT_VIEW, view);
 		}
-		
+		defaultView = resolveDefaultView();
+	}
+	
+	/**
+	 * Resolve the view that elements without a view ID belong to, if there is a single candidate
+	 * @return the view, or null if ambiguous
+	 */
+	private NiceCyView resolveDefaultView() {
+		if (!isCollection) {
+			NiceCySubNetwork subnet = subnetworks.get(CxUtil.DEFAULT_SUBNET);
+			if (subnet != null && subnet.views.containsKey(CxUtil.DEFAULT_VIEW)) {
+				return subnet.views.get(CxUtil.DEFAULT_VIEW);
+			}
+		}
+		if (viewIndex.size() == 1) {
+			return viewIndex.values().iterator().next();
+		}
+		return null;
+	}
+	
+	private void rebuildViewIndex() {
+		viewIndex.clear();
+		for (NiceCySubNetwork subnet : subnetworks.values()) {
+			viewIndex.putAll(subnet.views);
+		}
+		defaultView = resolveDefaultView();
 	}
 	
 	private NiceCyNetwork getNetwork(Long suid) {
@@ -447,29 +496,11 @@ public class NiceCyRootNetwork extends NiceCyNetwork{
 	}
 	
 	private NiceCyView getViewWithId(Long view) {
-		
-		if (view == null) {
-			if (!isCollection) {
-				return subnetworks.get(CxUtil.DEFAULT_SUBNET).views.get(CxUtil.DEFAULT_VIEW);
-			}
-			List<NiceCyView> views = new ArrayList<NiceCyView>();
-			for (NiceCySubNetwork subnet : subnetworks.values()) {
-				views.addAll(subnet.views.values());
-			}
-			if (views.size() == 1) {
-				return views.get(0);
-			}
-			
-		}else {
-			for (NiceCySubNetwork subnet : subnetworks.values()) {
-				if (subnet.views.containsKey(view)) {
-					return subnet.views.get(view);
-				}
-			}
+		final NiceCyView found = view == null ? defaultView : viewIndex.get(view);
+		if (found == null) {
+			throw new RuntimeException("No view found with ID " + view);
 		}
-		
-		
-		throw new RuntimeException("No view found with ID " + view);
+		return found;
 	}
 
 	public List<CyNetwork> apply() {
@@ -578,18 +609,87 @@ protected void addTableColumns() {
 	}
 
 	public List<CyNetworkView> createViews(CyNetwork network, Boolean explicitCreateViews) {
+		return createViews(network, explicitCreateViews, true);
+	}
+
+	/**
+	 * @param deferViews whether views that are not created are kept until a view is opened, false
+	 * when they were skipped for lack of memory
+	 */
+	public List<CyNetworkView> createViews(CyNetwork network, Boolean explicitCreateViews, boolean deferViews) {
 		List<CyNetworkView> views = new ArrayList<CyNetworkView>();
 		subnetworks.forEach((suid, subnet) -> {
 			if (subnet.network == null) {
 				throw new RuntimeException("No CySubNetwork created for " + subnet);
 			}
+		});
+		subnetworks.forEach((suid, subnet) -> {
 			if (subnet.network.equals(network)) {
-				views.addAll(subnet.createViews(explicitCreateViews));
+				final Map<NiceCyView, Future<PreparedView>> prepared = prepareViews(subnet, explicitCreateViews);
+				try {
+					views.addAll(subnet.createViews(explicitCreateViews, deferViews,
+							view -> takePreparedView(prepared, view)));
+				} finally {
+					// Nothing prepared outlives the views it was prepared for
+					prepared.values().forEach(future -> future.cancel(true));
+					prepared.clear();
+				}
 			}
 		});
 		return views;
 	}
 	
+	/**
+	 * Start preparing the views of a subnetwork on worker threads, if they will be created. They are
+	 * applied one by one on the calling thread, so the later views are ready when they are asked for
+	 * @param subnet
+	 * @param explicitCreateViews
+	 * @return the views being prepared, empty if they are prepared when applied
+	 */
+	private Map<NiceCyView, Future<PreparedView>> prepareViews(NiceCySubNetwork subnet, Boolean explicitCreateViews) {
+		final Map<NiceCyView, Future<PreparedView>> prepared = new HashMap<NiceCyView, Future<PreparedView>>();
+		if (subnet.views.isEmpty() || !subnet.shouldCreateViews(explicitCreateViews)) {
+			return prepared;
+		}
+		final List<NiceCyView> views = new ArrayList<NiceCyView>(subnet.views.values());
+		final int threads = Math.min(CxPreferences.getViewThreads(), views.size());
+		if (threads <= 1) {
+			return prepared;
+		}
+		
+		final VisualLexicon lexicon = CyServiceModule.getService(RenderingEngineManager.class).getDefaultVisualLexicon();
+		final VisualStyle baseStyle = CyServiceModule.getService(VisualMappingManager.class).getDefaultVisualStyle();
+		final ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			final Thread thread = new Thread(r, "CX view preparation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			views.forEach(view -> prepared.put(view, pool.submit(() -> view.prepare(lexicon, baseStyle))));
+		} finally {
+			// Runs the submitted views, then stops the threads
+			pool.shutdown();
+		}
+		logger.info("Preparing " + views.size() + " views on " + threads + " threads");
+		return prepared;
+	}
+	
+	private PreparedView takePreparedView(Map<NiceCyView, Future<PreparedView>> prepared, NiceCyView view) {
+		final Future<PreparedView> future = prepared.remove(view);
+		if (future == null) {
+			return null;
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			logger.warn("Failed to prepare view " + view.getName() + ", applying it unprepared", e.getCause());
+			return null;
+		}
+	}
+	
 	public Collection<NiceCyEdge> getRootEdges() {
 		return root_edges.values();
 	}
@@ -659,6 +759,7 @@ protected void addTableColumns() {
 			subnetworks.put(net.getId(), net);
 			netNameMap.remove(name);
 		}
+		rebuildViewIndex();
 		
 	}
 
@@ -2,14 +2,21 @@ package org.cytoscape.io.internal.nicecy;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.cytoscape.group.CyGroup;
+import org.cytoscape.io.internal.CxPreferences;
+import org.cytoscape.io.internal.cx_reader.PreparedView;
 import org.cytoscape.io.internal.cx_reader.ViewMaker;
+import org.cytoscape.io.internal.cxio.VisualPropertyType;
 import org.cytoscape.io.internal.nicecy.NiceCyNetwork.NiceCySubNetwork;
 import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.VisualLexicon;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.vizmap.VisualStyle;
 import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
 import org.ndexbio.cxio.aspects.datamodels.CyVisualPropertiesElement;
 
@@ -17,7 +24,7 @@ public class NiceCyView extends Identifiable {
 	
 	private final String name;
 	private final NiceCySubNetwork subnet;
-	private Map<Long, CartesianLayoutElement> cartesianLayout;
+	private final NodePositions cartesianLayout;
 	private Map<String, CyVisualPropertiesElement> visualProperties;
 	private Map<Long, List<CyVisualPropertiesElement>> nodeBypass;
 	private Map<Long, List<CyVisualPropertiesElement>> edgeBypass;
@@ -26,7 +33,7 @@ public class NiceCyView extends Identifiable {
 		super(id);
 		this.name = name;
 		this.subnet = subnet;
-		cartesianLayout = new HashMap<Long, CartesianLayoutElement>();
+		cartesianLayout = new NodePositions();
 		visualProperties = new HashMap<String, CyVisualPropertiesElement>();
 		nodeBypass = new HashMap<Long, List<CyVisualPropertiesElement>>();
 		edgeBypass = new HashMap<Long, List<CyVisualPropertiesElement>>();
@@ -67,7 +74,7 @@ public class NiceCyView extends Identifiable {
 	}
 
 	public void addCartesianLayout(long id, CartesianLayoutElement cl) {
-		cartesianLayout.put(id, cl);
+		cartesianLayout.add(id, cl);
 	}
 	
 	public void addVisualProperties(CyVisualPropertiesElement cvpe){
@@ -89,8 +96,17 @@ public class NiceCyView extends Identifiable {
 	}
 	
 	public void apply(CyNetworkView v) {
+		apply(v, null);
+	}
+	
+	/**
+	 * @param prepared from {@link #prepare}, or null to set the bypasses as they are read
+	 */
+	public void apply(CyNetworkView v, PreparedView prepared) {
+		final NiceCyRootNetwork root = subnet.parent;
 		v.setVisualProperty(BasicVisualLexicon.NETWORK_TITLE, name);
-		ViewMaker.makeView(v, subnet.parent, cartesianLayout, visualProperties, nodeBypass, edgeBypass);
+		ViewMaker.makeView(v, root::getNode, root::getEdge, cartesianLayout, visualProperties, nodeBypass, edgeBypass,
+				convertBypasses(), prepared);
 		
 		subnet.groups.forEach(suid -> {
 			NiceCyGroup group = subnet.parent.root_groups.get(suid);
@@ -98,6 +114,47 @@ public class NiceCyView extends Identifiable {
 		});
 	}
 
+	/**
+	 * Parse the bypasses and style of this view, without touching the view model. Thread safe
+	 */
+	public PreparedView prepare(VisualLexicon lexicon, VisualStyle baseStyle) {
+		return PreparedView.prepare(lexicon, baseStyle, visualProperties, nodeBypass, edgeBypass, convertBypasses());
+	}
+
+	// Bypass columns are created in the subnetwork, other views of it may use different values
+	private boolean convertBypasses() {
+		return subnet.views.size() == 1
+				&& CxPreferences.getBypassToMapping() == CxPreferences.BypassToMappingEnum.AUTO;
+	}
+
+	/**
+	 * Keep this view to be applied when a view of its subnetwork is opened, see {@link DeferredViews}.
+	 * The subnetwork must have been applied
+	 * @return the view, with node and edge IDs resolved to SUIDs
+	 */
+	public DeferredView defer() {
+		final NiceCyRootNetwork root = subnet.parent;
+
+		final NodePositions positions = new NodePositions(cartesianLayout.size());
+		for (int i = 0; i < cartesianLayout.size(); i++) {
+			positions.add(root.getNode(cartesianLayout.getId(i)).getSUID(), cartesianLayout.getX(i),
+					cartesianLayout.getY(i), cartesianLayout.isZset(i), cartesianLayout.getZ(i));
+		}
+		final BypassColumns nodes = new BypassColumns(VisualPropertyType.NODES.asString());
+		nodeBypass.forEach((id, props) -> nodes.add(root.getNode(id).getSUID(), props));
+		nodes.trim();
+		final BypassColumns edges = new BypassColumns(VisualPropertyType.EDGES.asString());
+		edgeBypass.forEach((id, props) -> edges.add(root.getEdge(id).getSUID(), props));
+		edges.trim();
+
+		final Map<CyGroup, Boolean> groups = new LinkedHashMap<CyGroup, Boolean>();
+		subnet.groups.forEach(id -> {
+			NiceCyGroup group = root.root_groups.get(id);
+			groups.put(group.getGroup(), group.isCollapsed());
+		});
+		return new DeferredView(name, positions, visualProperties, nodes, edges, convertBypasses(), groups);
+	}
+
 	public void updateIds(NiceCyView otherView) {
 		this.id = otherView.id;
 	}
@@ -0,0 +1,94 @@
+package org.cytoscape.io.internal.nicecy;
+
+import java.util.Arrays;
+
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+
+/**
+ * Cartesian layout of a view stored as parallel primitive arrays, instead of one
+ * {@link CartesianLayoutElement} per node. Positions are applied in insertion order, so
+ * a later position for the same node replaces an earlier one.
+ *
+ */
+public final class NodePositions {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] ids;
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private boolean[] zSet;
+	private int size = 0;
+
+	public NodePositions() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public NodePositions(int capacity) {
+		capacity = Math.max(capacity, 1);
+		ids = new long[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		z = new double[capacity];
+		zSet = new boolean[capacity];
+	}
+
+	public void add(long id, CartesianLayoutElement cl) {
+		add(id, cl.getX(), cl.getY(), cl.isZset(), cl.isZset() ? cl.getZ() : 0);
+	}
+
+	public void add(long id, double x, double y, boolean zSet, double z) {
+		ensureCapacity(size + 1);
+		this.ids[size] = id;
+		this.x[size] = x;
+		this.y[size] = y;
+		this.z[size] = z;
+		this.zSet[size] = zSet;
+		size++;
+	}
+
+	/**
+	 * Grow the arrays to hold at least the given number of positions
+	 * @param capacity
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity <= ids.length) {
+			return;
+		}
+		final int new_capacity = Math.max(capacity, ids.length + (ids.length >> 1));
+		ids = Arrays.copyOf(ids, new_capacity);
+		x = Arrays.copyOf(x, new_capacity);
+		y = Arrays.copyOf(y, new_capacity);
+		z = Arrays.copyOf(z, new_capacity);
+		zSet = Arrays.copyOf(zSet, new_capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long getId(int i) {
+		return ids[i];
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getZ(int i) {
+		return z[i];
+	}
+
+	public boolean isZset(int i) {
+		return zSet[i];
+	}
+}
@@ -0,0 +1,57 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.io.internal.layout.BarnesHutLayout;
+import org.junit.Test;
+
+public class BarnesHutLayoutTest {
+
+	// Two rings of 50 nodes, joined by a single edge
+	private static BarnesHutLayout twoRings(double[] x, double[] y) {
+		final int ring = x.length / 2;
+		final int[] sources = new int[2 * ring + 1];
+		final int[] targets = new int[2 * ring + 1];
+		for (int i = 0; i < ring; i++) {
+			sources[i] = i;
+			targets[i] = (i + 1) % ring;
+			sources[ring + i] = ring + i;
+			targets[ring + i] = ring + (i + 1) % ring;
+		}
+		sources[2 * ring] = 0;
+		targets[2 * ring] = ring;
+		return new BarnesHutLayout(x, y, sources, targets);
+	}
+
+	private static double distance(double[] x, double[] y, int i, int j) {
+		return Math.hypot(x[i] - x[j], y[i] - y[j]);
+	}
+
+	@Test
+	public void testNeighborsCloserThanOthers() {
+		final double[] x = new double[100];
+		final double[] y = new double[100];
+		final BarnesHutLayout layout = twoRings(x, y);
+		assertTrue(layout.randomizeIfCollapsed(1));
+		assertTrue(layout.run(200, 4, () -> false, p -> {}));
+
+		double neighbors = 0, others = 0;
+		for (int i = 0; i < 50; i++) {
+			assertFalse(Double.isNaN(x[i]) || Double.isNaN(y[i]));
+			neighbors += distance(x, y, i, (i + 1) % 50);
+			others += distance(x, y, i, 50 + i);
+		}
+		assertTrue(neighbors < others);
+	}
+
+	@Test
+	public void testKeepsPositionsAndCancels() {
+		final double[] x = { 0, 10, 20 };
+		final double[] y = { 0, 0, 5 };
+		final BarnesHutLayout layout = new BarnesHutLayout(x, y, new int[] { 0 }, new int[] { 1 });
+		assertFalse(layout.randomizeIfCollapsed(1));
+		assertFalse(layout.run(10, 1, () -> true, p -> {}));
+		assertTrue(x[1] == 10 && y[2] == 5);
+	}
+}
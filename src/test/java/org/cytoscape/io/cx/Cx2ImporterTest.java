@@ -0,0 +1,131 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.cytoscape.io.DataCategory;
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.cx_reader.Cx2FileFilter;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
+import org.cytoscape.io.internal.cx_writer.Cx2NetworkWriter;
+import org.cytoscape.io.internal.cxio.Cx2Importer;
+import org.cytoscape.io.util.StreamUtil;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.junit.Test;
+import org.ndexbio.cxio.aspects.datamodels.ATTRIBUTE_DATA_TYPE;
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.cxio.core.interfaces.AspectElement;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+public class Cx2ImporterTest {
+
+	private static final String CX2 = "[{\"CXVersion\":\"2.0\",\"hasFragments\":false},"
+			+ "{\"metaData\":[{\"name\":\"nodes\",\"elementCount\":2},{\"name\":\"edges\",\"elementCount\":1}]},"
+			+ "{\"attributeDeclarations\":[{"
+			+ "\"networkAttributes\":{\"name\":{\"d\":\"string\"}},"
+			+ "\"nodes\":{\"name\":{\"d\":\"string\"},\"score\":{\"d\":\"double\",\"a\":\"s\",\"v\":1.5},"
+			+ "\"tags\":{\"d\":\"list_of_string\"}},"
+			+ "\"edges\":{\"interaction\":{\"d\":\"string\"},\"weight\":{\"d\":\"integer\"}}}]},"
+			+ "{\"networkAttributes\":[{\"name\":\"test network\"}]},"
+			+ "{\"nodes\":[{\"id\":3,\"x\":1.0,\"y\":2.0,\"v\":{\"name\":\"A\",\"s\":2.5,\"tags\":[\"x\",\"y\"]}},"
+			+ "{\"id\":7,\"v\":{\"name\":\"B\"}}]},"
+			+ "{\"edges\":[{\"id\":1,\"s\":3,\"t\":7,\"v\":{\"interaction\":\"pp\",\"weight\":4}}]},"
+			+ "{\"visualProperties\":[{\"default\":{}}]},"
+			+ "{\"status\":[{\"error\":\"\",\"success\":true}]}]";
+
+	private static InputStream toStream(String s) {
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testImport() throws IOException {
+		final NiceCXNetwork niceCX = new Cx2Importer().getCXNetworkFromStream(toStream(CX2));
+
+		assertEquals(2, niceCX.getNodes().size());
+		assertEquals("A", niceCX.getNodes().get(3L).getNodeName());
+		assertEquals(1, niceCX.getEdges().size());
+		assertEquals("pp", niceCX.getEdges().get(1L).getInteraction());
+		assertEquals(1, niceCX.getNetworkAttributes().size());
+		assertEquals(Long.valueOf(7), niceCX.getMetadata().getIdCounter("nodes"));
+
+		// Alias resolved, list kept, default applied to B
+		final Collection<NodeAttributesElement> a = niceCX.getNodeAttributes().get(3L);
+		assertEquals(2, a.size());
+		for (NodeAttributesElement nae : a) {
+			if (nae.getName().equals("score")) {
+				assertEquals("2.5", nae.getValue());
+				assertEquals(ATTRIBUTE_DATA_TYPE.DOUBLE, nae.getDataType());
+			} else {
+				assertEquals("tags", nae.getName());
+				assertEquals(Arrays.asList("x", "y"), nae.getValues());
+			}
+		}
+		final NodeAttributesElement b = niceCX.getNodeAttributes().get(7L).iterator().next();
+		assertEquals("score", b.getName());
+		assertEquals("1.5", b.getValue());
+
+		assertEquals(ATTRIBUTE_DATA_TYPE.INTEGER, niceCX.getEdgeAttributes().get(1L).iterator().next().getDataType());
+
+		final Collection<AspectElement> layout = niceCX.getNodeAssociatedAspects().get(CartesianLayoutElement.ASPECT_NAME).get(3L);
+		assertEquals(1, layout.size());
+		assertEquals(2.0, ((CartesianLayoutElement) layout.iterator().next()).getY(), 0);
+
+		// CX2 style aspects are not read as CX visual properties
+		assertFalse(niceCX.getOpaqueAspectTable().containsKey("visualProperties"));
+	}
+
+	@Test
+	public void testExportRoundTrip() throws IOException {
+		TestUtil.init();
+		final CyNetwork network = TestUtil.loadNetworks(
+				TestUtil.getSubNetwork(TestUtil.getResource("collections", "gal_filtered_1.cx")))[0];
+		final CyNetworkView view = TestUtil.INSTANCE.getCyNetworkViewManager().getNetworkViews(network).iterator().next();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Cx2NetworkWriter writer = new Cx2NetworkWriter(out, network, view);
+		// Unselected columns are not written
+		writer.getNodeColFilter().setSelectedValues(Arrays.asList(CyNetwork.NAME));
+		writer.run(null);
+
+		final NiceCXNetwork niceCX = new Cx2Importer().getCXNetworkFromStream(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(network.getNodeCount(), niceCX.getNodes().size());
+		assertEquals(network.getEdgeCount(), niceCX.getEdges().size());
+		for (CyNode node : network.getNodeList()) {
+			assertEquals(network.getRow(node).get(CyNetwork.NAME, String.class),
+					niceCX.getNodes().get(node.getSUID()).getNodeName());
+		}
+		for (CyEdge edge : network.getEdgeList()) {
+			assertEquals(edge.getSource().getSUID(), niceCX.getEdges().get(edge.getSUID()).getSource());
+			assertEquals(edge.getTarget().getSUID(), niceCX.getEdges().get(edge.getSUID()).getTarget());
+		}
+		assertTrue(niceCX.getNodeAttributes().isEmpty());
+		assertEquals(network.getNodeCount(),
+				niceCX.getNodeAssociatedAspects().get(CartesianLayoutElement.ASPECT_NAME).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotCx2() throws IOException {
+		new Cx2Importer().getCXNetworkFromStream(toStream("[{\"metaData\":[]},{\"nodes\":[{\"@id\":1}]}]"));
+	}
+
+	@Test
+	public void testFileFilters() {
+		final StreamUtil streamUtil = mock(StreamUtil.class);
+		assertTrue(new Cx2FileFilter(streamUtil).accepts(toStream(CX2), DataCategory.NETWORK));
+		assertFalse(new CytoscapeCxFileFilter(streamUtil).accepts(toStream(CX2), DataCategory.NETWORK));
+	}
+}
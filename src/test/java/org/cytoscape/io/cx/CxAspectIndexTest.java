@@ -0,0 +1,120 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.AspectSet;
+import org.cytoscape.io.internal.cxio.CxAspectIndex;
+import org.cytoscape.io.internal.cxio.CxAspectIndex.Fragment;
+import org.cytoscape.io.internal.cxio.CxExporter;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.model.CyNetwork;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.cxio.aspects.datamodels.EdgesElement;
+import org.ndexbio.cxio.aspects.datamodels.NodesElement;
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+public class CxAspectIndexTest {
+
+	private static final List<String> UNINDEXED = Arrays.asList(MetaDataCollection.NAME, "numberVerification",
+			"status", CxAspectIndex.ASPECT_NAME);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testScanAndSeek() throws IOException {
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final CxAspectIndex index;
+			final NiceCXNetwork niceCX;
+			try (InputStream in = new FileInputStream(f)) {
+				index = CxAspectIndex.scan(in);
+			}
+			try (InputStream in = new FileInputStream(f)) {
+				niceCX = new CxImporter().getCXNetworkFromStream(in);
+			}
+			assertFalse(f.getName(), index.getFragments().isEmpty());
+			assertEquals(f.getName(), niceCX.getNodes().size(), index.getElementCount(NodesElement.ASPECT_NAME));
+			assertEquals(f.getName(), niceCX.getEdges().size(), index.getElementCount(EdgesElement.ASPECT_NAME));
+
+			// Reading only the node and edge fragments gives the same nodes and edges
+			final List<Fragment> fragments = new ArrayList<>(index.getFragments(NodesElement.ASPECT_NAME));
+			fragments.addAll(index.getFragments(EdgesElement.ASPECT_NAME));
+			final NiceCXNetwork partial;
+			try (InputStream in = CxAspectIndex.openFragments(f, fragments)) {
+				partial = new CxImporter().getCXNetworkFromStream(in);
+			}
+			assertEquals(f.getName(), niceCX.getNodes().keySet(), partial.getNodes().keySet());
+			assertEquals(f.getName(), niceCX.getEdges().keySet(), partial.getEdges().keySet());
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			index.write(out);
+			final CxAspectIndex read = CxAspectIndex.read(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals(f.getName(), index.getFragments().toString(), read.getFragments().toString());
+		}
+	}
+
+	@Test
+	public void testEmbeddedIndex() throws IOException {
+		TestUtil.init();
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			assertNull(f.getName(), CxAspectIndex.readEmbedded(f));
+
+			final CyNetwork network = TestUtil.loadNetworks(TestUtil.getSubNetwork(f))[0];
+			final CxExporter exporter = new CxExporter(network, false, true);
+			exporter.setWriteAspectIndex(true);
+			final File exported = folder.newFile();
+			try (OutputStream out = new FileOutputStream(exported)) {
+				exporter.writeNetwork(AspectSet.getAspectNames(), out);
+			}
+
+			final CxAspectIndex embedded = CxAspectIndex.readEmbedded(exported);
+			assertNotNull(f.getName(), embedded);
+
+			// Every data fragment is where a scan of the file finds it
+			final List<Fragment> scanned = new ArrayList<>();
+			try (InputStream in = new FileInputStream(exported)) {
+				for (final Fragment fragment : CxAspectIndex.scan(in).getFragments()) {
+					if (!UNINDEXED.contains(fragment.getName())) {
+						scanned.add(fragment);
+					}
+				}
+			}
+			assertEquals(f.getName(), scanned.toString(), embedded.getFragments().toString());
+
+			final NiceCXNetwork niceCX;
+			try (InputStream in = new FileInputStream(exported)) {
+				niceCX = new CxImporter().getCXNetworkFromStream(in);
+			}
+			assertEquals(f.getName(), network.getNodeCount(), niceCX.getNodes().size());
+			final NiceCXNetwork nodes;
+			try (InputStream in = CxAspectIndex.openFragments(exported, embedded.getFragments(NodesElement.ASPECT_NAME))) {
+				nodes = new CxImporter().getCXNetworkFromStream(in);
+			}
+			assertEquals(f.getName(), niceCX.getNodes().keySet(), nodes.getNodes().keySet());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		CxAspectIndex.scan(new ByteArrayInputStream("[{\"nodes\":[{\"@id\":1}".getBytes("UTF-8")));
+	}
+}
@@ -0,0 +1,155 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.cytoscape.io.DataCategory;
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.AspectSet;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxBinaryFileFilter;
+import org.cytoscape.io.internal.cx_reader.CytoscapeCxFileFilter;
+import org.cytoscape.io.internal.cxio.CxBinaryFormat;
+import org.cytoscape.io.internal.cxio.CxExporter;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.util.StreamUtil;
+import org.cytoscape.model.CyNetwork;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CxBinaryFormatTest {
+
+	@Before
+	public void init() {
+		TestUtil.init();
+	}
+
+	private static byte[] toSmile(byte[] json) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CxBinaryFormat.jsonToSmile(new ByteArrayInputStream(json), out);
+		return out.toByteArray();
+	}
+
+	private static void assertSameNetwork(String name, NiceCXNetwork expected, NiceCXNetwork actual) {
+		assertEquals(name, expected.getNodes().size(), actual.getNodes().size());
+		assertEquals(name, expected.getEdges().size(), actual.getEdges().size());
+		assertEquals(name, expected.getNodeAttributes().size(), actual.getNodeAttributes().size());
+		assertEquals(name, expected.getEdgeAttributes().size(), actual.getEdgeAttributes().size());
+		assertEquals(name, expected.getOpaqueAspectTable().keySet(), actual.getOpaqueAspectTable().keySet());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final ObjectMapper mapper = new ObjectMapper();
+		long json_bytes = 0, smile_bytes = 0, json_time = 0, smile_time = 0;
+
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final byte[] json = Files.readAllBytes(f.toPath());
+			final byte[] smile = toSmile(json);
+
+			final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			CxBinaryFormat.smileToJson(new ByteArrayInputStream(smile), decoded);
+			assertEquals(f.getName(), mapper.readTree(json), mapper.readTree(decoded.toByteArray()));
+
+			long t0 = System.nanoTime();
+			final NiceCXNetwork fromJson = new CxImporter().getCXNetworkFromStream(new ByteArrayInputStream(json));
+			json_time += System.nanoTime() - t0;
+			t0 = System.nanoTime();
+			final NiceCXNetwork fromSmile = new CxImporter().getCXNetworkFromStream(new ByteArrayInputStream(smile));
+			smile_time += System.nanoTime() - t0;
+
+			assertSameNetwork(f.getName(), fromJson, fromSmile);
+
+			json_bytes += json.length;
+			smile_bytes += smile.length;
+		}
+		System.out.println("CX JSON:   " + json_bytes + " bytes, parsed in " + json_time / 1000000 + " ms");
+		System.out.println("CX binary: " + smile_bytes + " bytes, parsed in " + smile_time / 1000000 + " ms");
+		assertTrue(smile_bytes < json_bytes);
+	}
+
+	@Test
+	public void testExport() throws IOException {
+		long json_bytes = 0, smile_bytes = 0, json_time = 0, smile_time = 0;
+
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final CyNetwork network = TestUtil.loadNetworks(TestUtil.getSubNetwork(f))[0];
+
+			final ByteArrayOutputStream json = new ByteArrayOutputStream();
+			long t0 = System.nanoTime();
+			new CxExporter(network, false, true).writeNetwork(AspectSet.getAspectNames(), json, false);
+			json_time += System.nanoTime() - t0;
+
+			final ByteArrayOutputStream smile = new ByteArrayOutputStream();
+			t0 = System.nanoTime();
+			new CxExporter(network, false, true).writeNetwork(AspectSet.getAspectNames(), smile, true);
+			smile_time += System.nanoTime() - t0;
+
+			final byte[] smile_bytes_array = smile.toByteArray();
+			assertTrue(f.getName(), CxBinaryFormat.isSmileHeader(smile_bytes_array, smile_bytes_array.length));
+			assertSameNetwork(f.getName(),
+					new CxImporter().getCXNetworkFromStream(new ByteArrayInputStream(json.toByteArray())),
+					new CxImporter().getCXNetworkFromStream(new ByteArrayInputStream(smile_bytes_array)));
+
+			json_bytes += json.size();
+			smile_bytes += smile.size();
+		}
+		System.out.println("CX JSON:   " + json_bytes + " bytes, written in " + json_time / 1000000 + " ms");
+		System.out.println("CX binary: " + smile_bytes + " bytes, written in " + smile_time / 1000000 + " ms");
+		assertTrue(smile_bytes < json_bytes);
+	}
+
+	@Test
+	public void testDecodeStoppedEarly() throws IOException {
+		final byte[] json = Files.readAllBytes(TestUtil.getResource("collections", "gal_filtered_1.cx").toPath());
+		final ByteArrayInputStream smile = new ByteArrayInputStream(toSmile(json));
+
+		final InputStream decoder = CxBinaryFormat.decode(smile);
+		final byte[] start = new byte[16];
+		assertEquals(start.length, decoder.read(start));
+		assertEquals('[', start[0]);
+		decoder.close();
+		assertEquals(-1, decoder.read());
+		// Only read as far as needed for the first bytes
+		assertTrue(smile.available() > 0);
+	}
+
+	@Test
+	public void testFileFilters() throws IOException {
+		final StreamUtil streamUtil = mock(StreamUtil.class);
+		final CytoscapeCxFileFilter json_filter = new CytoscapeCxFileFilter(streamUtil);
+		final CytoscapeCxBinaryFileFilter binary_filter = new CytoscapeCxBinaryFileFilter(streamUtil);
+
+		final byte[] json = Files.readAllBytes(TestUtil.getResource("collections", "gal_filtered_1.cx").toPath());
+		final byte[] smile = toSmile(json);
+
+		assertTrue(binary_filter.accepts(new ByteArrayInputStream(smile), DataCategory.NETWORK));
+		assertFalse(binary_filter.accepts(new ByteArrayInputStream(json), DataCategory.NETWORK));
+		assertFalse(json_filter.accepts(new ByteArrayInputStream(smile), DataCategory.NETWORK));
+
+		// The header is reset on markable streams, and nothing beyond it is read from others
+		final InputStream markable = new BufferedInputStream(new ByteArrayInputStream(smile));
+		assertTrue(binary_filter.accepts(markable, DataCategory.NETWORK));
+		assertEquals(':', markable.read());
+		final ByteArrayInputStream plain = new ByteArrayInputStream(smile) {
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		};
+		assertTrue(binary_filter.accepts(plain, DataCategory.NETWORK));
+		assertEquals(smile.length - 3, plain.available());
+	}
+}
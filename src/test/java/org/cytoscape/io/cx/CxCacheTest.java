@@ -0,0 +1,113 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.internal.cxio.ParsedNetworkCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+public class CxCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private ParsedNetworkCache cache;
+
+	@Before
+	public void init() throws IOException {
+		TestUtil.init();
+		directory = folder.newFolder("cache");
+		cache = new ParsedNetworkCache(directory, Long.MAX_VALUE);
+	}
+
+	private NiceCXNetwork parse(InputStream in, int threads) throws IOException {
+		final CxImporter importer = new CxImporter();
+		importer.setParseThreads(threads);
+		importer.setCache(cache);
+		return importer.getCXNetworkFromStream(in);
+	}
+
+	private NiceCXNetwork parse(File f) throws IOException {
+		try (InputStream in = new FileInputStream(f)) {
+			return parse(in, 1);
+		}
+	}
+
+	private int snapshots() {
+		return directory.listFiles().length;
+	}
+
+	private static void assertSameNetwork(String name, NiceCXNetwork expected, NiceCXNetwork actual) {
+		assertEquals(name, expected.getNodes().keySet(), actual.getNodes().keySet());
+		assertEquals(name, expected.getEdges().keySet(), actual.getEdges().keySet());
+		assertEquals(name, expected.getNodeAttributes().keySet(), actual.getNodeAttributes().keySet());
+		assertEquals(name, expected.getEdgeAttributes().keySet(), actual.getEdgeAttributes().keySet());
+		assertEquals(name, expected.getNetworkAttributes().size(), actual.getNetworkAttributes().size());
+		assertEquals(name, expected.getNodeAssociatedAspects().keySet(), actual.getNodeAssociatedAspects().keySet());
+		assertEquals(name, expected.getEdgeAssociatedAspects().keySet(), actual.getEdgeAssociatedAspects().keySet());
+		assertEquals(name, expected.getOpaqueAspectTable().keySet(), actual.getOpaqueAspectTable().keySet());
+		assertEquals(name, expected.getMetadata().getIdCounter("nodes"), actual.getMetadata().getIdCounter("nodes"));
+	}
+
+	@Test
+	public void testFileCached() throws IOException {
+		int expected = 0;
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final NiceCXNetwork parsed = parse(f);
+			assertEquals(f.getName(), ++expected, snapshots());
+
+			final NiceCXNetwork cached = parse(f);
+			assertEquals(f.getName(), expected, snapshots());
+			assertSameNetwork(f.getName(), parsed, cached);
+		}
+	}
+
+	@Test
+	public void testSpooledContentCached() throws IOException {
+		final File f = TestUtil.getResource("collections", "gal_filtered_1.cx");
+		final byte[] json = Files.readAllBytes(f.toPath());
+
+		// Not a file and not spooled: not hashed
+		parse(new ByteArrayInputStream(json), 1);
+		assertEquals(0, snapshots());
+
+		// The parallel parser hashes what it spools, the same key as for the file
+		final NiceCXNetwork parsed = parse(new ByteArrayInputStream(json), 4);
+		assertEquals(1, snapshots());
+		assertSameNetwork(f.getName(), parsed, parse(f));
+		assertEquals(1, snapshots());
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		cache = new ParsedNetworkCache(directory, 1);
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			parse(f);
+			assertEquals(f.getName(), 0, snapshots());
+		}
+	}
+
+	@Test
+	public void testUnreadableSnapshotDiscarded() throws IOException {
+		final File f = TestUtil.getResource("collections", "gal_filtered_1.cx");
+		final NiceCXNetwork parsed = parse(f);
+		final File snapshot = directory.listFiles()[0];
+		Files.write(snapshot.toPath(), new byte[] { ':', ')', '\n', 1 });
+
+		assertSameNetwork(f.getName(), parsed, parse(f));
+		assertEquals(1, snapshots());
+	}
+}
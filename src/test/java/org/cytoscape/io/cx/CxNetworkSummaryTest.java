@@ -0,0 +1,47 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.internal.cxio.CxNetworkSummary;
+import org.junit.Test;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+public class CxNetworkSummaryTest {
+
+	@Test
+	public void testCountsMatchImport() throws IOException {
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final CxNetworkSummary summary;
+			final NiceCXNetwork niceCX;
+			try (InputStream in = new FileInputStream(f)) {
+				summary = CxNetworkSummary.scan(in);
+			}
+			try (InputStream in = new FileInputStream(f)) {
+				niceCX = new CxImporter().getCXNetworkFromStream(in);
+			}
+			assertEquals(f.getName(), niceCX.getNodes().size(), summary.getNodeCount());
+			assertEquals(f.getName(), niceCX.getEdges().size(), summary.getEdgeCount());
+		}
+	}
+
+	@Test
+	public void testSubnetworksAndViews() throws IOException {
+		final File f = new File(TestUtil.getResource("collections"), "collection_1.cx");
+		try (InputStream in = new FileInputStream(f)) {
+			final CxNetworkSummary summary = CxNetworkSummary.scan(in);
+			assertEquals(3, summary.getSubnetworkCount());
+			assertEquals("NetworkA", summary.getSubnetworks().get(52L));
+			assertEquals(3, summary.getSubnetworkSize(52L));
+			assertEquals(3, summary.getViewCount());
+			assertEquals(Long.valueOf(52), summary.getViewParent(94L));
+			assertEquals(4, summary.getLargestNetworkSize());
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.junit.Test;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+public class CxParallelParseTest {
+
+	private static NiceCXNetwork parse(File f, int threads) throws IOException {
+		final CxImporter importer = new CxImporter();
+		importer.setParseThreads(threads);
+		try (InputStream in = new FileInputStream(f)) {
+			return importer.getCXNetworkFromStream(in);
+		}
+	}
+
+	@Test
+	public void testSameAsSequential() throws IOException {
+		for (File f : TestUtil.getResource("collections").listFiles()) {
+			final NiceCXNetwork sequential = parse(f, 1);
+			final NiceCXNetwork parallel = parse(f, 4);
+
+			assertEquals(f.getName(), sequential.getNodes().keySet(), parallel.getNodes().keySet());
+			assertEquals(f.getName(), sequential.getEdges().keySet(), parallel.getEdges().keySet());
+			assertEquals(f.getName(), sequential.getNodeAttributes().size(), parallel.getNodeAttributes().size());
+			assertEquals(f.getName(), sequential.getEdgeAttributes().size(), parallel.getEdgeAttributes().size());
+			assertEquals(f.getName(), sequential.getNetworkAttributes().size(), parallel.getNetworkAttributes().size());
+			assertEquals(f.getName(), sequential.getOpaqueAspectTable().keySet(), parallel.getOpaqueAspectTable().keySet());
+			assertEquals(f.getName(), sequential.getMetadata().getIdCounter("nodes"),
+					parallel.getMetadata().getIdCounter("nodes"));
+		}
+	}
+}
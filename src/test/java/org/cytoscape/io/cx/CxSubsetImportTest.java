@@ -0,0 +1,251 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.cytoscape.io.cx.helpers.TestUtil;
+import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
+import org.cytoscape.io.internal.cxio.CxImporter;
+import org.cytoscape.io.internal.cxio.CxSubsetImporter;
+import org.cytoscape.io.internal.cxio.ElementSelection;
+import org.cytoscape.io.internal.cxio.LongSet;
+import org.cytoscape.io.internal.cxio.NeighborhoodImporter;
+import org.cytoscape.io.internal.cxio.SampleImporter;
+import org.cytoscape.io.internal.cxio.SubnetworkImporter;
+import org.cytoscape.work.TunableValidator.ValidationState;
+import org.junit.Test;
+import org.ndexbio.cxio.aspects.datamodels.CartesianLayoutElement;
+import org.ndexbio.cxio.aspects.datamodels.NetworkRelationsElement;
+import org.ndexbio.cxio.aspects.datamodels.NodeAttributesElement;
+import org.ndexbio.model.cx.NiceCXNetwork;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+public class CxSubsetImportTest {
+
+	private static NiceCXNetwork importSubset(String file, CxSubsetImporter subset) throws IOException {
+		final File f = new File(TestUtil.getResource("collections"), file);
+		try (InputStream in = new FileInputStream(f)) {
+			return subset.getCXNetworkFromStream(in, new CxImporter());
+		}
+	}
+
+	@Test
+	public void testSubnetworkByName() throws IOException {
+		final NiceCXNetwork niceCX = importSubset("collection_1.cx",
+				new SubnetworkImporter(Collections.singletonList("NetworkB")));
+		assertEquals(new HashSet<>(Arrays.asList(85L, 86L, 87L)), niceCX.getNodes().keySet());
+		assertEquals(new HashSet<>(Arrays.asList(88L, 89L, 90L)), niceCX.getEdges().keySet());
+		// The subnetwork and its view
+		assertEquals(2, niceCX.getOpaqueAspectTable().get(NetworkRelationsElement.ASPECT_NAME).size());
+		assertEquals(3, niceCX.getNodeAssociatedAspects().get(CartesianLayoutElement.ASPECT_NAME).size());
+	}
+
+	@Test
+	public void testSubnetworkById() throws IOException {
+		final NiceCXNetwork niceCX = importSubset("collection_1.cx",
+				new SubnetworkImporter(Arrays.asList("52", "NetworkC")));
+		assertEquals(new HashSet<>(Arrays.asList(82L, 83L, 91L, 92L)), niceCX.getNodes().keySet());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownSubnetwork() throws IOException {
+		importSubset("collection_1.cx", new SubnetworkImporter(Collections.singletonList("NetworkZ")));
+	}
+
+	@Test
+	public void testAmbiguousSubnetworkName() throws IOException {
+		final File f = new File(TestUtil.getResource("collections"), "collection_1.cx");
+		final String cx = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8)
+				.replace("\"name\" : \"NetworkC\"", "\"name\" : \"NetworkB\"");
+		try {
+			new SubnetworkImporter(Collections.singletonList("NetworkB"))
+					.getCXNetworkFromStream(new ByteArrayInputStream(cx.getBytes(StandardCharsets.UTF_8)), new CxImporter());
+			fail("Expected an error for the ambiguous name");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("NetworkB"));
+		}
+		final NiceCXNetwork niceCX = new SubnetworkImporter(Collections.singletonList("72"))
+				.getCXNetworkFromStream(new ByteArrayInputStream(cx.getBytes(StandardCharsets.UTF_8)), new CxImporter());
+		assertEquals(new HashSet<>(Arrays.asList(91L, 92L)), niceCX.getNodes().keySet());
+	}
+
+	@Test
+	public void testReaderImportMode() throws IOException {
+		TestUtil.init();
+		final File f = new File(TestUtil.getResource("collections"), "collection_1.cx");
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Subnetworks");
+			reader.subnetworks = "NetworkB";
+			assertEquals(new HashSet<>(Arrays.asList(85L, 86L, 87L)), reader.getNiceCX().getNodes().keySet());
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Neighborhood of nodes");
+			reader.seedNodes = "Node 6";
+			reader.hops = 1;
+			assertEquals(new HashSet<>(Arrays.asList(91L, 92L)), reader.getNiceCX().getNodes().keySet());
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Random sample");
+			reader.sampleMethod.setSelectedValue(SampleImporter.Method.RESERVOIR);
+			reader.sampleSize = 2;
+			assertEquals(2, reader.getNiceCX().getEdges().size());
+		}
+	}
+
+	private static void assertInvalid(CxReaderWrapper reader) {
+		final StringBuilder msg = new StringBuilder();
+		assertEquals(ValidationState.INVALID, reader.getValidationState(msg));
+		assertFalse(msg.toString().isEmpty());
+		try {
+			reader.getNiceCX();
+			fail("Imported with invalid tunables: " + msg);
+		} catch (IOException e) {
+			assertEquals(msg.toString(), e.getMessage());
+		}
+	}
+
+	@Test
+	public void testReaderImportModeValidation() throws IOException {
+		TestUtil.init();
+		final File f = new File(TestUtil.getResource("collections"), "collection_1.cx");
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			assertEquals(ValidationState.OK, reader.getValidationState(new StringBuilder()));
+			reader.importMode.setSelectedValue("Subnetworks");
+			assertInvalid(reader);
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Neighborhood of nodes");
+			reader.seedNodes = " , ";
+			assertInvalid(reader);
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Neighborhood of nodes");
+			reader.seedNodes = "Node 6";
+			reader.hops = 0;
+			assertInvalid(reader);
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Random sample");
+			reader.sampleSize = 0;
+			assertInvalid(reader);
+		}
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getCx2Reader(in, null);
+			reader.importMode.setSelectedValue("Random sample");
+			assertInvalid(reader);
+		}
+	}
+
+	private static NiceCXNetwork readSample(File f, long seed) throws IOException {
+		try (InputStream in = new FileInputStream(f)) {
+			final CxReaderWrapper reader = TestUtil.INSTANCE.getReader(in, null);
+			reader.importMode.setSelectedValue("Random sample");
+			reader.sampleMethod.setSelectedValue(SampleImporter.Method.NODES);
+			reader.sampleSize = 3;
+			reader.sampleSeed = seed;
+			return reader.getNiceCX();
+		}
+	}
+
+	@Test
+	public void testReaderSampleSeed() throws IOException {
+		TestUtil.init();
+		final File f = new File(TestUtil.getResource("collections"), "collection_1.cx");
+		assertEquals(readSample(f, SampleImporter.DEFAULT_SEED).getNodes().keySet(),
+				readSample(f, SampleImporter.DEFAULT_SEED).getNodes().keySet());
+		assertEquals(readSample(f, 42).getNodes().keySet(), readSample(f, 42).getNodes().keySet());
+	}
+
+	@Test
+	public void testSampleImporterReuse() throws IOException {
+		final SampleImporter importer = new SampleImporter(SampleImporter.Method.NODES, 3, 7);
+		final NiceCXNetwork first = importSubset("collection_1.cx", importer);
+		final NiceCXNetwork second = importSubset("collection_1.cx", importer);
+		assertEquals(first.getNodes().keySet(), second.getNodes().keySet());
+	}
+
+	@Test
+	public void testNeighborhoodImporterReuse() throws IOException {
+		final NeighborhoodImporter importer = new NeighborhoodImporter(Collections.singletonList("Node 6"), 1);
+		final NiceCXNetwork first = importSubset("collection_1.cx", importer);
+		final NiceCXNetwork second = importSubset("collection_1.cx", importer);
+		assertEquals(first.getNodes().keySet(), second.getNodes().keySet());
+		assertEquals(first.getEdges().keySet(), second.getEdges().keySet());
+	}
+
+	@Test
+	public void testTokenFilter() throws IOException {
+		final LongSet nodes = new LongSet();
+		nodes.add(2);
+		final ElementSelection selection = new ElementSelection(nodes, new LongSet(), null, null);
+		assertTrue(test(selection, NodeAttributesElement.ASPECT_NAME, "{\"po\":[1,2],\"n\":\"a\",\"v\":[\"x\"]}"));
+		assertFalse(test(selection, NodeAttributesElement.ASPECT_NAME, "{\"po\":3,\"n\":\"a\",\"v\":\"x\"}"));
+		assertTrue(test(selection, CartesianLayoutElement.ASPECT_NAME, "{\"x\":1.0,\"y\":2.0,\"node\":2}"));
+		assertFalse(test(selection, CartesianLayoutElement.ASPECT_NAME, "{\"node\":1,\"x\":1.0,\"y\":2.0}"));
+	}
+
+	private static boolean test(ElementSelection selection, String aspect, String element) throws IOException {
+		try (JsonParser p = new JsonFactory().createParser(element)) {
+			p.nextToken();
+			return selection.test(aspect, p);
+		}
+	}
+
+	@Test
+	public void testNeighborhood() throws IOException {
+		NiceCXNetwork niceCX = importSubset("collection_1.cx",
+				new NeighborhoodImporter(Collections.singletonList("Node 6"), 1));
+		assertEquals(new HashSet<>(Arrays.asList(91L, 92L)), niceCX.getNodes().keySet());
+		assertEquals(Collections.singleton(93L), niceCX.getEdges().keySet());
+
+		niceCX = importSubset("collection_1.cx", new NeighborhoodImporter(Collections.singletonList("Node 3"), 0));
+		assertEquals(Collections.singleton(85L), niceCX.getNodes().keySet());
+		assertEquals(0, niceCX.getEdges().size());
+	}
+
+	@Test
+	public void testEdgeSample() throws IOException {
+		final NiceCXNetwork niceCX = importSubset("collection_1.cx",
+				new SampleImporter(SampleImporter.Method.RESERVOIR, 2, 42));
+		assertEquals(2, niceCX.getEdges().size());
+		// Exactly the end nodes of the sampled edges
+		final HashSet<Long> ends = new HashSet<>();
+		niceCX.getEdges().values().forEach(e -> {
+			ends.add(e.getSource());
+			ends.add(e.getTarget());
+		});
+		assertEquals(ends, niceCX.getNodes().keySet());
+	}
+
+	@Test
+	public void testNodeSample() throws IOException {
+		final NiceCXNetwork niceCX = importSubset("collection_1.cx", new SampleImporter(SampleImporter.Method.NODES, 3, 7));
+		assertEquals(3, niceCX.getNodes().size());
+		niceCX.getEdges().values().forEach(e -> {
+			assertTrue(niceCX.getNodes().containsKey(e.getSource()));
+			assertTrue(niceCX.getNodes().containsKey(e.getTarget()));
+		});
+	}
+}
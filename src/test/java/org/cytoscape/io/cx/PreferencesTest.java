@@ -1,18 +1,39 @@
 package org.cytoscape.io.cx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import org.cytoscape.application.CyApplicationManager;
+import org.cytoscape.application.events.SetCurrentNetworkViewEvent;
 import org.cytoscape.io.cx.helpers.TestUtil;
 import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cx_reader.ApplyStyleTask;
+import org.cytoscape.io.internal.layout.ParallelForceLayout;
+import org.cytoscape.io.internal.nicecy.ApplyDeferredViewTask;
+import org.cytoscape.io.internal.nicecy.DeferredViews;
 import org.cytoscape.model.CyNetwork;
+import org.cytoscape.view.layout.CyLayoutAlgorithm;
 import org.cytoscape.view.layout.CyLayoutAlgorithmManager;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.Task;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.TaskObserver;
+import org.cytoscape.work.swing.DialogTaskManager;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static org.mockito.Mockito.verify;
@@ -75,6 +96,34 @@ public class PreferencesTest {
 	}
 	
 	
+	@Test
+	public void testDeferredViewOverThreshold() throws Exception {
+		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.CREATE_VIEW_PROPERTY))).thenReturn("auto");
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.VIEW_THRESHOLD))).thenReturn("200");
+		File f = TestUtil.getResource("collections", "gal_filtered_1.cx");
+		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
+		CyNetwork[] networks = TestUtil.loadNetworks(reader);
+		assertEquals(1, DeferredViews.INSTANCE.getDeferredCount(networks[0]));
+		
+		// Opening the view applies the layout of the CX view in a task
+		CyNetworkView view = CyServiceModule.getService(CyNetworkViewFactory.class).createNetworkView(networks[0]);
+		CyNetworkViewManager viewManager = TestUtil.INSTANCE.getCyNetworkViewManager();
+		viewManager.addNetworkView(view);
+		DeferredViews.INSTANCE.handleEvent(new SetCurrentNetworkViewEvent(mock(CyApplicationManager.class), view));
+		
+		assertEquals(0, DeferredViews.INSTANCE.getDeferredCount(networks[0]));
+		ArgumentCaptor<TaskIterator> tasks = ArgumentCaptor.forClass(TaskIterator.class);
+		verify(CyServiceModule.getService(DialogTaskManager.class), times(1)).execute(tasks.capture());
+		Task task = tasks.getValue().next();
+		assertTrue(task instanceof ApplyDeferredViewTask);
+		task.run(mock(TaskMonitor.class));
+		
+		assertEquals(1, viewManager.getNetworkViewSet().size());
+		assertTrue(view.getNodeViews().stream()
+				.anyMatch(v -> v.getVisualProperty(BasicVisualLexicon.NODE_X_LOCATION).doubleValue() != 0));
+	}
+	
 	@Test
 	public void testAlwaysCreateViewUnderThreshold() throws IOException {
 		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
@@ -105,12 +154,32 @@ public class PreferencesTest {
 		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
 		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.CREATE_VIEW_PROPERTY))).thenReturn("always");
 		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.LARGE_LAYOUT_THRESHOLD_PROPERTY))).thenReturn("200");
+		CyLayoutAlgorithmManager layoutManager = CyServiceModule.getService(CyLayoutAlgorithmManager.class);
+		CyLayoutAlgorithm parallelLayout = Mockito.mock(CyLayoutAlgorithm.class);
+		when(parallelLayout.getName()).thenReturn(ParallelForceLayout.NAME);
+		when(layoutManager.getLayout(Mockito.eq(ParallelForceLayout.NAME))).thenReturn(parallelLayout);
 		
 		File f = TestUtil.getResource("collections", "gal_filtered_1_no_layout.cx");
 		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
 		CyNetwork[] networks = TestUtil.loadNetworks(reader);
 		
+		verify(layoutManager, times(1)).getLayout(Mockito.eq(ParallelForceLayout.NAME));
+		verify(layoutManager, times(0)).getLayout(Mockito.eq("grid"));
+		verify(layoutManager, times(0)).getLayout(Mockito.eq("force-directed"));
+	}
+	
+	@Test
+	public void testAutoLayoutOverThresholdWithoutParallelLayout() throws IOException {
+		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.CREATE_VIEW_PROPERTY))).thenReturn("always");
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.LARGE_LAYOUT_THRESHOLD_PROPERTY))).thenReturn("200");
 		CyLayoutAlgorithmManager layoutManager = CyServiceModule.getService(CyLayoutAlgorithmManager.class);
+		when(layoutManager.getLayout(Mockito.eq(ParallelForceLayout.NAME))).thenReturn(null);
+		
+		File f = TestUtil.getResource("collections", "gal_filtered_1_no_layout.cx");
+		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
+		CyNetwork[] networks = TestUtil.loadNetworks(reader);
+		
 		verify(layoutManager, times(1)).getLayout(Mockito.eq("grid"));
 		verify(layoutManager, times(0)).getLayout(Mockito.eq("force-directed"));
 	}
@@ -132,6 +201,62 @@ public class PreferencesTest {
 		verify(layoutManager, times(1)).getLayout(Mockito.eq("force-directed"));
 	}
 	
+	@Test
+	public void testAsyncStyleOverThreshold() throws IOException {
+		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.CREATE_VIEW_PROPERTY))).thenReturn("always");
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.ASYNC_VIEW_THRESHOLD_PROPERTY))).thenReturn("200");
+		
+		File f = TestUtil.getResource("collections", "gal_filtered_1.cx");
+		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
+		CyNetwork[] networks = TestUtil.loadNetworks(reader);
+		
+		// The view is registered, its style is left to a follow-up task
+		assertEquals(1, TestUtil.INSTANCE.getCyNetworkViewManager().getNetworkViewSet().size());
+		ArgumentCaptor<TaskIterator> tasks = ArgumentCaptor.forClass(TaskIterator.class);
+		verify(CyServiceModule.getService(DialogTaskManager.class), times(1)).execute(tasks.capture());
+		assertEquals(1, tasks.getValue().getNumTasks());
+		assertTrue(tasks.getValue().next() instanceof ApplyStyleTask);
+	}
+	
+	@Test
+	public void testAsyncStyleAfterCancelledLayout() throws IOException {
+		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.CREATE_VIEW_PROPERTY))).thenReturn("always");
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.ASYNC_VIEW_THRESHOLD_PROPERTY))).thenReturn("200");
+		when(propertiesMock.getProperty(Mockito.eq(CxPreferences.LARGE_LAYOUT_THRESHOLD_PROPERTY))).thenReturn("10000");
+		CyLayoutAlgorithmManager layoutManager = CyServiceModule.getService(CyLayoutAlgorithmManager.class);
+		CyLayoutAlgorithm layout = layoutManager.getLayout("force-directed");
+		AbstractTask layoutTask = new AbstractTask() {
+			@Override
+			public void run(TaskMonitor taskMonitor) {
+			}
+		};
+		when(layout.createTaskIterator(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenReturn(new TaskIterator(layoutTask));
+		
+		File f = TestUtil.getResource("collections", "gal_filtered_1_no_layout.cx");
+		CxReaderWrapper reader = TestUtil.getSubNetwork(f);
+		TestUtil.loadNetworks(reader);
+		
+		// The layout runs on its own, the style only once it is done
+		DialogTaskManager taskManager = CyServiceModule.getService(DialogTaskManager.class);
+		ArgumentCaptor<TaskIterator> layoutTasks = ArgumentCaptor.forClass(TaskIterator.class);
+		ArgumentCaptor<TaskObserver> observer = ArgumentCaptor.forClass(TaskObserver.class);
+		verify(taskManager, times(1)).execute(layoutTasks.capture(), observer.capture());
+		assertEquals(1, layoutTasks.getValue().getNumTasks());
+		assertTrue(layoutTasks.getValue().next() == layoutTask);
+		verify(taskManager, times(0)).execute(Mockito.any(TaskIterator.class));
+		
+		// Cancelling the layout still applies the style
+		layoutTask.cancel();
+		observer.getValue().allFinished(FinishStatus.newCancelled(layoutTask));
+		ArgumentCaptor<TaskIterator> styleTasks = ArgumentCaptor.forClass(TaskIterator.class);
+		verify(taskManager, times(1)).execute(styleTasks.capture());
+		assertEquals(1, styleTasks.getValue().getNumTasks());
+		assertTrue(styleTasks.getValue().next() instanceof ApplyStyleTask);
+	}
+	
 	@Test
 	public void testNeverLayout() throws IOException {
 		Properties propertiesMock = TestUtil.INSTANCE.getPropertiesMock();
@@ -1,18 +1,26 @@
 package org.cytoscape.io.cx;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import org.cytoscape.io.cx.helpers.CyPropertiesMock;
@@ -21,14 +29,25 @@ import org.cytoscape.io.cx.helpers.TestUtil.CxReaderWrapper;
 import org.cytoscape.io.internal.AspectSet;
 import org.cytoscape.io.internal.CxPreferences;
 import org.cytoscape.io.internal.CyServiceModule;
+import org.cytoscape.io.internal.cxio.CxExporter;
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.cytoscape.io.internal.cxio.Settings;
+import org.cytoscape.model.CyColumn;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.ContinuousRange;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.VisualLexicon;
+import org.cytoscape.view.model.VisualProperty;
+import org.cytoscape.view.presentation.RenderingEngineManager;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.view.presentation.property.DoubleVisualProperty;
 import org.cytoscape.view.presentation.property.IntegerVisualProperty;
@@ -427,4 +446,147 @@ public class SpecialTest {
 		TestUtil.withAspects(reader, subnet, nre, nre2);
 
 	}
+
+	@Test
+	public void testPreparedViewsMatchInline() throws IOException {
+		final File f = TestUtil.getResource("visualStyles", "5views1network.cx");
+		try {
+			for (String bypassToMapping : new String[] { "never", "auto" }) {
+				final List<String> inline = loadViews(f, "1", bypassToMapping);
+				final List<String> prepared = loadViews(f, "4", bypassToMapping);
+				assertEquals(5, prepared.size());
+				assertEquals(inline, prepared);
+			}
+		} finally {
+			TestUtil.init();
+		}
+	}
+
+	@Test
+	public void testConvertedBypassesExportedAsBypasses() throws Exception {
+		final File f = TestUtil.getResource("visualStyles", "5views1network.cx");
+		try {
+			final String never = exportViews(f, "never");
+			final String auto = exportViews(f, "auto");
+			assertFalse(auto.contains(CxUtil.BYPASS_COLUMN_PREFIX));
+			for (String properties_of : new String[] { "nodes", "edges" }) {
+				final String element = "\"properties_of\":\"" + properties_of + "\"";
+				assertEquals(properties_of, count(never, element), count(auto, element));
+			}
+		} finally {
+			TestUtil.init();
+		}
+	}
+
+	private static String exportViews(File f, String bypassToMapping) throws IOException {
+		TestUtil.init();
+		final Properties props = TestUtil.INSTANCE.getPropertiesMock();
+		when(props.getProperty(Mockito.eq(CxPreferences.BYPASS_TO_MAPPING_PROPERTY))).thenReturn(bypassToMapping);
+		final CyNetwork network = TestUtil.loadNetworks(TestUtil.getSubNetwork(f))[0];
+		// Generated columns stay private to the network
+		final CyRootNetwork root = ((CySubNetwork) network).getRootNetwork();
+		for (CyTable table : new CyTable[] { root.getSharedNodeTable(), root.getSharedEdgeTable() }) {
+			for (CyColumn col : table.getColumns()) {
+				assertFalse(col.getName(), col.getName().startsWith(CxUtil.BYPASS_COLUMN_PREFIX));
+			}
+		}
+		final CxExporter exporter = new CxExporter(network, false, true);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.writeNetwork(AspectSet.getAspectNames(), out);
+		return out.toString("UTF-8");
+	}
+
+	private static int count(String str, String sub) {
+		int n = 0;
+		for (int i = str.indexOf(sub); i >= 0; i = str.indexOf(sub, i + sub.length())) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * @return the styles and bypasses of the views of a file, sorted
+	 */
+	private static List<String> loadViews(File f, String viewThreads, String bypassToMapping) throws IOException {
+		TestUtil.init();
+		final Properties props = TestUtil.INSTANCE.getPropertiesMock();
+		when(props.getProperty(Mockito.eq(CxPreferences.VIEW_THREADS_PROPERTY))).thenReturn(viewThreads);
+		when(props.getProperty(Mockito.eq(CxPreferences.BYPASS_TO_MAPPING_PROPERTY))).thenReturn(bypassToMapping);
+		final CyNetwork[] networks = TestUtil.loadNetworks(TestUtil.getSubNetwork(f));
+
+		final VisualLexicon lexicon = CyServiceModule.getService(RenderingEngineManager.class).getDefaultVisualLexicon();
+		final VisualMappingManager vmm = CyServiceModule.getService(VisualMappingManager.class);
+		final List<String> views = new ArrayList<String>();
+		for (CyNetwork network : networks) {
+			for (CyNetworkView view : CyServiceModule.getService(CyNetworkViewManager.class).getNetworkViews(network)) {
+				final List<String> lines = new ArrayList<String>();
+				final VisualStyle style = vmm.getVisualStyle(view);
+				for (VisualProperty<?> vp : lexicon.getAllVisualProperties()) {
+					final Object value = style.getDefaultValue(vp);
+					if (value != null) {
+						lines.add("default " + vp.getIdString() + "=" + serialize(vp, value));
+					}
+				}
+				for (VisualMappingFunction<?, ?> mapping : style.getAllVisualMappingFunctions()) {
+					lines.add("mapping " + mapping.getVisualProperty().getIdString() + "<-" + mapping.getMappingColumnName());
+				}
+				for (View<CyNode> v : view.getNodeViews()) {
+					addBypasses(lines, network.getRow(v.getModel()).get(CyNetwork.NAME, String.class), v,
+							lexicon.getAllDescendants(BasicVisualLexicon.NODE));
+				}
+				for (View<CyEdge> v : view.getEdgeViews()) {
+					addBypasses(lines, network.getRow(v.getModel()).get(CyNetwork.NAME, String.class), v,
+							lexicon.getAllDescendants(BasicVisualLexicon.EDGE));
+				}
+				Collections.sort(lines);
+				views.add(String.join("\n", lines));
+			}
+		}
+		Collections.sort(views);
+		return views;
+	}
+
+	private static void addBypasses(List<String> lines, String name, View<?> v, Collection<VisualProperty<?>> vps) {
+		for (VisualProperty<?> vp : vps) {
+			if (v.isDirectlyLocked(vp)) {
+				lines.add("bypass " + name + " " + vp.getIdString() + "=" + serialize(vp, v.getVisualProperty(vp)));
+			}
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static String serialize(VisualProperty vp, Object value) {
+		return value == null ? "null" : vp.toSerializableString(value);
+	}
+
+	@Test
+	public void testConcurrentExportSettings() throws Exception {
+		final CyNetwork network = TestUtil.loadNetworks(
+				TestUtil.getSubNetwork(TestUtil.getResource("collections", "gal_filtered_1.cx")))[0];
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<String>> exports = new ArrayList<Future<String>>();
+			for (int i = 0; i < 16; i++) {
+				final boolean ignoreSuid = i % 2 == 0;
+				exports.add(pool.submit(() -> {
+					final Settings settings = new Settings();
+					settings.setIgnoreSuidColumn(ignoreSuid);
+					final CxExporter exporter = new CxExporter(network, false, true);
+					exporter.setSettings(settings);
+					final ByteArrayOutputStream out = new ByteArrayOutputStream();
+					exporter.writeNetwork(AspectSet.getAspectNames(), out);
+					return out.toString("UTF-8");
+				}));
+			}
+			for (int i = 0; i < exports.size(); i++) {
+				final boolean ignoreSuid = i % 2 == 0;
+				final String cx = exports.get(i).get();
+				// Each export follows its own settings, not those of the others
+				assertEquals("Export " + i, !ignoreSuid, cx.contains("\"" + CyNetwork.SUID + "\""));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertTrue(Settings.INSTANCE.isIgnoreSuidColumn());
+	}
 }
@@ -0,0 +1,59 @@
+package org.cytoscape.io.cx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.cytoscape.io.internal.cx_reader.StringParser;
+import org.cytoscape.io.internal.cx_reader.StringParser.MappingEntry;
+import org.cytoscape.io.internal.cxio.CxUtil;
+import org.junit.Test;
+
+public class StringParserTest {
+
+	@Test
+	public void testDiscrete() throws IOException {
+		StringParser sp = new StringParser("COL=name,T=string,K=0=a,V=0=#FF0000,K=1=b,V=1=#00FF00");
+		assertEquals("name", sp.get(CxUtil.VM_COL));
+		assertEquals("string", sp.get(CxUtil.VM_TYPE));
+		assertEquals(2, sp.size(MappingEntry.K));
+		assertEquals("b", sp.get(MappingEntry.K, 1));
+		assertEquals("#00FF00", sp.get(MappingEntry.V, 1));
+		assertEquals("a", sp.get("K=0"));
+		assertNull(sp.get(MappingEntry.K, 2));
+	}
+
+	@Test
+	public void testContinuous() throws IOException {
+		StringParser sp = new StringParser("COL=score,T=double,L=0=1.0,E=0=1.0,G=0=2.0,OV=0=0.5,L=1=3.0,E=1=3.0,G=1=4.0,OV=1=1.5");
+		assertEquals(2, sp.size(MappingEntry.OV));
+		assertEquals("0.5", sp.get(MappingEntry.OV, 0));
+		assertEquals("4.0", sp.get(MappingEntry.G, 1));
+	}
+
+	@Test
+	public void testEscapedCommas() throws IOException {
+		StringParser sp = new StringParser("COL=a,,b,T=string,K=0=x,,,,y,V=0=1,,2,K=1=,,z,V=1=w,,");
+		assertEquals("a,b", sp.get(CxUtil.VM_COL));
+		assertEquals("x,,y", sp.get(MappingEntry.K, 0));
+		assertEquals("1,2", sp.get(MappingEntry.V, 0));
+		assertEquals(",z", sp.get(MappingEntry.K, 1));
+		assertEquals("w,", sp.get(MappingEntry.V, 1));
+
+		assertEquals(Arrays.asList("a,,b", "c"), StringParser.commaDelimitedListStringToStringList2("a,,b,c,"));
+	}
+
+	@Test
+	public void testEntriesStopAtGap() throws IOException {
+		StringParser sp = new StringParser("COL=name,T=string,K=0=a,V=0=1,K=2=c,V=2=3");
+		assertEquals(1, sp.size(MappingEntry.K));
+		assertEquals("c", sp.get("K=2"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidEntry() throws IOException {
+		new StringParser("COL=name,T=string,X=0=a");
+	}
+}
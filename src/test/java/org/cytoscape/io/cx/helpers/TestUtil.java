@@ -149,9 +149,17 @@ public class TestUtil {
 			super(input_stream, network_collection_name, networkview_factory, network_factory, network_manager,
 					root_network_manager);
 		}
+
+		public CxReaderWrapper(InputStream input_stream, String network_collection_name,
+				CyNetworkViewFactory networkview_factory, CyNetworkFactory network_factory,
+				CyNetworkManager network_manager, CyRootNetworkManager root_network_manager, boolean cx2) {
+			super(input_stream, network_collection_name, networkview_factory, network_factory, network_manager,
+					root_network_manager, cx2);
+		}
 		
-		public NiceCXNetwork getNiceCX(){
-			return niceCX;
+		@Override
+		public NiceCXNetwork getNiceCX() throws IOException {
+			return super.getNiceCX();
 		}
 		
 	}
@@ -216,6 +224,16 @@ public class TestUtil {
 				nts.getRootNetworkFactory());
 		return reader;
 	}
+
+	public CxReaderWrapper getCx2Reader(InputStream in, String collection_name) {
+		return new CxReaderWrapper(in, 
+				collection_name, 
+				networkview_factory, 
+				network_factory, 
+				nts.getNetworkManager(),
+				nts.getRootNetworkFactory(),
+				true);
+	}
 	
 	public static CyNetwork[] loadNetworks(CxReaderWrapper reader) throws IOException {
 
@@ -292,7 +310,12 @@ public class TestUtil {
 		}
 		logger.info("\n--------------------\nCreating reader for " + file.getName());
 		CxReaderWrapper reader = INSTANCE.getReader(in, null);
-		NiceCXNetwork niceCX = reader.getNiceCX();
+		NiceCXNetwork niceCX;
+		try {
+			niceCX = reader.getNiceCX();
+		}catch(IOException e) {
+			throw new IllegalArgumentException("Unable to parse resource subnetwork " + file.getPath(), e);
+		}
 		
 		for (NodesElement node : nodes) {
 			niceCX.addNode(node);